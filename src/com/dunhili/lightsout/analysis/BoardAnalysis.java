@@ -0,0 +1,360 @@
+package com.dunhili.lightsout.analysis;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.solver.ChasingSolver;
+import com.dunhili.lightsout.solver.ChasingTable;
+import com.dunhili.lightsout.solver.Solution;
+
+/**
+ * Sweeps a range of board sizes and reports, for each size, the rank of the toggle matrix, the fraction of solvable 
+ * starting layouts and the distribution of optimal move counts. The rank comes from the light chasing table, which
+ * only eliminates a width x width bit-packed system, so it's cheap even for very large boards. Boards with at most
+ * {@value #MAX_ENUMERATED_TILES} tiles have every set of presses enumerated to get the exact distribution, larger 
+ * boards are sampled with uniformly random solvable layouts and boards above the sampling limit only get their rank.
+ * Board sizes are analyzed in parallel and the results only depend on the seed.
+ * @author dunhili
+ */
+public class BoardAnalysis {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(BoardAnalysis.class);
+	
+	/** Largest number of tiles whose layouts are all enumerated instead of sampled. */
+	public static final int MAX_ENUMERATED_TILES = 20;
+	
+	/** Default largest number of tiles whose move distribution is sampled. */
+	public static final int DEFAULT_MAX_SAMPLED_TILES = 400;
+	
+	private final int samples;
+	private final long seed;
+	private int maxSampledTiles = DEFAULT_MAX_SAMPLED_TILES;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates an analysis that samples the given number of layouts for each board size too large to enumerate.
+	 * @param samples number of layouts to sample per board size
+	 * @param seed seed of the sampled layouts
+	 */
+	public BoardAnalysis(int samples, long seed) {
+		this.samples = samples;
+		this.seed = seed;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Sets the largest number of tiles a board can have to have its move distribution sampled. Larger boards only 
+	 * get their rank and solvable fraction.
+	 * @param maxSampledTiles largest number of tiles to sample
+	 */
+	public void setMaxSampledTiles(int maxSampledTiles) {
+		this.maxSampledTiles = maxSampledTiles;
+	}
+	
+	/**
+	 * Analyzes every board size in [minWidth, maxWidth] x [minHeight, maxHeight] on the common fork-join pool.
+	 * @param minWidth smallest width
+	 * @param maxWidth largest width
+	 * @param minHeight smallest height
+	 * @param maxHeight largest height
+	 * @return a report for each board size, ordered by width and then height
+	 * @throws InterruptedException if the thread is interrupted while waiting for the analysis
+	 */
+	public List<DimensionReport> sweep(int minWidth, int maxWidth, int minHeight, int maxHeight) 
+			throws InterruptedException {
+		return sweep(minWidth, maxWidth, minHeight, maxHeight, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Analyzes every board size in [minWidth, maxWidth] x [minHeight, maxHeight] on the given pool.
+	 * @param minWidth smallest width
+	 * @param maxWidth largest width
+	 * @param minHeight smallest height
+	 * @param maxHeight largest height
+	 * @param pool pool to analyze the board sizes on
+	 * @return a report for each board size, ordered by width and then height
+	 * @throws InterruptedException if the thread is interrupted while waiting for the analysis
+	 */
+	public List<DimensionReport> sweep(int minWidth, int maxWidth, int minHeight, int maxHeight, ForkJoinPool pool)
+			throws InterruptedException {
+		if (minWidth < 1 || minHeight < 1 || minWidth > maxWidth || minHeight > maxHeight) {
+			log.error("Board size range is invalid.");
+			throw new IllegalArgumentException("Board size range is invalid.");
+		}
+		log.info("Analyzing " + ((maxWidth - minWidth + 1) * (maxHeight - minHeight + 1)) + " board sizes...");
+		List<Future<DimensionReport>> futures = new ArrayList<Future<DimensionReport>>();
+		for (int width = minWidth; width <= maxWidth; width++) {
+			for (int height = minHeight; height <= maxHeight; height++) {
+				final int w = width;
+				final int h = height;
+				futures.add(pool.submit(new Callable<DimensionReport>() {
+					@Override
+					public DimensionReport call() {
+						return analyze(w, h);
+					}
+				}));
+			}
+		}
+		
+		List<DimensionReport> reports = new ArrayList<DimensionReport>(futures.size());
+		try {
+			for (Future<DimensionReport> future : futures) {
+				reports.add(future.get());
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Error while analyzing board sizes.", e.getCause());
+		}
+		log.info("Done analyzing board sizes.");
+		return reports;
+	}
+	
+	/**
+	 * Analyzes the board size width x height.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return the report
+	 */
+	public DimensionReport analyze(int width, int height) {
+		if (log.isDebugEnabled()) {
+			log.debug("analyze(" + width + ", " + height + ")");
+		}
+		int tiles = width * height;
+		if (tiles <= MAX_ENUMERATED_TILES) {
+			return enumerate(width, height);
+		}
+		
+		ChasingTable table = new ChasingTable(width, height);
+		if (tiles > maxSampledTiles || samples <= 0) {
+			return new DimensionReport(width, height, table.getKernelDimension(), 0, false, true, new long[0]);
+		}
+		return sample(table);
+	}
+	
+	/**
+	 * Writes the reports as CSV, one row per board size. The distribution column lists the number of layouts for 
+	 * each optimal number of moves from 0 up, separated by semicolons.
+	 * @param reports reports to write
+	 * @param out writer to write to
+	 * @throws IOException if the writer can't be written to
+	 */
+	public static void writeCsv(List<DimensionReport> reports, Writer out) throws IOException {
+		out.write("width,height,tiles,rank,kernel_dimension,solvable_fraction,samples,exhaustive,exact,mean_moves,"
+				+ "max_moves,distribution\n");
+		for (DimensionReport report : reports) {
+			out.write(report.getWidth() + "," + report.getHeight() + "," + (report.getWidth() * report.getHeight()) 
+					+ "," + report.getRank() + "," + report.getKernelDimension() + "," 
+					+ formatFraction(report.getSolvableFraction()) + "," + report.getSamples() + "," 
+					+ report.isExhaustive() + "," + report.isExact() + "," 
+					+ String.format(Locale.ROOT, "%.4f", report.getMeanMoves()) + "," + report.getMaxMoves() + "," 
+					+ formatDistribution(report, ";") + "\n");
+		}
+		out.flush();
+	}
+	
+	/**
+	 * Writes the reports as a JSON array, one object per board size.
+	 * @param reports reports to write
+	 * @param out writer to write to
+	 * @throws IOException if the writer can't be written to
+	 */
+	public static void writeJson(List<DimensionReport> reports, Writer out) throws IOException {
+		out.write("[\n");
+		for (int i = 0; i < reports.size(); i++) {
+			DimensionReport report = reports.get(i);
+			out.write("  {\"width\": " + report.getWidth() + ", \"height\": " + report.getHeight() 
+					+ ", \"rank\": " + report.getRank() + ", \"kernelDimension\": " + report.getKernelDimension() 
+					+ ", \"solvableFraction\": " + formatFraction(report.getSolvableFraction()) 
+					+ ", \"samples\": " + report.getSamples() + ", \"exhaustive\": " + report.isExhaustive() 
+					+ ", \"exact\": " + report.isExact() 
+					+ ", \"meanMoves\": " + String.format(Locale.ROOT, "%.4f", report.getMeanMoves()) 
+					+ ", \"maxMoves\": " + report.getMaxMoves() 
+					+ ", \"distribution\": [" + formatDistribution(report, ", ") + "]}");
+			out.write((i < reports.size() - 1) ? ",\n" : "\n");
+		}
+		out.write("]\n");
+		out.flush();
+	}
+	
+	/**
+	 * Sweeps a range of board sizes and writes the report to a file, as JSON if the file name ends in .json and as
+	 * CSV otherwise. The arguments are the minimum width, maximum width, minimum height, maximum height, samples 
+	 * per size, seed and output file.
+	 * @param args command line arguments
+	 * @throws Exception if the analysis fails or the file can't be written
+	 */
+	public static void main(String[] args) throws Exception {
+		BasicConfigurator.configure();
+		Logger.getRootLogger().setLevel(Level.INFO);
+		if (args.length != 7) {
+			System.err.println("Usage: BoardAnalysis <minWidth> <maxWidth> <minHeight> <maxHeight> <samples> <seed> "
+					+ "<file.csv|file.json>");
+			return;
+		}
+		BoardAnalysis analysis = new BoardAnalysis(Integer.parseInt(args[4]), Long.parseLong(args[5]));
+		List<DimensionReport> reports = analysis.sweep(Integer.parseInt(args[0]), Integer.parseInt(args[1]), 
+				Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[6]), StandardCharsets.UTF_8));
+		try {
+			if (args[6].endsWith(".json")) {
+				writeJson(reports, out);
+			} else {
+				writeCsv(reports, out);
+			}
+		} finally {
+			out.close();
+		}
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Enumerates every set of presses on a small board in Gray code order, so each step only presses or un-presses
+	 * one tile, and records the fewest presses that reach each layout. Layouts that are never reached can't be 
+	 * solved.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return the exact report
+	 */
+	private static DimensionReport enumerate(int width, int height) {
+		int tiles = width * height;
+		int[] toggleMasks = new int[tiles];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int cell = y * width + x;
+				int mask = 1 << cell;
+				if (x > 0) {
+					mask |= 1 << (cell - 1);
+				}
+				if (x < width - 1) {
+					mask |= 1 << (cell + 1);
+				}
+				if (y > 0) {
+					mask |= 1 << (cell - width);
+				}
+				if (y < height - 1) {
+					mask |= 1 << (cell + width);
+				}
+				toggleMasks[cell] = mask;
+			}
+		}
+		
+		byte[] fewestPresses = new byte[1 << tiles];
+		Arrays.fill(fewestPresses, Byte.MAX_VALUE);
+		fewestPresses[0] = 0;
+		int layout = 0;
+		int presses = 0;
+		int pressed = 0;
+		for (int step = 1; step < (1 << tiles); step++) {
+			int tile = Integer.numberOfTrailingZeros(step);
+			pressed ^= 1 << tile;
+			presses += ((pressed & (1 << tile)) != 0) ? 1 : -1;
+			layout ^= toggleMasks[tile];
+			if (presses < fewestPresses[layout]) {
+				fewestPresses[layout] = (byte) presses;
+			}
+		}
+		
+		long[] moveCounts = new long[tiles + 1];
+		long solvable = 0;
+		for (byte moves : fewestPresses) {
+			if (moves != Byte.MAX_VALUE) {
+				moveCounts[moves]++;
+				solvable++;
+			}
+		}
+		int kernelDimension = tiles - (63 - Long.numberOfLeadingZeros(solvable));
+		return new DimensionReport(width, height, kernelDimension, solvable, true, true, moveCounts);
+	}
+	
+	/**
+	 * Samples uniformly random solvable layouts by pressing each tile of a blank board with probability 1/2, and 
+	 * solves each one for its optimal number of moves.
+	 * @param table chasing table for the board size
+	 * @return the sampled report
+	 */
+	private DimensionReport sample(ChasingTable table) {
+		int width = table.getWidth();
+		int height = table.getHeight();
+		SplittableRandom random = new SplittableRandom(seed ^ (31L * width + height) * 0x9E3779B97F4A7C15L);
+		
+		char[] row = new char[width];
+		Arrays.fill(row, 'B');
+		String[] blankLayout = new String[height];
+		Arrays.fill(blankLayout, new String(row));
+		
+		long[] moveCounts = new long[width * height + 1];
+		boolean exact = true;
+		for (int i = 0; i < samples; i++) {
+			GameBoard board = new GameBoard(blankLayout);
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					if (random.nextBoolean()) {
+						board.swapTiles(x, y);
+					}
+				}
+			}
+			Solution solution = ChasingSolver.solveMinimum(table, board);
+			moveCounts[solution.getNumberOfPresses()]++;
+			exact &= solution.isMinimal();
+		}
+		return new DimensionReport(width, height, table.getKernelDimension(), samples, false, exact, moveCounts);
+	}
+	
+	/**
+	 * Formats a solvable fraction without losing precision on large kernels.
+	 * @param fraction fraction to format
+	 * @return the formatted fraction
+	 */
+	private static String formatFraction(double fraction) {
+		return (fraction == 1.0) ? "1" : String.format(Locale.ROOT, "%.6g", fraction);
+	}
+	
+	/**
+	 * Formats the number of layouts for each optimal number of moves, up to the largest one seen.
+	 * @param report report to format
+	 * @param separator separator between the counts
+	 * @return the formatted distribution
+	 */
+	private static String formatDistribution(DimensionReport report, String separator) {
+		StringBuilder builder = new StringBuilder();
+		for (int moves = 0; moves <= report.getMaxMoves(); moves++) {
+			if (moves > 0) {
+				builder.append(separator);
+			}
+			builder.append(report.getMoveCount(moves));
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,154 @@
+package com.dunhili.lightsout.analysis;
+
+/**
+ * The analysis of one board size: the rank of its toggle matrix, the fraction of starting layouts that can be 
+ * solved and the distribution of the optimal number of moves over the solvable layouts.
+ * @author dunhili
+ */
+public class DimensionReport {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private final int width;
+	private final int height;
+	private final int kernelDimension;
+	private final long samples;
+	private final boolean exhaustive;
+	private final boolean exact;
+	
+	/** Number of solvable layouts seen with each optimal number of moves, indexed by number of moves. */
+	private final long[] moveCounts;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a report for the board size width x height.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @param kernelDimension dimension of the kernel of the toggle matrix
+	 * @param samples number of solvable layouts the move distribution is made from, or 0 if it wasn't measured
+	 * @param exhaustive true if every layout was enumerated rather than sampled
+	 * @param exact true if every optimal number of moves is known to be the minimum
+	 * @param moveCounts number of layouts with each optimal number of moves
+	 */
+	public DimensionReport(int width, int height, int kernelDimension, long samples, boolean exhaustive, 
+			boolean exact, long[] moveCounts) {
+		this.width = width;
+		this.height = height;
+		this.kernelDimension = kernelDimension;
+		this.samples = samples;
+		this.exhaustive = exhaustive;
+		this.exact = exact;
+		this.moveCounts = moveCounts;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the width of the board.
+	 * @return board width
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Returns the height of the board.
+	 * @return board height
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns the rank of the toggle matrix over GF(2), ie the number of tiles minus the kernel dimension.
+	 * @return rank of the toggle matrix
+	 */
+	public int getRank() {
+		return width * height - kernelDimension;
+	}
+	
+	/**
+	 * Returns the dimension of the kernel of the toggle matrix, ie the number of independent sets of presses that 
+	 * don't change the board.
+	 * @return kernel dimension
+	 */
+	public int getKernelDimension() {
+		return kernelDimension;
+	}
+	
+	/**
+	 * Returns the fraction of all starting layouts that can be solved, which is exactly 2^-k for kernel dimension k.
+	 * @return fraction of solvable layouts
+	 */
+	public double getSolvableFraction() {
+		return Math.pow(2.0, -kernelDimension);
+	}
+	
+	/**
+	 * Returns the number of solvable layouts the move distribution is made from.
+	 * @return number of layouts, or 0 if the distribution wasn't measured
+	 */
+	public long getSamples() {
+		return samples;
+	}
+	
+	/**
+	 * Returns true if the move distribution covers every solvable layout rather than a random sample.
+	 * @return true if every layout was enumerated
+	 */
+	public boolean isExhaustive() {
+		return exhaustive;
+	}
+	
+	/**
+	 * Returns true if every optimal number of moves in the distribution is known to be the minimum. Boards with 
+	 * kernels too large to search exhaustively only have an upper bound.
+	 * @return true if the distribution is exact
+	 */
+	public boolean isExact() {
+		return exact;
+	}
+	
+	/**
+	 * Returns the number of layouts seen with the given optimal number of moves.
+	 * @param moves optimal number of moves
+	 * @return number of layouts
+	 */
+	public long getMoveCount(int moves) {
+		return (moves >= 0 && moves < moveCounts.length) ? moveCounts[moves] : 0;
+	}
+	
+	/**
+	 * Returns the largest optimal number of moves seen, ie the hardest layout of this size.
+	 * @return largest optimal number of moves, or -1 if the distribution wasn't measured
+	 */
+	public int getMaxMoves() {
+		for (int moves = moveCounts.length - 1; moves >= 0; moves--) {
+			if (moveCounts[moves] != 0) {
+				return moves;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the mean optimal number of moves over the layouts seen.
+	 * @return mean optimal number of moves, or 0 if the distribution wasn't measured
+	 */
+	public double getMeanMoves() {
+		if (samples == 0) {
+			return 0.0;
+		}
+		double total = 0;
+		for (int moves = 0; moves < moveCounts.length; moves++) {
+			total += (double) moves * moveCounts[moves];
+		}
+		return total / samples;
+	}
+}
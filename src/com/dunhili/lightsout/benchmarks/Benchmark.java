@@ -0,0 +1,69 @@
+package com.dunhili.lightsout.benchmarks;
+
+/**
+ * A single benchmark run by the {@link BenchmarkRunner}. The benchmark is set up once for each of its parameters 
+ * (eg a board size or a number of levels) and then {@link #run()} is timed over many invocations.
+ * @author dunhili
+ */
+public abstract class Benchmark {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private final String name;
+	private final int[] params;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a benchmark with the given name that is run once for each parameter.
+	 * @param name name of the benchmark
+	 * @param params parameters to run the benchmark with
+	 */
+	protected Benchmark(String name, int... params) {
+		this.name = name;
+		this.params = params;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the name of the benchmark.
+	 * @return benchmark name
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Returns the parameters the benchmark is run with.
+	 * @return benchmark parameters
+	 */
+	public int[] getParams() {
+		return params;
+	}
+	
+	/**
+	 * Prepares the state for running the benchmark with the given parameter. Not timed.
+	 * @param param parameter to run the benchmark with
+	 * @throws Exception if the benchmark can't be set up
+	 */
+	public abstract void setUp(int param) throws Exception;
+	
+	/**
+	 * Runs one operation of the benchmark. The result is consumed by the runner so the work can't be optimized away.
+	 * @return result of the operation
+	 * @throws Exception if the operation fails
+	 */
+	public abstract Object run() throws Exception;
+	
+	/**
+	 * Releases the state created by {@link #setUp(int)}. Not timed.
+	 */
+	public void tearDown() {
+	}
+}
@@ -0,0 +1,228 @@
+package com.dunhili.lightsout.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs benchmarks and prints the average time per operation for each one, in the spirit of JMH. Each benchmark is 
+ * warmed up for a number of iterations before it's measured, and the result of every operation is folded into a sink
+ * so the JIT can't remove the work. With allocation profiling turned on (like JMH's "-prof gc") the bytes allocated
+ * per operation are reported too, using the JVM's per-thread allocation counter.
+ * @author dunhili
+ */
+public class BenchmarkRunner {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private int warmupIterations = 3;
+	private int measurementIterations = 5;
+	private long iterationMillis = 500;
+	private boolean profileAllocations = false;
+	
+	/** Results of every operation are folded in here so they are never dead code. */
+	private volatile int sink;
+	
+	private final com.sun.management.ThreadMXBean threads;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a runner with the default number of iterations.
+	 */
+	public BenchmarkRunner() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		threads = (bean instanceof com.sun.management.ThreadMXBean) ? (com.sun.management.ThreadMXBean) bean : null;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Sets the number of iterations run before measuring.
+	 * @param warmupIterations number of warmup iterations
+	 */
+	public void setWarmupIterations(int warmupIterations) {
+		this.warmupIterations = warmupIterations;
+	}
+	
+	/**
+	 * Sets the number of iterations that are measured.
+	 * @param measurementIterations number of measured iterations
+	 */
+	public void setMeasurementIterations(int measurementIterations) {
+		this.measurementIterations = measurementIterations;
+	}
+	
+	/**
+	 * Sets how long each iteration runs for.
+	 * @param iterationMillis length of an iteration in milliseconds
+	 */
+	public void setIterationMillis(long iterationMillis) {
+		this.iterationMillis = iterationMillis;
+	}
+	
+	/**
+	 * Turns reporting the bytes allocated per operation on or off.
+	 * @param profileAllocations true to report allocations
+	 */
+	public void setProfileAllocations(boolean profileAllocations) {
+		this.profileAllocations = profileAllocations && threads != null && threads.isThreadAllocatedMemorySupported();
+	}
+	
+	/**
+	 * Runs every benchmark with each of its parameters and prints the results.
+	 * @param benchmarks benchmarks to run
+	 * @throws Exception if a benchmark fails
+	 */
+	public void runAll(List<Benchmark> benchmarks) throws Exception {
+		System.out.println(String.format("%-32s %10s %16s %16s", "Benchmark", "Param", "ns/op", 
+				profileAllocations ? "B/op" : ""));
+		for (Benchmark benchmark : benchmarks) {
+			for (int param : benchmark.getParams()) {
+				benchmark.setUp(param);
+				try {
+					for (int i = 0; i < warmupIterations; i++) {
+						runIteration(benchmark);
+					}
+					
+					double[] nanosPerOp = new double[measurementIterations];
+					double bytesPerOp = 0;
+					for (int i = 0; i < measurementIterations; i++) {
+						double[] result = runIteration(benchmark);
+						nanosPerOp[i] = result[0];
+						bytesPerOp += result[1] / measurementIterations;
+					}
+					print(benchmark.getName(), param, nanosPerOp, bytesPerOp);
+				} finally {
+					benchmark.tearDown();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Runs the benchmarks whose names contain the filter argument. Other arguments are:
+	 * <p>-wi 'count' number of warmup iterations
+	 * <p>-i 'count' number of measured iterations
+	 * <p>-t 'millis' length of each iteration
+	 * <p>-prof gc report the bytes allocated per operation
+	 * @param args command line arguments
+	 * @throws Exception if a benchmark fails
+	 */
+	public static void main(String[] args) throws Exception {
+		// the hot paths log at trace and debug, so keep logging from skewing the numbers
+		BasicConfigurator.configure();
+		Logger.getRootLogger().setLevel(Level.WARN);
+		
+		BenchmarkRunner runner = new BenchmarkRunner();
+		List<String> filters = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if ("-wi".equals(args[i])) {
+				runner.setWarmupIterations(Integer.parseInt(args[++i]));
+			} else if ("-i".equals(args[i])) {
+				runner.setMeasurementIterations(Integer.parseInt(args[++i]));
+			} else if ("-t".equals(args[i])) {
+				runner.setIterationMillis(Long.parseLong(args[++i]));
+			} else if ("-prof".equals(args[i]) && "gc".equals(args[i + 1])) {
+				runner.setProfileAllocations(true);
+				i++;
+			} else {
+				filters.add(args[i]);
+			}
+		}
+		
+		List<Benchmark> selected = new ArrayList<Benchmark>();
+		List<Benchmark> all = new ArrayList<Benchmark>();
+		all.addAll(BoardBenchmarks.create());
+		all.addAll(LevelBenchmarks.create());
+		for (Benchmark benchmark : all) {
+			if (filters.isEmpty() || matches(benchmark.getName(), filters)) {
+				selected.add(benchmark);
+			}
+		}
+		runner.runAll(selected);
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Runs the benchmark for one iteration, doubling the batch size until the batch runs long enough to time.
+	 * @param benchmark benchmark to run
+	 * @return the nanoseconds and bytes allocated per operation
+	 * @throws Exception if the benchmark fails
+	 */
+	private double[] runIteration(Benchmark benchmark) throws Exception {
+		long threadId = Thread.currentThread().getId();
+		long deadline = System.nanoTime() + iterationMillis * 1000000L;
+		long operations = 0;
+		long elapsed = 0;
+		long allocated = 0;
+		int batch = 1;
+		int result = 0;
+		while (System.nanoTime() < deadline) {
+			long bytesBefore = profileAllocations ? threads.getThreadAllocatedBytes(threadId) : 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < batch; i++) {
+				Object value = benchmark.run();
+				result += (value == null) ? 0 : value.hashCode();
+			}
+			elapsed += System.nanoTime() - start;
+			if (profileAllocations) {
+				allocated += threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+			}
+			operations += batch;
+			if (batch < (1 << 20)) {
+				batch <<= 1;
+			}
+		}
+		sink += result;
+		return new double[] {(double) elapsed / operations, (double) allocated / operations};
+	}
+	
+	/**
+	 * Prints the result of a benchmark: the mean time per operation with its error, and the bytes allocated.
+	 * @param name name of the benchmark
+	 * @param param parameter the benchmark was run with
+	 * @param nanosPerOp time per operation for each measured iteration
+	 * @param bytesPerOp mean bytes allocated per operation
+	 */
+	private void print(String name, int param, double[] nanosPerOp, double bytesPerOp) {
+		double mean = 0;
+		for (double value : nanosPerOp) {
+			mean += value / nanosPerOp.length;
+		}
+		double variance = 0;
+		for (double value : nanosPerOp) {
+			variance += (value - mean) * (value - mean) / Math.max(1, nanosPerOp.length - 1);
+		}
+		String time = String.format("%.1f +- %.1f", mean, Math.sqrt(variance));
+		String bytes = profileAllocations ? String.format("%.1f", bytesPerOp) : "";
+		System.out.println(String.format("%-32s %10d %16s %16s", name, param, time, bytes));
+	}
+	
+	/**
+	 * Returns true if the name contains any of the filters.
+	 * @param name name of the benchmark
+	 * @param filters filters to match
+	 * @return true if any filter matches
+	 */
+	private static boolean matches(String name, List<String> filters) {
+		for (String filter : filters) {
+			if (name.contains(filter)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
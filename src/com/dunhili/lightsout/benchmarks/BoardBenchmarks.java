@@ -0,0 +1,214 @@
+package com.dunhili.lightsout.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.TileColor;
+import com.dunhili.lightsout.solver.ChasingSolver;
+import com.dunhili.lightsout.solver.HintService;
+
+/**
+ * Benchmarks for the {@link GameBoard} hot paths on square boards from 3x3 up to 1000x1000.
+ * @author dunhili
+ */
+public class BoardBenchmarks {
+	/** Widths (and heights) of the boards to benchmark. */
+	public static final int[] BOARD_SIZES = {3, 6, 32, 100, 250, 1000};
+	
+	/** Widths (and heights) of the stress boards for the bulk row operations. */
+	public static final int[] LARGE_BOARD_SIZES = {1000, 2048, 4096};
+	
+	/** Can't be instantiated. */
+	private BoardBenchmarks() { }
+	
+	/**
+	 * Creates the board benchmarks.
+	 * @return list of benchmarks
+	 */
+	public static List<Benchmark> create() {
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		
+		benchmarks.add(new BoardBenchmark("GameBoard.swapTiles") {
+			private int cell = 0;
+			
+			@Override
+			public Object run() {
+				int size = board.getWidth();
+				cell = (cell + 7) % (size * size);
+				board.swapTiles(cell % size, cell / size);
+				return board;
+			}
+		});
+		
+		benchmarks.add(new BoardBenchmark("GameBoard.isGameWon") {
+			@Override
+			public void setUp(int param) {
+				super.setUp(param);
+				// worst case, only the very last tile is still WHITE
+				for (int y = 0; y < param; y++) {
+					for (int x = 0; x < param; x++) {
+						board.setTileAt(x, y, TileColor.BLACK);
+					}
+				}
+				board.setTileAt(param - 1, param - 1, TileColor.WHITE);
+			}
+			
+			@Override
+			public Object run() {
+				return board.isGameWon();
+			}
+		});
+		
+		benchmarks.add(new BoardBenchmark("GameBoard.saveBoard") {
+			@Override
+			public Object run() {
+				return board.saveBoard();
+			}
+		});
+		
+		benchmarks.add(new BoardBenchmark("GameBoard.toString") {
+			@Override
+			public Object run() {
+				return board.toString();
+			}
+		});
+		
+		benchmarks.add(new BoardBenchmark("ChasingSolver.solve") {
+			@Override
+			public void setUp(int param) {
+				super.setUp(param);
+				ChasingSolver.getTable(param, param);	// keep building the table out of the measurement
+			}
+			
+			@Override
+			public Object run() {
+				return ChasingSolver.solve(board);
+			}
+		});
+		
+		benchmarks.add(new BoardBenchmark("HintService.pressAndHint") {
+			private HintService hints;
+			
+			@Override
+			public void setUp(int param) {
+				super.setUp(param);
+				hints = new HintService(board);		// keep the first solve out of the measurement
+			}
+			
+			@Override
+			public Object run() {
+				// follow the hint, so the remaining presses shrink and are never re-minimized
+				int hint = hints.getHint();
+				if (hint < 0) {
+					setUp(board.getWidth());
+					hint = hints.getHint();
+				}
+				hints.press(hint % board.getWidth(), hint / board.getWidth());
+				return hints;
+			}
+			
+			@Override
+			public void tearDown() {
+				super.tearDown();
+				hints = null;
+			}
+		});
+		
+		// the same random pattern pressed tile by tile and then as whole rows, to compare the two
+		benchmarks.add(new PatternBenchmark("GameBoard.swapTiles (pattern)") {
+			@Override
+			public Object run() {
+				int size = board.getWidth();
+				for (int i = 0; i < presses.length; i++) {
+					for (long bits = presses[i]; bits != 0L; bits &= bits - 1) {
+						int cell = (i << 6) + Long.numberOfTrailingZeros(bits);
+						board.swapTiles(cell % size, cell / size);
+					}
+				}
+				return board;
+			}
+		});
+		
+		benchmarks.add(new PatternBenchmark("GameBoard.pressAll (pattern)") {
+			@Override
+			public Object run() {
+				board.pressAll(presses);
+				return board;
+			}
+		});
+		return benchmarks;
+	}
+	
+	/**
+	 * A benchmark on a square board with a checkered pattern of tiles, run once per board size.
+	 */
+	private abstract static class BoardBenchmark extends Benchmark {
+		protected GameBoard board;
+		
+		/**
+		 * Creates a board benchmark with the given name.
+		 * @param name name of the benchmark
+		 */
+		BoardBenchmark(String name) {
+			this(name, BOARD_SIZES);
+		}
+		
+		/**
+		 * Creates a board benchmark with the given name that is run once per given board size.
+		 * @param name name of the benchmark
+		 * @param sizes widths (and heights) of the boards
+		 */
+		BoardBenchmark(String name, int[] sizes) {
+			super(name, sizes);
+		}
+		
+		@Override
+		public void setUp(int param) {
+			board = new GameBoard(param);
+			for (int y = 0; y < param; y++) {
+				for (int x = (y & 1); x < param; x += 2) {
+					board.setTileAt(x, y, TileColor.BLACK);
+				}
+			}
+		}
+		
+		@Override
+		public void tearDown() {
+			board = null;
+		}
+	}
+	
+	/**
+	 * A benchmark that presses a random pattern of about half the tiles on the large boards.
+	 */
+	private abstract static class PatternBenchmark extends BoardBenchmark {
+		protected long[] presses;
+		
+		/**
+		 * Creates a pattern benchmark with the given name.
+		 * @param name name of the benchmark
+		 */
+		PatternBenchmark(String name) {
+			super(name, LARGE_BOARD_SIZES);
+		}
+		
+		@Override
+		public void setUp(int param) {
+			super.setUp(param);
+			Random random = new Random(param);
+			presses = new long[(param * param + 63) / 64];
+			for (int i = 0; i < presses.length; i++) {
+				presses[i] = random.nextLong();
+			}
+			presses[presses.length - 1] &= (param * param % 64 == 0) ? -1L : (1L << (param * param % 64)) - 1;
+		}
+		
+		@Override
+		public void tearDown() {
+			super.tearDown();
+			presses = null;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package com.dunhili.lightsout.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.utils.LevelParser;
+import com.dunhili.lightsout.utils.LevelUtil;
+
+/**
+ * Benchmarks for {@link Level} and the {@link LevelUtil} reading and writing of level packs, on layouts from 3x3 up 
+ * to 1000x1000 and packs from 10 up to 1,000,000 levels.
+ * @author dunhili
+ */
+public class LevelBenchmarks {
+	/** Widths (and heights) of the layouts to benchmark. */
+	public static final int[] LAYOUT_SIZES = {3, 6, 32, 100, 250, 1000};
+	
+	/** Numbers of levels in the packs to benchmark. */
+	public static final int[] PACK_SIZES = {10, 1000, 100000, 1000000};
+	
+	/** Width and height of the levels in the generated packs. */
+	private static final int PACK_LEVEL_SIZE = 6;
+	
+	/** Can't be instantiated. */
+	private LevelBenchmarks() { }
+	
+	/**
+	 * Creates the level benchmarks.
+	 * @return list of benchmarks
+	 */
+	public static List<Benchmark> create() {
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		
+		benchmarks.add(new Benchmark("Level.getCompressedLayout", LAYOUT_SIZES) {
+			private Level level;
+			
+			@Override
+			public void setUp(int param) {
+				level = createLevel(new Random(param), param);
+			}
+			
+			@Override
+			public Object run() {
+				return level.getCompressedLayout();
+			}
+		});
+		
+		benchmarks.add(new Benchmark("LevelUtil.readLevels", PACK_SIZES) {
+			private byte[] pack;
+			
+			@Override
+			public void setUp(int param) throws IOException {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				LevelUtil.writeLevels(createPack(param), out);
+				pack = out.toByteArray();
+			}
+			
+			@Override
+			public Object run() throws IOException {
+				return LevelUtil.readLevels(new ByteArrayInputStream(pack));
+			}
+			
+			@Override
+			public void tearDown() {
+				pack = null;
+			}
+		});
+		
+		benchmarks.add(new Benchmark("LevelUtil.writeLevels", PACK_SIZES) {
+			private List<Level> levels;
+			private final CountingOutputStream out = new CountingOutputStream();
+			
+			@Override
+			public void setUp(int param) {
+				levels = createPack(param);
+			}
+			
+			@Override
+			public Object run() throws IOException {
+				LevelUtil.writeLevels(levels, out);
+				return out.count;
+			}
+			
+			@Override
+			public void tearDown() {
+				levels = null;
+			}
+		});
+		
+		benchmarks.add(new Benchmark("LevelParser.createBoard", PACK_SIZES) {
+			private ByteBuffer pack;
+			
+			@Override
+			public void setUp(int param) throws IOException {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				LevelUtil.writeLevels(createPack(param), out);
+				byte[] bytes = out.toByteArray();
+				pack = ByteBuffer.allocateDirect(bytes.length);
+				pack.put(bytes).flip();
+			}
+			
+			@Override
+			public Object run() {
+				LevelParser parser = new LevelParser(pack);
+				long whiteTiles = 0;
+				while (parser.next()) {
+					whiteTiles += parser.createBoard().getNumberOfWhiteTiles();
+				}
+				return whiteTiles;
+			}
+			
+			@Override
+			public void tearDown() {
+				pack = null;
+			}
+		});
+		return benchmarks;
+	}
+	
+	/**
+	 * Creates a pack of random levels.
+	 * @param size number of levels in the pack
+	 * @return the levels
+	 */
+	private static List<Level> createPack(int size) {
+		Random random = new Random(size);
+		List<Level> levels = new ArrayList<Level>(size);
+		for (int i = 0; i < size; i++) {
+			levels.add(createLevel(random, PACK_LEVEL_SIZE));
+		}
+		return levels;
+	}
+	
+	/**
+	 * Creates a level with a random layout of the given width and height.
+	 * @param random source of the tiles
+	 * @param size width and height of the layout
+	 * @return the level
+	 */
+	private static Level createLevel(Random random, int size) {
+		String[] layout = new String[size];
+		char[] row = new char[size];
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				row[x] = random.nextBoolean() ? 'W' : 'B';
+			}
+			layout[y] = new String(row);
+		}
+		return new Level(layout, random.nextInt(size * size), 0);
+	}
+	
+	/**
+	 * An output stream that throws away everything written to it and only counts the bytes.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+		long count = 0;
+		
+		@Override
+		public void write(int b) {
+			count++;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.dunhili.lightsout.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.server.SessionEngine;
+import com.dunhili.lightsout.server.SessionServer;
+import com.dunhili.lightsout.solver.LevelGenerator;
+
+/**
+ * A local load test of the {@link SessionServer}. Starts a server on a free port with generated 3x3 levels and 
+ * connects a number of clients, each of which opens a session and sends presses in pipelined batches, then prints
+ * the moves per second the server sustained.
+ * @author dunhili
+ */
+public class SessionLoadTest {
+	/** Number of commands a client sends before reading their responses. */
+	private static final int BATCH_SIZE = 256;
+	
+	/** Can't be instantiated. */
+	private SessionLoadTest() { }
+	
+	/**
+	 * Runs the load test. The optional arguments are the number of clients (default 64) and the number of moves 
+	 * each client makes (default 50,000).
+	 * @param args command line arguments
+	 * @throws Exception if the load test fails
+	 */
+	public static void main(String[] args) throws Exception {
+		BasicConfigurator.configure();
+		Logger.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+		int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+		final int moves = (args.length > 1) ? Integer.parseInt(args[1]) : 50000;
+		
+		LevelGenerator generator = new LevelGenerator(3, 3, 1, 5, 20L);
+		List<Level> levels = new ArrayList<Level>();
+		for (int i = 0; i < 16; i++) {
+			levels.add(generator.generateLevel(i));
+		}
+		final SessionEngine engine = new SessionEngine(levels);
+		final SessionServer server = new SessionServer(engine, 0);
+		server.start();
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		try {
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			long start = System.nanoTime();
+			for (int i = 0; i < clients; i++) {
+				final int client = i;
+				results.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws IOException {
+						return play(server.getPort(), client % engine.getNumberOfLevels(), moves, new Random(client));
+					}
+				}));
+			}
+			long total = 0;
+			for (Future<Integer> result : results) {
+				total += result.get();
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.println(String.format("%d clients made %d moves in %.2f s, %.0f moves/s", clients, total, 
+					seconds, total / seconds));
+		} finally {
+			executor.shutdownNow();
+			server.close();
+		}
+	}
+	
+	/**
+	 * Connects to the server, opens a session on the given level and makes random moves in pipelined batches.
+	 * @param port port of the server
+	 * @param level level to play
+	 * @param moves number of moves to make
+	 * @param random random number generator for the moves
+	 * @return number of moves the server accepted
+	 * @throws IOException if the connection fails
+	 */
+	private static int play(int port, int level, int moves, Random random) throws IOException {
+		Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		try {
+			socket.setTcpNoDelay(true);
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), 
+					StandardCharsets.US_ASCII));
+			Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), 
+					StandardCharsets.US_ASCII), 1 << 14);
+			out.write("OPEN " + level + "\n");
+			out.flush();
+			String session = in.readLine().substring(3);
+			
+			int accepted = 0;
+			for (int sent = 0; sent < moves; sent += BATCH_SIZE) {
+				int batch = Math.min(BATCH_SIZE, moves - sent);
+				for (int i = 0; i < batch; i++) {
+					out.write("PRESS " + session + " " + random.nextInt(3) + " " + random.nextInt(3) + "\n");
+				}
+				out.flush();
+				for (int i = 0; i < batch; i++) {
+					if (in.readLine().startsWith("OK")) {
+						accepted++;
+					}
+				}
+			}
+			out.write("CLOSE " + session + "\nQUIT\n");
+			out.flush();
+			return accepted;
+		} finally {
+			socket.close();
+		}
+	}
+}
@@ -1,6 +1,10 @@
 package com.dunhili.lightsout.board;
 
+import java.util.Arrays;
+
 import com.dunhili.lightsout.board.TileColor;
+import com.dunhili.lightsout.metrics.Metrics;
+import com.dunhili.lightsout.utils.BitUtil;
 
 import org.apache.log4j.Logger;
 
@@ -16,7 +20,36 @@ public class GameBoard {
 	
 	private static final Logger log = Logger.getLogger(GameBoard.class);
 	
-	private TileColor[][] board;
+	private final Topology topology;
+	
+	/** Cached toggle masks of the topology, or null for {@link Topology#PLUS}, which has its own word-level press. */
+	private final ToggleMasks masks;
+	
+	private final int width;
+	private final int height;
+	private final int wordsPerRow;
+	
+	/** Mask of the bits in the last word of each row that are actually on the board. */
+	private final long lastWordMask;
+	
+	/**
+	 * The tiles of the board, packed row by row into words. Row y occupies the words starting at 
+	 * y * wordsPerRow and tile (x, y) is bit (x % 64) of word (x / 64) of that row. A set bit is a WHITE tile and
+	 * a cleared bit is a BLACK tile, so the board is won once every word is zero.
+	 */
+	private final long[] tiles;
+	
+	/** Number of WHITE tiles on the board, kept up to date by every change so the win check doesn't scan. */
+	private int whiteTiles;
+	
+	/**
+	 * Zobrist hash of the WHITE tiles, the XOR of {@link #zobristKey(int)} of every set bit of the tiles. Kept up to
+	 * date by every change, so a press only costs an XOR per changed tile.
+	 */
+	private long hash;
+	
+	/** False after a bulk change, which skips the hash, until the hash is next needed and recomputed. */
+	private boolean hashValid;
 	
 	////////////////////////////////////////
 	// CONSTRUCTORS
@@ -36,7 +69,24 @@ public class GameBoard {
 	 * @param height height of the board
 	 */
 	public GameBoard(int width, int height) {
-		board = new TileColor[width][height];
+		this(Topology.PLUS, width, height);
+	}
+	
+	/**
+	 * Creates an empty (ie all white tile) board of dimension width x height where presses follow the given topology.
+	 * Blocked tiles start BLACK.
+	 * @param topology topology that decides which tiles a press toggles
+	 * @param width width of the board
+	 * @param height height of the board
+	 */
+	public GameBoard(Topology topology, int width, int height) {
+		this.topology = topology;
+		this.masks = masksFor(topology, width, height);
+		this.width = width;
+		this.height = height;
+		this.wordsPerRow = BitUtil.wordsFor(width);
+		this.lastWordMask = lastWordMaskForWidth(width);
+		this.tiles = new long[wordsPerRow * height];
 		createEmptyBoard();
 	}
 	
@@ -47,21 +97,65 @@ public class GameBoard {
 	 * @param boardLayout list of Strings to create the board from
 	 */
 	public GameBoard(String... boardLayout) {
+		this(Topology.PLUS, boardLayout);
+	}
+	
+	/**
+	 * Creates a board from the list of Strings where presses follow the given topology. The Strings are in the same
+	 * format as {@link #GameBoard(String...)}. Blocked tiles are always BLACK, whatever the layout says.
+	 * @param topology topology that decides which tiles a press toggles
+	 * @param boardLayout list of Strings to create the board from
+	 */
+	public GameBoard(Topology topology, String... boardLayout) {
 		verifyBoardLayout(boardLayout);
 		
-		int width = boardLayout[0].length();
-		int height = boardLayout.length;
-		board = new TileColor[width][height];
+		this.topology = topology;
+		this.masks = masksFor(topology, boardLayout[0].length(), boardLayout.length);
+		this.width = boardLayout[0].length();
+		this.height = boardLayout.length;
+		this.wordsPerRow = BitUtil.wordsFor(width);
+		this.lastWordMask = lastWordMaskForWidth(width);
+		this.tiles = new long[wordsPerRow * height];
 		createBoardFromStrings(boardLayout);
 	}
 	
+	/**
+	 * Creates a board of dimension width x height from tiles that are already packed row by row, in the same form 
+	 * as {@link #getRowBits(int)}: row y starts at word (y * ceil(width / 64)) and tile (x, y) is bit (x % 64) of 
+	 * word (x / 64) of that row, set for WHITE. Bits past the width of a row are ignored. The words are copied.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @param rowBits packed tiles of the board
+	 */
+	public GameBoard(int width, int height, long[] rowBits) {
+		if (width <= 0 || height <= 0) {
+			log.error("Board cannot be empty.");
+			throw new IllegalArgumentException("Board cannot be empty.");
+		}
+		this.topology = Topology.PLUS;
+		this.masks = null;
+		this.width = width;
+		this.height = height;
+		this.wordsPerRow = BitUtil.wordsFor(width);
+		this.lastWordMask = lastWordMaskForWidth(width);
+		if (rowBits.length < wordsPerRow * height) {
+			log.error("Packed tiles are too short for the board.");
+			throw new IllegalArgumentException("Packed tiles are too short for a " + width + "x" + height + " board.");
+		}
+		this.tiles = Arrays.copyOf(rowBits, wordsPerRow * height);
+		for (int j = 0; j < height; j++) {
+			tiles[j * wordsPerRow + wordsPerRow - 1] &= lastWordMask;
+		}
+		recountTiles();
+	}
+	
 	////////////////////////////////////////
 	// PUBLIC METHODS
 	////////////////////////////////////////
 	
 	/**
-	 * Returns the tile at the given index (x, y). If the index is outside the board, then returns the INVALID
-	 * tile instead.
+	 * Returns the tile at the given index (x, y). If the index is outside the board or blocked, then returns the 
+	 * INVALID tile instead.
 	 * @param x x coordinate to get the tile at
 	 * @param y y coordinate to get the tile at
 	 * @return tile at index (x, y) or INVALID if it's outside the board
@@ -70,11 +164,15 @@ public class GameBoard {
 		if (log.isTraceEnabled()) {
 			log.trace("getTileAt(" + x + ", " + y + ")");
 		}
-		return (inBounds(x, y)) ? board[x][y] : TileColor.INVALID;
+		if (!isPressable(x, y)) {
+			return TileColor.INVALID;
+		}
+		return (isWhite(x, y)) ? TileColor.WHITE : TileColor.BLACK;
 	}
 	
 	/**
-	 * Sets the tile at the given index (x, y) to the given tile color (NOTE it will ignore setting a tile to INVALID).
+	 * Sets the tile at the given index (x, y) to the given tile color (NOTE it will ignore setting a tile to INVALID,
+	 * and blocked tiles always stay BLACK).
 	 * @param x x coordinate to set the tile at
 	 * @param y y coordinate to set the tile at
 	 * @param color color of the tile to change the cell to
@@ -84,8 +182,12 @@ public class GameBoard {
 			log.trace("setTileAt(" + x + ", " + y + ", " + color + ")");
 		}
 		
-		if (inBounds(x, y) && color != TileColor.INVALID) {
-			board[x][y] = color;
+		if (isPressable(x, y) && color != TileColor.INVALID) {
+			int index = y * wordsPerRow + (x >>> 6);
+			long bit = 1L << x;
+			if ((color == TileColor.WHITE) != ((tiles[index] & bit) != 0L)) {
+				flip(index, bit);
+			}
 		}
 	}
 	
@@ -94,8 +196,7 @@ public class GameBoard {
 	 * @return board width
 	 */
 	public int getWidth() {
-		log.trace("getWidth()");
-		return board.length;
+		return width;
 	}
 	
 	/**
@@ -103,23 +204,45 @@ public class GameBoard {
 	 * @return board height
 	 */
 	public int getHeight() {
-		log.trace("getHeight()");
-		return board[0].length;
+		return height;
+	}
+	
+	/**
+	 * Returns the topology that decides which tiles a press toggles.
+	 * @return topology of the board
+	 */
+	public Topology getTopology() {
+		return topology;
+	}
+	
+	/**
+	 * Returns true if the tile at (x, y) is inside the board and isn't blocked, ie pressing it changes the board.
+	 * @param x x coordinate of the tile
+	 * @param y y coordinate of the tile
+	 * @return true if the tile can be pressed, otherwise false
+	 */
+	public boolean isPressable(int x, int y) {
+		return inBounds(x, y) && (masks == null || masks.blockedTiles == null 
+				|| (masks.blockedTiles[y * wordsPerRow + (x >>> 6)] & (1L << x)) == 0L);
+	}
+	
+	/**
+	 * Returns the number of WHITE tiles left on the board.
+	 * @return number of WHITE tiles
+	 */
+	public int getNumberOfWhiteTiles() {
+		return whiteTiles;
 	}
 	
 	/**
 	 * Returns true if the user has won the game, ie they have turned all the tiles on the board black. Returns
-	 * false if any of the tiles on the board are still white.
+	 * false if any of the tiles on the board are still white. Runs in constant time regardless of the board size.
 	 * @return true if all the tiles are black, otherwise returns false
 	 */
 	public boolean isGameWon() {
-		log.trace("isGameWon()");
-		for (int j = 0; j < getHeight(); j++) {
-			for (int i = 0; i < getWidth(); i++) {
-				if (board[i][j] == TileColor.WHITE) {
-					return false;
-				}
-			}
+		Metrics.WIN_CHECKS.increment();
+		if (whiteTiles != 0) {
+			return false;
 		}
 		
 		log.debug("User has completed the level.");
@@ -140,7 +263,8 @@ public class GameBoard {
 	
 	/**
 	 * Sets the tile at the given index (x, y) to the opposite color (ie WHITE -> BLACK or BLACK -> WHITE) and
-	 * changes the adjacent tiles as well (doesn't include diagonal tiles).
+	 * changes the adjacent tiles as well (doesn't include diagonal tiles). Boards with another topology toggle the
+	 * tiles given by its cached mask for the tile instead. Presses on blocked tiles are ignored.
 	 * @param x x coordinate to change the tile
 	 * @param y y coordinate to change the tile
 	 */
@@ -154,11 +278,90 @@ public class GameBoard {
 			return;
 		}
 		
-		swapTile(x, y);
-		swapTile(x + 1, y);
-		swapTile(x - 1, y);
-		swapTile(x, y + 1);
-		swapTile(x, y - 1);
+		if (masks != null) {
+			if (!isPressable(x, y)) {
+				log.debug("Blocked tile.");
+				return;
+			}
+			Metrics.MOVES_APPLIED.increment();
+			int pattern = masks.patternOf[y * width + x];
+			int rowStart = y * wordsPerRow;
+			for (int i = masks.patternStart[pattern], end = masks.patternStart[pattern + 1]; i < end; i++) {
+				flip(rowStart + masks.wordOffset[i], masks.wordMask[i]);
+			}
+			return;
+		}
+		Metrics.MOVES_APPLIED.increment();
+		
+		int word = x >>> 6;
+		int rowStart = y * wordsPerRow;
+		long bit = 1L << x;
+		
+		// the tile itself and its left and right neighbours, clipped to the edges of the board
+		long centerMask = bit | (bit << 1) | (bit >>> 1);
+		if (word == wordsPerRow - 1) {
+			centerMask &= lastWordMask;
+		}
+		flip(rowStart + word, centerMask);
+		if ((x & 63) == 0 && word > 0) {
+			flip(rowStart + word - 1, Long.MIN_VALUE);	// left neighbour is the top bit of the previous word
+		} else if ((x & 63) == 63 && x + 1 < width) {
+			flip(rowStart + word + 1, 1L);				// right neighbour is the low bit of the next word
+		}
+		
+		// the tiles directly above and below
+		if (y > 0) {
+			flip(rowStart - wordsPerRow + word, bit);
+		}
+		if (y < height - 1) {
+			flip(rowStart + wordsPerRow + word, bit);
+		}
+	}
+	
+	/**
+	 * Presses every tile whose bit is set in the given press vector, where tile (x, y) is bit (y * width + x) as in 
+	 * {@link com.dunhili.lightsout.solver.Solution}. Since presses commute, the whole pattern is applied row by row 
+	 * with one pass of word-wide XORs per row, rather than one {@link #swapTiles(int, int)} per press, which makes 
+	 * applying a solution to a very large board cheap. Boards with a topology other than plus press each tile through
+	 * its cached mask instead.
+	 * @param presses bit vector of the tiles to press
+	 */
+	public void pressAll(long[] presses) {
+		log.trace("pressAll()");
+		if (presses.length < BitUtil.wordsFor(width * height)) {
+			log.error("Press vector is too short for the board.");
+			throw new IllegalArgumentException("Press vector is too short for a " + width + "x" + height + " board.");
+		}
+		
+		if (masks != null) {
+			for (int i = 0; i < presses.length; i++) {
+				for (long bits = presses[i]; bits != 0L; bits &= bits - 1) {
+					int cell = (i << 6) + Long.numberOfTrailingZeros(bits);
+					if (cell < width * height) {
+						swapTiles(cell % width, cell / width);
+					}
+				}
+			}
+			return;
+		}
+		
+		Metrics.MOVES_APPLIED.add(BitUtil.popCount(presses));
+		long[] row = new long[wordsPerRow];
+		for (int j = 0; j < height; j++) {
+			Arrays.fill(row, 0L);
+			BitUtil.copyBits(presses, j * width, row, 0, width);
+			int rowStart = j * wordsPerRow;
+			BitUtil.xorWithNeighbours(tiles, rowStart, row, 0, wordsPerRow);
+			tiles[rowStart + wordsPerRow - 1] &= lastWordMask;
+			if (j > 0) {
+				BitUtil.xorInto(tiles, rowStart - wordsPerRow, row, 0, wordsPerRow);
+			}
+			if (j < height - 1) {
+				BitUtil.xorInto(tiles, rowStart + wordsPerRow, row, 0, wordsPerRow);
+			}
+		}
+		whiteTiles = BitUtil.popCount(tiles);
+		hashValid = false;
 	}
 	
 	/**
@@ -168,18 +371,87 @@ public class GameBoard {
 	 */
 	public String[] saveBoard() {
 		log.trace("saveBoard()");
-		String[] rows = new String[getHeight()];
-		for (int j = 0; j < getHeight(); j++) {
-			StringBuilder str = new StringBuilder(getWidth());
-			for (int i = 0; i < getWidth(); i++) {
-				str.append((board[i][j] == TileColor.BLACK) ? 'B' : 'W');
+		String[] rows = new String[height];
+		char[] row = new char[width];
+		for (int j = 0; j < height; j++) {
+			for (int i = 0; i < width; i++) {
+				row[i] = isWhite(i, j) ? 'W' : 'B';
 			}
-			rows[j] = str.toString();
+			rows[j] = new String(row);
 		}
 
 		return rows;
 	}
 	
+	/**
+	 * Returns a copy of row y of the board packed into words, where tile (x, y) is bit (x % 64) of word (x / 64) and
+	 * a set bit is a WHITE tile.
+	 * @param y row of the board to copy
+	 * @return the packed row
+	 */
+	public long[] getRowBits(int y) {
+		if (log.isTraceEnabled()) {
+			log.trace("getRowBits(" + y + ")");
+		}
+		long[] row = new long[wordsPerRow];
+		System.arraycopy(tiles, y * wordsPerRow, row, 0, wordsPerRow);
+		return row;
+	}
+	
+	/**
+	 * Returns the board as a single bit vector with one bit per tile, where tile (x, y) is bit (y * width + x) and
+	 * a set bit is a WHITE tile. This is the form the solvers work with.
+	 * @return bit vector of the WHITE tiles on the board
+	 */
+	public long[] toBitVector() {
+		log.trace("toBitVector()");
+		long[] vector = new long[BitUtil.wordsFor(width * height)];
+		for (int j = 0; j < height; j++) {
+			BitUtil.copyBits(tiles, j * wordsPerRow * BitUtil.BITS_PER_WORD, vector, j * width, width);
+		}
+		return vector;
+	}
+	
+	/**
+	 * Returns a 64-bit hash of the board's size and tiles. Boards with the same size and tiles always have the same
+	 * hash. The hash is kept up to date as the tiles change, so this doesn't look at the tiles unless they were 
+	 * changed by {@link #pressAll(long[])}.
+	 * @return 64-bit hash of the board
+	 */
+	public long longHash() {
+		return currentHash() ^ zobristKey(-1 - (width * 31 + height));
+	}
+	
+	/**
+	 * Returns a hash of the board's size and tiles. Since the hash changes with the tiles, a board shouldn't be 
+	 * changed while it's a key in a map or set.
+	 * @return hash of the board
+	 */
+	@Override
+	public int hashCode() {
+		long longHash = longHash();
+		return (int) (longHash ^ (longHash >>> 32));
+	}
+	
+	/**
+	 * Returns true if the given object is a board of the same size and topology with the same tiles. The tiles are 
+	 * only compared
+	 * when the hashes of the boards match.
+	 * @param obj object to compare to
+	 * @return true if the boards are the same, otherwise false
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof GameBoard)) {
+			return false;
+		}
+		GameBoard other = (GameBoard) obj;
+		return width == other.width && height == other.height && currentHash() == other.currentHash() 
+				&& topology.equals(other.topology) && Arrays.equals(tiles, other.tiles);
+	}
+	
 	/**
 	 * Returns a String representation of the board. WHITE tiles are converted to a 'W' and BLACK tiles are converted
 	 * to a 'B'. Each row is separated by a newline character.
@@ -188,7 +460,7 @@ public class GameBoard {
 	@Override
 	public String toString() {
 		log.trace("toString()");
-		StringBuilder str = new StringBuilder((getWidth() + 1) * getHeight());   // (n + 1) x m String, extra 1 is for \n
+		StringBuilder str = new StringBuilder((width + 1) * height);   // (n + 1) x m String, extra 1 is for \n
 		String[] rows = saveBoard();
 		for (String row : rows) {
 			str.append(row + "\n");
@@ -209,28 +481,85 @@ public class GameBoard {
 	 * @return true if the index is inside the board, otherwise returns false
 	 */
 	private boolean inBounds(int x, int y) {
-		if (log.isTraceEnabled()) {
-			log.trace("inBounds(" + x + ", " + y + ")");
+		return (x >= 0 && x < width && y >= 0 && y < height);
+	}
+	
+	/**
+	 * Returns true if the tile at the given index (x, y) is WHITE. The index must be inside the board.
+	 * @param x x coordinate to check
+	 * @param y y coordinate to check
+	 * @return true if the tile is WHITE, false if it's BLACK
+	 */
+	private boolean isWhite(int x, int y) {
+		return (tiles[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0L;
+	}
+	
+	/**
+	 * Flips the tiles under the mask in the given word of the board and updates the count of WHITE tiles and the 
+	 * hash.
+	 * @param index index of the word
+	 * @param mask tiles to flip
+	 */
+	private void flip(int index, long mask) {
+		long word = tiles[index];
+		whiteTiles += Long.bitCount(mask) - 2 * Long.bitCount(word & mask);
+		tiles[index] = word ^ mask;
+		if (hashValid) {
+			for (long bits = mask; bits != 0L; bits &= bits - 1) {
+				hash ^= zobristKey((index << 6) | Long.numberOfTrailingZeros(bits));
+			}
 		}
-		return (x >= 0 && x < getWidth() && y >= 0 && y < getHeight());
 	}
 	
 	/**
-	 * Sets the tile at the given index (x, y) to the opposite color (ie WHITE -> BLACK or BLACK -> WHITE).
-	 * @param x x coordinate to change the tile
-	 * @param y y coordinate to change the tile
+	 * Returns the Zobrist hash of the tiles, recomputing it first if a bulk change left it out of date.
+	 * @return Zobrist hash of the tiles
 	 */
-	private void swapTile(int x, int y) {
-		if (log.isTraceEnabled()) {
-			log.trace("swapTile(" + x + ", " + y + ")");
+	private long currentHash() {
+		if (!hashValid) {
+			recountTiles();
 		}
-		
-		TileColor tile = getTileAt(x, y);
-		if (tile == TileColor.BLACK) {
-			setTileAt(x, y, TileColor.WHITE);
-		} else if (tile == TileColor.WHITE) {
-			setTileAt(x, y, TileColor.BLACK);
-		} // else tile is INVALID, so do nothing
+		return hash;
+	}
+	
+	/**
+	 * Returns the Zobrist key of the given bit of the tiles. Rather than storing a table of random keys per tile, 
+	 * the key is the bit's position run through the SplitMix64 finalizer, which is just as well distributed and 
+	 * costs no memory on huge boards.
+	 * @param position position of the bit in the tiles, (word index * 64 + bit)
+	 * @return key of the bit
+	 */
+	private static long zobristKey(int position) {
+		long z = (position + 1L) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Returns the cached toggle masks of the topology for a width x height board, or null for {@link Topology#PLUS},
+	 * which doesn't need them.
+	 * @param topology topology of the board
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return toggle masks, or null for the plus topology
+	 */
+	private static ToggleMasks masksFor(Topology topology, int width, int height) {
+		if (topology == null) {
+			log.error("Topology cannot be null.");
+			throw new IllegalArgumentException("Topology cannot be null.");
+		}
+		return (topology == Topology.PLUS || width <= 0 || height <= 0) ? null : topology.getMasks(width, height);
+	}
+	
+	/**
+	 * Returns the mask of the bits in the last word of a row that are inside a board of the given width.
+	 * @param width width of the board
+	 * @return mask of the valid bits in the last word of a row
+	 */
+	private static long lastWordMaskForWidth(int width) {
+		int remainder = width % BitUtil.BITS_PER_WORD;
+		return (remainder == 0) ? -1L : BitUtil.lowMask(remainder);
 	}
 	
 	/**
@@ -261,15 +590,38 @@ public class GameBoard {
 	}
 	
 	/**
-	 * Creates a new board that is all WHITE tiles.
+	 * Creates a new board that is all WHITE tiles, except for blocked tiles.
 	 */
 	private void createEmptyBoard() {
 		log.trace("createEmptyBoard()");
-		for (int j = 0; j < getHeight(); j++) {
-			for (int i = 0; i < getWidth(); i++) {
-				board[i][j] = TileColor.WHITE;
+		for (int j = 0; j < height; j++) {
+			int rowStart = j * wordsPerRow;
+			for (int w = 0; w < wordsPerRow - 1; w++) {
+				tiles[rowStart + w] = -1L;
+			}
+			tiles[rowStart + wordsPerRow - 1] = lastWordMask;
+		}
+		if (masks != null && masks.blockedTiles != null) {
+			for (int index = 0; index < tiles.length; index++) {
+				tiles[index] &= ~masks.blockedTiles[index];
+			}
+		}
+		recountTiles();
+	}
+	
+	/**
+	 * Recomputes the count of WHITE tiles and the hash from the tiles, after they were filled in directly.
+	 */
+	private void recountTiles() {
+		whiteTiles = 0;
+		hash = 0L;
+		for (int index = 0; index < tiles.length; index++) {
+			whiteTiles += Long.bitCount(tiles[index]);
+			for (long bits = tiles[index]; bits != 0L; bits &= bits - 1) {
+				hash ^= zobristKey((index << 6) | Long.numberOfTrailingZeros(bits));
 			}
 		}
+		hashValid = true;
 	}
 	
 	/**
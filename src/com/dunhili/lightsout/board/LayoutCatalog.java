@@ -0,0 +1,323 @@
+package com.dunhili.lightsout.board;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.utils.BitUtil;
+
+/**
+ * A shared catalog of level layouts that stores each distinct layout only once, bit-packed at one bit per tile, and
+ * hands out an int id for it. Layouts are immutable, so one catalog can be shared by every player in the JVM, with
+ * each player's scores held separately in a {@link PlayerProgress}. The catalog is safe to read and intern into from
+ * many threads.
+ * @author dunhili
+ */
+public class LayoutCatalog {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(LayoutCatalog.class);
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	private int size = 0;
+	private int[] widths = new int[16];
+	private int[] heights = new int[16];
+	private int[] idealMoves = new int[16];
+	private int[] hashes = new int[16];
+	
+	/** Layout id's tiles start at word wordOffsets[id] of the pool, packed as (y * width + x), set for WHITE. */
+	private int[] wordOffsets = new int[17];
+	private long[] pool = new long[64];
+	
+	/** Open addressing table of (id + 1), or 0 for an empty slot, keyed by layout hash. */
+	private int[] table = new int[32];
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the id of the given layout, adding it to the catalog if it isn't already there. If the layout is 
+	 * already in the catalog with a different ideal number of moves, the first one is kept.
+	 * @param layout layout to intern, in the same format as {@link GameBoard#GameBoard(String...)}
+	 * @param idealNumberOfMoves minimum number of moves to clear the layout
+	 * @return id of the layout
+	 */
+	public int intern(String[] layout, int idealNumberOfMoves) {
+		int width = layout[0].length();
+		int height = layout.length;
+		long[] bits = pack(layout);
+		int hash = 31 * (31 * width + height) + Arrays.hashCode(bits);
+		
+		lock.readLock().lock();
+		try {
+			int id = find(bits, width, height, hash);
+			if (id >= 0) {
+				return id;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		
+		lock.writeLock().lock();
+		try {
+			int id = find(bits, width, height, hash);
+			if (id >= 0) {
+				if (idealMoves[id] != idealNumberOfMoves) {
+					log.warn("Layout " + id + " was interned with ideal number of moves " + idealMoves[id] 
+							+ " and " + idealNumberOfMoves + ", keeping " + idealMoves[id] + ".");
+				}
+				return id;
+			}
+			return add(bits, width, height, hash, idealNumberOfMoves);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Interns the layout of every level in the list and returns their ids in the same order. The returned array can 
+	 * be shared by every {@link PlayerProgress} for the same list of levels.
+	 * @param levels levels to intern
+	 * @return id of each level's layout
+	 */
+	public int[] internAll(List<Level> levels) {
+		int[] ids = new int[levels.size()];
+		for (int i = 0; i < ids.length; i++) {
+			Level level = levels.get(i);
+			ids[i] = intern(level.getLayout(), level.getIdealNumberOfMoves());
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Interned " + ids.length + " levels, catalog has " + size() + " distinct layouts.");
+		}
+		return ids;
+	}
+	
+	/**
+	 * Returns the number of distinct layouts in the catalog.
+	 * @return number of layouts
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Returns the ideal number of moves to clear the layout with the given id.
+	 * @param id id of the layout
+	 * @return ideal number of moves
+	 */
+	public int getIdealNumberOfMoves(int id) {
+		lock.readLock().lock();
+		try {
+			checkId(id);
+			return idealMoves[id];
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Decodes the layout with the given id back into rows of 'W' and 'B' characters.
+	 * @param id id of the layout
+	 * @return the layout
+	 */
+	public String[] getLayout(int id) {
+		lock.readLock().lock();
+		try {
+			checkId(id);
+			int width = widths[id];
+			int offset = wordOffsets[id] * BitUtil.BITS_PER_WORD;
+			String[] layout = new String[heights[id]];
+			char[] row = new char[width];
+			for (int y = 0; y < layout.length; y++) {
+				for (int x = 0; x < width; x++) {
+					row[x] = BitUtil.get(pool, offset + y * width + x) ? 'W' : 'B';
+				}
+				layout[y] = new String(row);
+			}
+			return layout;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * Creates a new game board set to the layout with the given id.
+	 * @param id id of the layout
+	 * @return the board
+	 */
+	public GameBoard createBoard(int id) {
+		return new GameBoard(getLayout(id));
+	}
+	
+	/**
+	 * Returns an estimate of the memory used by the catalog's layouts and tables.
+	 * @return estimated size in bytes
+	 */
+	public long getSizeInBytes() {
+		lock.readLock().lock();
+		try {
+			return 8L * pool.length + 4L * (widths.length * 4 + wordOffsets.length + table.length) + 7 * 16;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the id of the layout with the given tiles, or -1 if it isn't in the catalog. Must be called while 
+	 * holding the lock.
+	 * @param bits packed tiles of the layout
+	 * @param width width of the layout
+	 * @param height height of the layout
+	 * @param hash hash of the layout
+	 * @return id of the layout, or -1
+	 */
+	private int find(long[] bits, int width, int height, int hash) {
+		int mask = table.length - 1;
+		for (int slot = mix(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+			int id = table[slot] - 1;
+			if (hashes[id] == hash && widths[id] == width && heights[id] == height && equalTiles(id, bits)) {
+				return id;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Adds a new layout to the catalog. Must be called while holding the write lock.
+	 * @param bits packed tiles of the layout
+	 * @param width width of the layout
+	 * @param height height of the layout
+	 * @param hash hash of the layout
+	 * @param idealNumberOfMoves minimum number of moves to clear the layout
+	 * @return id of the new layout
+	 */
+	private int add(long[] bits, int width, int height, int hash, int idealNumberOfMoves) {
+		int id = size;
+		if (id == widths.length) {
+			int capacity = id * 2;
+			widths = Arrays.copyOf(widths, capacity);
+			heights = Arrays.copyOf(heights, capacity);
+			idealMoves = Arrays.copyOf(idealMoves, capacity);
+			hashes = Arrays.copyOf(hashes, capacity);
+			wordOffsets = Arrays.copyOf(wordOffsets, capacity + 1);
+		}
+		int start = wordOffsets[id];
+		if (start + bits.length > pool.length) {
+			pool = Arrays.copyOf(pool, Math.max(pool.length * 2, start + bits.length));
+		}
+		System.arraycopy(bits, 0, pool, start, bits.length);
+		
+		widths[id] = width;
+		heights[id] = height;
+		idealMoves[id] = idealNumberOfMoves;
+		hashes[id] = hash;
+		wordOffsets[id + 1] = start + bits.length;
+		size++;
+		
+		if (size * 2 > table.length) {
+			rehash(table.length * 2);
+		} else {
+			insert(id);
+		}
+		return id;
+	}
+	
+	/**
+	 * Inserts the layout id into the hash table.
+	 * @param id id of the layout
+	 */
+	private void insert(int id) {
+		int mask = table.length - 1;
+		int slot = mix(hashes[id]) & mask;
+		while (table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = id + 1;
+	}
+	
+	/**
+	 * Rebuilds the hash table with the given capacity.
+	 * @param capacity new capacity, a power of two
+	 */
+	private void rehash(int capacity) {
+		table = new int[capacity];
+		for (int id = 0; id < size; id++) {
+			insert(id);
+		}
+	}
+	
+	/**
+	 * Returns true if the layout with the given id has the given tiles.
+	 * @param id id of the layout
+	 * @param bits packed tiles to compare to
+	 * @return true if the tiles are the same
+	 */
+	private boolean equalTiles(int id, long[] bits) {
+		int start = wordOffsets[id];
+		if (wordOffsets[id + 1] - start != bits.length) {
+			return false;
+		}
+		for (int i = 0; i < bits.length; i++) {
+			if (pool[start + i] != bits[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Throws an exception if there is no layout with the given id.
+	 * @param id id of the layout
+	 */
+	private void checkId(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("There is no layout with id " + id + ".");
+		}
+	}
+	
+	/**
+	 * Packs the layout one bit per tile, set for WHITE.
+	 * @param layout layout to pack
+	 * @return the packed tiles
+	 */
+	private static long[] pack(String[] layout) {
+		int width = layout[0].length();
+		long[] bits = new long[BitUtil.wordsFor(width * layout.length)];
+		for (int y = 0; y < layout.length; y++) {
+			String row = layout[y];
+			for (int x = 0; x < width; x++) {
+				char tile = row.charAt(x);
+				if (tile == 'W' || tile == 'w') {
+					BitUtil.set(bits, y * width + x);
+				}
+			}
+		}
+		return bits;
+	}
+	
+	/**
+	 * Spreads the bits of a hash so nearby hashes land in different slots.
+	 * @param hash hash to mix
+	 * @return the mixed hash
+	 */
+	private static int mix(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
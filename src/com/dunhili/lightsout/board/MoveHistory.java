@@ -0,0 +1,203 @@
+package com.dunhili.lightsout.board;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Records the moves made on a {@link GameBoard} so they can be undone, redone and replayed. Since pressing a tile 
+ * twice cancels out, undoing a move is just pressing the same tile again. Each move is stored as a single packed int
+ * (y * width + x) in a growable array, so the history is unlimited and recording a move never allocates an object.
+ * The number of moves the player has made is the number of moves in the history that haven't been undone.
+ * @author dunhili
+ */
+public class MoveHistory {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(MoveHistory.class);
+	
+	private static final int INITIAL_CAPACITY = 64;
+	
+	private final GameBoard board;
+	private final int width;
+	
+	/** Packed moves, [0, position) have been made and [position, end) have been undone and can be redone. */
+	private int[] moves = new int[INITIAL_CAPACITY];
+	private int position = 0;
+	private int end = 0;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates an empty history for the given board. Moves should only be made on the board through the history.
+	 * @param board board to record the moves of
+	 */
+	public MoveHistory(GameBoard board) {
+		this.board = board;
+		this.width = board.getWidth();
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Presses the tile at the given index (x, y) on the board and records the move. Any moves that were undone can 
+	 * no longer be redone. Presses outside the board or on blocked tiles are ignored and not recorded.
+	 * @param x x coordinate of the tile to press
+	 * @param y y coordinate of the tile to press
+	 * @return true if the move was made, false if it was outside the board or blocked
+	 */
+	public boolean press(int x, int y) {
+		if (!board.isPressable(x, y)) {
+			if (x < 0 || x >= width || y < 0 || y >= board.getHeight()) {
+				log.debug("Outside the boundary.");
+			} else {
+				log.debug("Blocked tile.");
+			}
+			return false;
+		}
+		if (position == moves.length) {
+			moves = Arrays.copyOf(moves, moves.length * 2);
+		}
+		board.swapTiles(x, y);
+		moves[position++] = y * width + x;
+		end = position;
+		return true;
+	}
+	
+	/**
+	 * Undoes the last move, if there is one.
+	 * @return true if a move was undone, false if there was nothing to undo
+	 */
+	public boolean undo() {
+		if (position == 0) {
+			return false;
+		}
+		apply(moves[--position]);
+		return true;
+	}
+	
+	/**
+	 * Redoes the last move that was undone, if there is one.
+	 * @return true if a move was redone, false if there was nothing to redo
+	 */
+	public boolean redo() {
+		if (position == end) {
+			return false;
+		}
+		apply(moves[position++]);
+		return true;
+	}
+	
+	/**
+	 * Returns true if there is a move to undo.
+	 * @return true if a move can be undone
+	 */
+	public boolean canUndo() {
+		return position > 0;
+	}
+	
+	/**
+	 * Returns true if there is an undone move to redo.
+	 * @return true if a move can be redone
+	 */
+	public boolean canRedo() {
+		return position < end;
+	}
+	
+	/**
+	 * Returns the number of moves made on the board, not counting moves that were undone.
+	 * @return number of moves
+	 */
+	public int getNumberOfMoves() {
+		return position;
+	}
+	
+	/**
+	 * Returns the x coordinate of the given move.
+	 * @param move index of the move, from 0 to {@link #getNumberOfMoves()} - 1
+	 * @return x coordinate of the tile that was pressed
+	 */
+	public int getMoveX(int move) {
+		checkMove(move);
+		return moves[move] % width;
+	}
+	
+	/**
+	 * Returns the y coordinate of the given move.
+	 * @param move index of the move, from 0 to {@link #getNumberOfMoves()} - 1
+	 * @return y coordinate of the tile that was pressed
+	 */
+	public int getMoveY(int move) {
+		checkMove(move);
+		return moves[move] / width;
+	}
+	
+	/**
+	 * Makes every move in the history, up to the current move, on a new board created from the given layout. If
+	 * the layout is the one the board started from, the new board ends up the same as the board.
+	 * @param startLayout layout to start from, in the same format as {@link GameBoard#GameBoard(String...)}
+	 * @return the new board
+	 */
+	public GameBoard replay(String... startLayout) {
+		log.trace("replay()");
+		GameBoard replayed = new GameBoard(board.getTopology(), startLayout);
+		if (replayed.getWidth() != width || replayed.getHeight() != board.getHeight()) {
+			log.error("Layout must be the same size as the board.");
+			throw new IllegalArgumentException("Layout must be the same size as the board.");
+		}
+		for (int i = 0; i < position; i++) {
+			replayed.swapTiles(moves[i] % width, moves[i] / width);
+		}
+		return replayed;
+	}
+	
+	/**
+	 * Undoes every move and forgets the history.
+	 */
+	public void rollback() {
+		log.trace("rollback()");
+		while (position > 0) {
+			apply(moves[--position]);
+		}
+		clear();
+	}
+	
+	/**
+	 * Forgets every move without changing the board, eg after the board has been reset.
+	 */
+	public void clear() {
+		position = 0;
+		end = 0;
+		if (moves.length > INITIAL_CAPACITY) {
+			moves = new int[INITIAL_CAPACITY];
+		}
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Presses the tile of the given packed move on the board.
+	 * @param move packed move
+	 */
+	private void apply(int move) {
+		board.swapTiles(move % width, move / width);
+	}
+	
+	/**
+	 * Throws an exception if the given move hasn't been made.
+	 * @param move index of the move
+	 */
+	private void checkMove(int move) {
+		if (move < 0 || move >= position) {
+			throw new IndexOutOfBoundsException("Move " + move + " is outside the " + position + " moves made.");
+		}
+	}
+}
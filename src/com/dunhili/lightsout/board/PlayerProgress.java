@@ -0,0 +1,108 @@
+package com.dunhili.lightsout.board;
+
+import org.apache.log4j.Logger;
+
+/**
+ * One player's progress through a list of levels whose layouts live in a shared {@link LayoutCatalog}. The progress 
+ * only holds the player's number of moves for each level, while the layout ids are shared with every other player on
+ * the same list of levels.
+ * @author dunhili
+ */
+public class PlayerProgress {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(PlayerProgress.class);
+	
+	private final LayoutCatalog catalog;
+	
+	/** Layout id of each level, shared with every other player on the same levels. */
+	private final int[] layoutIds;
+	private final int[] numberOfMoves;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates progress for a new player, who hasn't completed any of the levels.
+	 * @param catalog catalog that holds the layouts
+	 * @param layoutIds layout id of each level, as returned by {@link LayoutCatalog#internAll(java.util.List)}
+	 */
+	public PlayerProgress(LayoutCatalog catalog, int[] layoutIds) {
+		this.catalog = catalog;
+		this.layoutIds = layoutIds;
+		this.numberOfMoves = new int[layoutIds.length];
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the number of levels.
+	 * @return number of levels
+	 */
+	public int size() {
+		return layoutIds.length;
+	}
+	
+	/**
+	 * Returns the id of the given level's layout in the catalog.
+	 * @param level index of the level
+	 * @return id of the layout
+	 */
+	public int getLayoutId(int level) {
+		return layoutIds[level];
+	}
+	
+	/**
+	 * Returns the player's current number of moves to clear the given level.
+	 * @param level index of the level
+	 * @return number of moves to clear the level
+	 */
+	public int getNumberOfMoves(int level) {
+		return numberOfMoves[level];
+	}
+	
+	/**
+	 * Sets the player's current number of moves for clearing the given level.
+	 * @param level index of the level
+	 * @param moves current number of moves to clear the level
+	 */
+	public void setNumberOfMoves(int level, int moves) {
+		if (log.isTraceEnabled()) {
+			log.trace("setNumberOfMoves(" + level + ", " + moves + ")");
+		}
+		numberOfMoves[level] = moves;
+	}
+	
+	/**
+	 * Returns true if the player has completed the given level.
+	 * @param level index of the level
+	 * @return true if the level has been completed, otherwise false
+	 */
+	public boolean isCompleted(int level) {
+		return numberOfMoves[level] > 0;
+	}
+	
+	/**
+	 * Returns true if the player has cleared the given level in the minimum number of moves.
+	 * @param level index of the level
+	 * @return true if the player has a perfect score, otherwise false
+	 */
+	public boolean hasPerfectScore(int level) {
+		return isCompleted(level) && numberOfMoves[level] == catalog.getIdealNumberOfMoves(layoutIds[level]);
+	}
+	
+	/**
+	 * Returns the given level as a standalone {@link Level} with the player's score, eg for saving it.
+	 * @param level index of the level
+	 * @return the level
+	 */
+	public Level toLevel(int level) {
+		int id = layoutIds[level];
+		return new Level(catalog.getLayout(id), catalog.getIdealNumberOfMoves(id), numberOfMoves[level]);
+	}
+}
@@ -0,0 +1,260 @@
+package com.dunhili.lightsout.board;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.dunhili.lightsout.solver.CacheEntry;
+import com.dunhili.lightsout.utils.BitUtil;
+
+/**
+ * The tiles toggled by pressing each tile of a width x height board under some {@link Topology}. Each press is
+ * stored as (word, mask) pairs in the row-packed layout of {@link GameBoard}, so a press flips a few words without
+ * any bounds checks. The words are relative to the row of the pressed tile, which makes the presses of most rows the
+ * same, so each distinct press pattern is stored once and every tile only keeps the id of its pattern. The masks of a
+ * board cost about 4 bytes per tile however many tiles a press toggles. Built by {@link Topology#getMasks(int, int)}.
+ * @author dunhili
+ */
+public class ToggleMasks implements CacheEntry {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private final int width;
+	private final int height;
+	private final int wordsPerRow;
+	
+	/** Press pattern of each tile, indexed by (y * width + x). */
+	final int[] patternOf;
+	
+	/**
+	 * Words flipped by press pattern p are (y * wordsPerRow + wordOffset[i]) for i from patternStart[p] up to 
+	 * patternStart[p + 1], where y is the row of the pressed tile.
+	 */
+	final int[] patternStart;
+	final int[] wordOffset;
+	final long[] wordMask;
+	
+	/** Blocked tiles in the row-packed layout of the board, or null if no tile is blocked. */
+	final long[] blockedTiles;
+	
+	private final int maxToggles;
+	private final long sizeInBytes;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Builds the toggle masks of every tile of a width x height board.
+	 * @param topology topology that decides which tiles are toggled
+	 * @param width width of the board
+	 * @param height height of the board
+	 */
+	ToggleMasks(Topology topology, int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.wordsPerRow = BitUtil.wordsFor(width);
+		int numberOfCells = width * height;
+		
+		this.patternOf = new int[numberOfCells];
+		Map<Pattern, Integer> patternIds = new HashMap<Pattern, Integer>();
+		int[] starts = new int[16];
+		int[] offsets = new int[64];
+		long[] masks = new long[64];
+		int patternCount = 0;
+		int entryCount = 0;
+		int max = 0;
+		long[] blocked = null;
+		long[] entries = new long[16];
+		for (int y = 0; y < height; y++) {
+			int rowStart = y * wordsPerRow;
+			for (int x = 0; x < width; x++) {
+				int cell = y * width + x;
+				int[] toggled = distinct(topology.getToggledCells(width, height, x, y));
+				max = Math.max(max, toggled.length);
+				if (topology.isBlocked(width, height, x, y)) {
+					if (blocked == null) {
+						blocked = new long[wordsPerRow * height];
+					}
+					blocked[rowStart + (x >>> 6)] |= 1L << x;
+				}
+				
+				// (offset, mask) pairs, toggled tiles are sorted so tiles in the same word are next to each other
+				if (entries.length < 2 * toggled.length) {
+					entries = new long[2 * toggled.length];
+				}
+				int length = 0;
+				for (int t : toggled) {
+					long offset = (t / width) * wordsPerRow + ((t % width) >>> 6) - rowStart;
+					long bit = 1L << (t % width);
+					if (length > 0 && entries[length - 2] == offset) {
+						entries[length - 1] |= bit;
+					} else {
+						entries[length++] = offset;
+						entries[length++] = bit;
+					}
+				}
+				
+				Pattern pattern = new Pattern(Arrays.copyOf(entries, length));
+				Integer id = patternIds.get(pattern);
+				if (id == null) {
+					id = patternCount;
+					patternIds.put(pattern, id);
+					if (patternCount + 1 >= starts.length) {
+						starts = Arrays.copyOf(starts, starts.length * 2);
+					}
+					if (entryCount + length / 2 > offsets.length) {
+						offsets = Arrays.copyOf(offsets, Math.max(offsets.length * 2, entryCount + length / 2));
+						masks = Arrays.copyOf(masks, offsets.length);
+					}
+					starts[patternCount++] = entryCount;
+					for (int i = 0; i < length; i += 2) {
+						offsets[entryCount] = (int) entries[i];
+						masks[entryCount++] = entries[i + 1];
+					}
+				}
+				patternOf[cell] = id;
+			}
+		}
+		starts[patternCount] = entryCount;
+		
+		this.patternStart = Arrays.copyOf(starts, patternCount + 1);
+		this.wordOffset = Arrays.copyOf(offsets, entryCount);
+		this.wordMask = Arrays.copyOf(masks, entryCount);
+		this.blockedTiles = blocked;
+		this.maxToggles = max;
+		this.sizeInBytes = 5 * 16 + 4L * (patternOf.length + patternStart.length + wordOffset.length) 
+				+ 8L * (wordMask.length + (blocked == null ? 0 : blocked.length));
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the width of the boards these masks are for.
+	 * @return board width
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Returns the height of the boards these masks are for.
+	 * @return board height
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns the tiles toggled by pressing the given tile, as sorted indices (y * width + x). A blocked tile
+	 * doesn't toggle anything.
+	 * @param cell index (y * width + x) of the pressed tile
+	 * @return indices of the toggled tiles
+	 */
+	public int[] getToggledCells(int cell) {
+		int pattern = patternOf[cell];
+		int rowStart = (cell / width) * wordsPerRow;
+		int count = 0;
+		for (int i = patternStart[pattern]; i < patternStart[pattern + 1]; i++) {
+			count += Long.bitCount(wordMask[i]);
+		}
+		
+		int[] cells = new int[count];
+		count = 0;
+		for (int i = patternStart[pattern]; i < patternStart[pattern + 1]; i++) {
+			int index = rowStart + wordOffset[i];
+			int first = (index / wordsPerRow) * width + ((index % wordsPerRow) << 6);
+			for (long bits = wordMask[i]; bits != 0L; bits &= bits - 1) {
+				cells[count++] = first + Long.numberOfTrailingZeros(bits);
+			}
+		}
+		// a wrapping topology can toggle rows above the pressed tile after the ones below it
+		Arrays.sort(cells);
+		return cells;
+	}
+	
+	/**
+	 * Returns the largest number of tiles toggled by a single press.
+	 * @return most tiles toggled by one press
+	 */
+	public int getMaxToggles() {
+		return maxToggles;
+	}
+	
+	/**
+	 * Returns the number of distinct press patterns the masks are stored as.
+	 * @return number of press patterns
+	 */
+	public int getNumberOfPatterns() {
+		return patternStart.length - 1;
+	}
+	
+	@Override
+	public long getSizeInBytes() {
+		return sizeInBytes;
+	}
+	
+	/**
+	 * Returns true if the given tile is blocked.
+	 * @param cell index (y * width + x) of the tile
+	 * @return true if the tile is blocked, otherwise false
+	 */
+	public boolean isBlocked(int cell) {
+		if (blockedTiles == null) {
+			return false;
+		}
+		int x = cell % width;
+		return (blockedTiles[(cell / width) * wordsPerRow + (x >>> 6)] & (1L << x)) != 0L;
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the given tiles sorted with duplicates removed.
+	 * @param toggled tiles toggled by a press
+	 * @return sorted distinct tiles
+	 */
+	private static int[] distinct(int[] toggled) {
+		int[] sorted = toggled.clone();
+		Arrays.sort(sorted);
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (count == 0 || sorted[count - 1] != sorted[i]) {
+				sorted[count++] = sorted[i];
+			}
+		}
+		return Arrays.copyOf(sorted, count);
+	}
+	
+	/**
+	 * The (word offset, mask) pairs of a press, compared by value so tiles with the same press share one pattern.
+	 */
+	private static final class Pattern {
+		private final long[] entries;
+		private final int hash;
+		
+		/**
+		 * Creates the pattern of the given (word offset, mask) pairs.
+		 * @param entries word offset and mask of every flipped word, one after another
+		 */
+		Pattern(long[] entries) {
+			this.entries = entries;
+			this.hash = Arrays.hashCode(entries);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Pattern && Arrays.equals(entries, ((Pattern) obj).entries);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
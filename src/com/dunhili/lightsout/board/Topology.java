@@ -0,0 +1,236 @@
+package com.dunhili.lightsout.board;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.solver.DimensionCache;
+
+/**
+ * Decides which tiles are toggled when a tile of the board is pressed. The toggle masks for every tile of a board
+ * shape are built the first time a board of that shape asks for them (see {@link #getMasks(int, int)}), and are
+ * shared by every board and solver of that shape, so a press only applies a cached mask. The masks of every topology
+ * share one memory budget, and the least recently used ones are evicted once it's full.
+ * @author dunhili
+ */
+public abstract class Topology {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(Topology.class);
+	
+	/** Default memory budget of the toggle mask cache, 64 MB. */
+	public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+	
+	/** Toggle masks keyed by topology and board shape, all within one budget. */
+	private static final DimensionCache<ToggleMasks> masks = new DimensionCache<ToggleMasks>(DEFAULT_CACHE_BYTES,
+			new DimensionCache.VariantLoader<ToggleMasks>() {
+				@Override
+				public ToggleMasks load(Object variant, int width, int height) {
+					if (log.isDebugEnabled()) {
+						log.debug("Building " + variant + " toggle masks for " + width + "x" + height + ".");
+					}
+					return new ToggleMasks((Topology) variant, width, height);
+				}
+			});
+	
+	/** Pressing a tile toggles itself and the tiles directly above, below, left and right of it. */
+	public static final Topology PLUS = new OffsetTopology("plus", false,
+			new int[] { 0, 0, -1, 0, 1, 0, 0, -1, 0, 1 });
+	
+	/** Same as {@link #PLUS}, but the edges of the board wrap around to the opposite edge. */
+	public static final Topology TORUS = new OffsetTopology("torus", true,
+			new int[] { 0, 0, -1, 0, 1, 0, 0, -1, 0, 1 });
+	
+	/** Pressing a tile toggles itself and all 8 tiles around it, including the diagonals. */
+	public static final Topology EIGHT_NEIGHBOR = new OffsetTopology("eight-neighbor", false,
+			new int[] { 0, 0, -1, -1, 0, -1, 1, -1, -1, 0, 1, 0, -1, 1, 0, 1, 1, 1 });
+	
+	private final String name;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a topology with the given name.
+	 * @param name name of the topology, used in log messages and {@link #toString()}
+	 */
+	protected Topology(String name) {
+		this.name = name;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the tiles toggled by pressing tile (x, y) of a width x height board, as indices (y * width + x). A tile
+	 * listed more than once is only toggled once.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @param x x coordinate of the pressed tile
+	 * @param y y coordinate of the pressed tile
+	 * @return indices of the toggled tiles
+	 */
+	public abstract int[] getToggledCells(int width, int height, int x, int y);
+	
+	/**
+	 * Returns true if tile (x, y) of a width x height board is blocked. A blocked tile is always BLACK, can't be
+	 * pressed and is never toggled by its neighbours. No tile is blocked by default.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @param x x coordinate of the tile
+	 * @param y y coordinate of the tile
+	 * @return true if the tile is blocked, otherwise false
+	 */
+	public boolean isBlocked(int width, int height, int x, int y) {
+		return false;
+	}
+	
+	/**
+	 * Returns a topology that toggles the same tiles as this one but with the given tiles blocked. Tiles outside a
+	 * board are ignored for that board.
+	 * @param xyPairs x and y coordinates of the blocked tiles, one pair after another
+	 * @return the topology with blocked tiles
+	 */
+	public Topology withBlockedCells(int... xyPairs) {
+		if (xyPairs.length % 2 != 0) {
+			log.error("Blocked cells must be given as x, y pairs.");
+			throw new IllegalArgumentException("Blocked cells must be given as x, y pairs.");
+		}
+		return new BlockedTopology(this, xyPairs);
+	}
+	
+	/**
+	 * Returns the toggle masks of every tile of a width x height board, building them if they aren't cached. Equal
+	 * topologies share their masks.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return toggle masks for the board shape
+	 */
+	public ToggleMasks getMasks(int width, int height) {
+		return masks.get(this, width, height);
+	}
+	
+	/**
+	 * Returns the cache of toggle masks of every topology, to change its memory budget or read its counters.
+	 * @return the toggle mask cache
+	 */
+	public static DimensionCache<ToggleMasks> getMaskCache() {
+		return masks;
+	}
+	
+	/**
+	 * Returns the name of the topology.
+	 * @return name of the topology
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+	
+	/**
+	 * A topology where pressing a tile toggles the tiles at fixed (dx, dy) offsets from it, either clipped at the
+	 * edges of the board or wrapped around to the opposite edge.
+	 */
+	private static class OffsetTopology extends Topology {
+		private final boolean wrap;
+		
+		/** dx and dy of every toggled tile, one pair after another. */
+		private final int[] offsets;
+		
+		/**
+		 * Creates a topology that toggles the tiles at the given offsets.
+		 * @param name name of the topology
+		 * @param wrap true if the edges wrap around, false if they clip
+		 * @param offsets dx and dy of every toggled tile, one pair after another
+		 */
+		OffsetTopology(String name, boolean wrap, int[] offsets) {
+			super(name);
+			this.wrap = wrap;
+			this.offsets = offsets;
+		}
+		
+		@Override
+		public int[] getToggledCells(int width, int height, int x, int y) {
+			int[] cells = new int[offsets.length / 2];
+			int count = 0;
+			for (int i = 0; i < offsets.length; i += 2) {
+				int nx = x + offsets[i];
+				int ny = y + offsets[i + 1];
+				if (wrap) {
+					nx = Math.floorMod(nx, width);
+					ny = Math.floorMod(ny, height);
+				} else if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+					continue;
+				}
+				cells[count++] = ny * width + nx;
+			}
+			return Arrays.copyOf(cells, count);
+		}
+	}
+	
+	/**
+	 * Another topology with some of its tiles blocked.
+	 */
+	private static class BlockedTopology extends Topology {
+		private final Topology base;
+		
+		/** x and y of every blocked tile, one pair after another. */
+		private final int[] blocked;
+		
+		/**
+		 * Creates a topology that blocks the given tiles of the base topology.
+		 * @param base topology that decides which tiles are toggled
+		 * @param blocked x and y of every blocked tile, one pair after another
+		 */
+		BlockedTopology(Topology base, int[] blocked) {
+			super(base + " blocked " + Arrays.toString(blocked));
+			this.base = base;
+			this.blocked = blocked.clone();
+		}
+		
+		@Override
+		public int[] getToggledCells(int width, int height, int x, int y) {
+			if (isBlocked(width, height, x, y)) {
+				return new int[0];
+			}
+			int[] cells = base.getToggledCells(width, height, x, y);
+			int count = 0;
+			for (int cell : cells) {
+				if (!isBlocked(width, height, cell % width, cell / width)) {
+					cells[count++] = cell;
+				}
+			}
+			return Arrays.copyOf(cells, count);
+		}
+		
+		@Override
+		public boolean isBlocked(int width, int height, int x, int y) {
+			for (int i = 0; i < blocked.length; i += 2) {
+				if (blocked[i] == x && blocked[i + 1] == y) {
+					return true;
+				}
+			}
+			return base.isBlocked(width, height, x, y);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (!(obj instanceof BlockedTopology)) {
+				return false;
+			}
+			BlockedTopology other = (BlockedTopology) obj;
+			return base.equals(other.base) && Arrays.equals(blocked, other.blocked);
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * base.hashCode() + Arrays.hashCode(blocked);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.dunhili.lightsout.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * An immutable copy of a {@link LatencyHistogram} at one moment. Latencies are in nanoseconds.
+ * @author dunhili
+ */
+public class HistogramSnapshot {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private final long count;
+	private final long mean;
+	private final long max;
+	private final long p50;
+	private final long p90;
+	private final long p99;
+	private final long p999;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a snapshot with the given values.
+	 * @param count number of values recorded
+	 * @param mean mean of the values
+	 * @param max largest value
+	 * @param p50 median value
+	 * @param p90 90th percentile
+	 * @param p99 99th percentile
+	 * @param p999 99.9th percentile
+	 */
+	@ConstructorProperties({"count", "mean", "max", "p50", "p90", "p99", "p999"})
+	public HistogramSnapshot(long count, long mean, long max, long p50, long p90, long p99, long p999) {
+		this.count = count;
+		this.mean = mean;
+		this.max = max;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.p999 = p999;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the number of values recorded.
+	 * @return number of values
+	 */
+	public long getCount() {
+		return count;
+	}
+	
+	/**
+	 * Returns the mean of the values recorded.
+	 * @return mean value
+	 */
+	public long getMean() {
+		return mean;
+	}
+	
+	/**
+	 * Returns the largest value recorded.
+	 * @return largest value
+	 */
+	public long getMax() {
+		return max;
+	}
+	
+	/**
+	 * Returns the median value.
+	 * @return 50th percentile
+	 */
+	public long getP50() {
+		return p50;
+	}
+	
+	/**
+	 * Returns the 90th percentile.
+	 * @return 90th percentile
+	 */
+	public long getP90() {
+		return p90;
+	}
+	
+	/**
+	 * Returns the 99th percentile.
+	 * @return 99th percentile
+	 */
+	public long getP99() {
+		return p99;
+	}
+	
+	/**
+	 * Returns the 99.9th percentile.
+	 * @return 99.9th percentile
+	 */
+	public long getP999() {
+		return p999;
+	}
+	
+	@Override
+	public String toString() {
+		return "count=" + count + " mean=" + mean + " p50=" + p50 + " p90=" + p90 + " p99=" + p99 
+				+ " p99.9=" + p999 + " max=" + max;
+	}
+}
@@ -0,0 +1,155 @@
+package com.dunhili.lightsout.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values, usually latencies in nanoseconds. Like an HDR histogram, values are
+ * counted in buckets that are linear within each power of two, so any recorded value can be read back within about
+ * 3% (1 / {@value #SUB_BUCKETS}) of its true value while the histogram stays a fixed size. Recording never blocks 
+ * and is safe from any number of threads.
+ * @author dunhili
+ */
+public class LatencyHistogram {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	/** Number of linear buckets within each power of two. */
+	public static final int SUB_BUCKETS = 32;
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Records a value in the histogram. Negative values are recorded as zero.
+	 * @param value value to record
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucketFor(value));
+		count.increment();
+		sum.add(value);
+		
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+	
+	/**
+	 * Records the time elapsed since the given start time from {@link System#nanoTime()}.
+	 * @param startNanos start time in nanoseconds
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+	
+	/**
+	 * Returns the number of values recorded.
+	 * @return number of values
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+	
+	/**
+	 * Returns a copy of the histogram at this moment. Values recorded while the snapshot is being taken may or may 
+	 * not be included.
+	 * @return snapshot of the histogram
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] bucketCounts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			bucketCounts[i] = counts.get(i);
+			total += bucketCounts[i];
+		}
+		
+		long mean = (total == 0) ? 0 : sum.sum() / total;
+		return new HistogramSnapshot(total, mean, max.get(), 
+				valueAtPercentile(bucketCounts, total, 50.0), 
+				valueAtPercentile(bucketCounts, total, 90.0), 
+				valueAtPercentile(bucketCounts, total, 99.0), 
+				valueAtPercentile(bucketCounts, total, 99.9));
+	}
+	
+	/**
+	 * Clears every value recorded so far.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the bucket that the given value is counted in. Values below {@value #SUB_BUCKETS} get a bucket each, 
+	 * larger values share a bucket with the values that have the same top {@value #SUB_BUCKET_BITS} bits after the
+	 * leading one.
+	 * @param value value to find the bucket for
+	 * @return index of the bucket
+	 */
+	static int bucketFor(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+	
+	/**
+	 * Returns the largest value counted in the given bucket.
+	 * @param bucket index of the bucket
+	 * @return highest value in the bucket
+	 */
+	static long highestValueIn(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+		return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+	
+	/**
+	 * Returns the value at the given percentile of the bucket counts.
+	 * @param bucketCounts count of each bucket
+	 * @param total sum of the bucket counts
+	 * @param percentile percentile to find, between 0 and 100
+	 * @return value at the percentile, or 0 if nothing was recorded
+	 */
+	private static long valueAtPercentile(long[] bucketCounts, long total, double percentile) {
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+		long seen = 0;
+		for (int i = 0; i < bucketCounts.length; i++) {
+			seen += bucketCounts[i];
+			if (seen >= rank) {
+				return highestValueIn(i);
+			}
+		}
+		return highestValueIn(bucketCounts.length - 1);
+	}
+}
@@ -0,0 +1,168 @@
+package com.dunhili.lightsout.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Process-wide gameplay metrics. Every counter is a {@link LongAdder} and every latency is a 
+ * {@link LatencyHistogram}, so they can be updated from the hot path and from any thread without locking or building
+ * log strings. The metrics can be read in code with {@link #snapshot()} or over JMX once {@link #registerMBean()} 
+ * has been called.
+ * @author dunhili
+ */
+public class Metrics {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(Metrics.class);
+	
+	/** Name the metrics are registered under with the platform MBean server. */
+	public static final String OBJECT_NAME = "com.dunhili.lightsout:type=Metrics";
+	
+	public static final LongAdder MOVES_APPLIED = new LongAdder();
+	public static final LongAdder WIN_CHECKS = new LongAdder();
+	public static final LongAdder SOLVES = new LongAdder();
+	public static final LongAdder LEVELS_LOADED = new LongAdder();
+	public static final LongAdder LEVELS_SAVED = new LongAdder();
+	public static final LongAdder BYTES_READ = new LongAdder();
+	public static final LongAdder BYTES_WRITTEN = new LongAdder();
+	
+	public static final LatencyHistogram SOLVE_LATENCY = new LatencyHistogram();
+	public static final LatencyHistogram LOAD_LATENCY = new LatencyHistogram();
+	public static final LatencyHistogram SAVE_LATENCY = new LatencyHistogram();
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/** Can't be instantiated. */
+	private Metrics() {}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns a copy of every metric at this moment.
+	 * @return snapshot of the metrics
+	 */
+	public static MetricsSnapshot snapshot() {
+		return new MetricsSnapshot(MOVES_APPLIED.sum(), WIN_CHECKS.sum(), SOLVES.sum(), LEVELS_LOADED.sum(), 
+				LEVELS_SAVED.sum(), BYTES_READ.sum(), BYTES_WRITTEN.sum(), SOLVE_LATENCY.snapshot(), 
+				LOAD_LATENCY.snapshot(), SAVE_LATENCY.snapshot());
+	}
+	
+	/**
+	 * Clears every metric.
+	 */
+	public static void reset() {
+		log.trace("reset()");
+		MOVES_APPLIED.reset();
+		WIN_CHECKS.reset();
+		SOLVES.reset();
+		LEVELS_LOADED.reset();
+		LEVELS_SAVED.reset();
+		BYTES_READ.reset();
+		BYTES_WRITTEN.reset();
+		SOLVE_LATENCY.reset();
+		LOAD_LATENCY.reset();
+		SAVE_LATENCY.reset();
+	}
+	
+	/**
+	 * Registers the metrics with the platform MBean server under {@value #OBJECT_NAME}. Does nothing if they're 
+	 * already registered.
+	 * @return the name the metrics are registered under
+	 */
+	public static ObjectName registerMBean() {
+		log.trace("registerMBean()");
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(new MetricsBean(), name);
+				log.info("Registered metrics MBean " + OBJECT_NAME + ".");
+			}
+			return name;
+		} catch (InstanceAlreadyExistsException e) {
+			return null;
+		} catch (JMException e) {
+			log.error("Error while registering metrics MBean : ", e);
+			throw new IllegalStateException("Could not register metrics MBean.", e);
+		}
+	}
+	
+	/**
+	 * The MBean that exposes the metrics over JMX.
+	 */
+	private static class MetricsBean implements MetricsMXBean {
+		
+		@Override
+		public long getMovesApplied() {
+			return MOVES_APPLIED.sum();
+		}
+		
+		@Override
+		public long getWinChecks() {
+			return WIN_CHECKS.sum();
+		}
+		
+		@Override
+		public long getSolves() {
+			return SOLVES.sum();
+		}
+		
+		@Override
+		public long getLevelsLoaded() {
+			return LEVELS_LOADED.sum();
+		}
+		
+		@Override
+		public long getLevelsSaved() {
+			return LEVELS_SAVED.sum();
+		}
+		
+		@Override
+		public long getBytesRead() {
+			return BYTES_READ.sum();
+		}
+		
+		@Override
+		public long getBytesWritten() {
+			return BYTES_WRITTEN.sum();
+		}
+		
+		@Override
+		public HistogramSnapshot getSolveLatency() {
+			return SOLVE_LATENCY.snapshot();
+		}
+		
+		@Override
+		public HistogramSnapshot getLoadLatency() {
+			return LOAD_LATENCY.snapshot();
+		}
+		
+		@Override
+		public HistogramSnapshot getSaveLatency() {
+			return SAVE_LATENCY.snapshot();
+		}
+		
+		@Override
+		public MetricsSnapshot getSnapshot() {
+			return snapshot();
+		}
+		
+		@Override
+		public void reset() {
+			Metrics.reset();
+		}
+	}
+}
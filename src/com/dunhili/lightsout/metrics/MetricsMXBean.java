@@ -0,0 +1,80 @@
+package com.dunhili.lightsout.metrics;
+
+/**
+ * Management interface for the game's {@link Metrics}, registered with the platform MBean server under 
+ * {@value Metrics#OBJECT_NAME}. Latencies are in nanoseconds.
+ * @author dunhili
+ */
+public interface MetricsMXBean {
+	
+	/**
+	 * Returns the number of moves applied to game boards.
+	 * @return number of moves
+	 */
+	long getMovesApplied();
+	
+	/**
+	 * Returns the number of times a game board was checked for a win.
+	 * @return number of win checks
+	 */
+	long getWinChecks();
+	
+	/**
+	 * Returns the number of boards solved.
+	 * @return number of solves
+	 */
+	long getSolves();
+	
+	/**
+	 * Returns the number of levels loaded.
+	 * @return number of levels loaded
+	 */
+	long getLevelsLoaded();
+	
+	/**
+	 * Returns the number of levels saved.
+	 * @return number of levels saved
+	 */
+	long getLevelsSaved();
+	
+	/**
+	 * Returns the number of bytes of level data read.
+	 * @return number of bytes read
+	 */
+	long getBytesRead();
+	
+	/**
+	 * Returns the number of bytes of level data written.
+	 * @return number of bytes written
+	 */
+	long getBytesWritten();
+	
+	/**
+	 * Returns the latencies of solving a board.
+	 * @return solve latencies
+	 */
+	HistogramSnapshot getSolveLatency();
+	
+	/**
+	 * Returns the latencies of loading a list of levels.
+	 * @return load latencies
+	 */
+	HistogramSnapshot getLoadLatency();
+	
+	/**
+	 * Returns the latencies of saving a list of levels.
+	 * @return save latencies
+	 */
+	HistogramSnapshot getSaveLatency();
+	
+	/**
+	 * Returns every metric at once.
+	 * @return snapshot of the metrics
+	 */
+	MetricsSnapshot getSnapshot();
+	
+	/**
+	 * Clears every metric.
+	 */
+	void reset();
+}
@@ -0,0 +1,149 @@
+package com.dunhili.lightsout.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * An immutable copy of every {@link Metrics} counter and histogram at one moment. Latencies are in nanoseconds.
+ * @author dunhili
+ */
+public class MetricsSnapshot {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private final long movesApplied;
+	private final long winChecks;
+	private final long solves;
+	private final long levelsLoaded;
+	private final long levelsSaved;
+	private final long bytesRead;
+	private final long bytesWritten;
+	private final HistogramSnapshot solveLatency;
+	private final HistogramSnapshot loadLatency;
+	private final HistogramSnapshot saveLatency;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a snapshot with the given values.
+	 * @param movesApplied number of moves applied
+	 * @param winChecks number of win checks
+	 * @param solves number of boards solved
+	 * @param levelsLoaded number of levels loaded
+	 * @param levelsSaved number of levels saved
+	 * @param bytesRead number of bytes of level data read
+	 * @param bytesWritten number of bytes of level data written
+	 * @param solveLatency latencies of solving a board
+	 * @param loadLatency latencies of loading levels
+	 * @param saveLatency latencies of saving levels
+	 */
+	@ConstructorProperties({"movesApplied", "winChecks", "solves", "levelsLoaded", "levelsSaved", "bytesRead", 
+		"bytesWritten", "solveLatency", "loadLatency", "saveLatency"})
+	public MetricsSnapshot(long movesApplied, long winChecks, long solves, long levelsLoaded, long levelsSaved, 
+			long bytesRead, long bytesWritten, HistogramSnapshot solveLatency, HistogramSnapshot loadLatency, 
+			HistogramSnapshot saveLatency) {
+		this.movesApplied = movesApplied;
+		this.winChecks = winChecks;
+		this.solves = solves;
+		this.levelsLoaded = levelsLoaded;
+		this.levelsSaved = levelsSaved;
+		this.bytesRead = bytesRead;
+		this.bytesWritten = bytesWritten;
+		this.solveLatency = solveLatency;
+		this.loadLatency = loadLatency;
+		this.saveLatency = saveLatency;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the number of moves applied to game boards.
+	 * @return number of moves
+	 */
+	public long getMovesApplied() {
+		return movesApplied;
+	}
+	
+	/**
+	 * Returns the number of times a game board was checked for a win.
+	 * @return number of win checks
+	 */
+	public long getWinChecks() {
+		return winChecks;
+	}
+	
+	/**
+	 * Returns the number of boards solved.
+	 * @return number of solves
+	 */
+	public long getSolves() {
+		return solves;
+	}
+	
+	/**
+	 * Returns the number of levels loaded.
+	 * @return number of levels loaded
+	 */
+	public long getLevelsLoaded() {
+		return levelsLoaded;
+	}
+	
+	/**
+	 * Returns the number of levels saved.
+	 * @return number of levels saved
+	 */
+	public long getLevelsSaved() {
+		return levelsSaved;
+	}
+	
+	/**
+	 * Returns the number of bytes of level data read.
+	 * @return number of bytes read
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+	
+	/**
+	 * Returns the number of bytes of level data written.
+	 * @return number of bytes written
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+	
+	/**
+	 * Returns the latencies of solving a board.
+	 * @return solve latencies
+	 */
+	public HistogramSnapshot getSolveLatency() {
+		return solveLatency;
+	}
+	
+	/**
+	 * Returns the latencies of loading levels.
+	 * @return load latencies
+	 */
+	public HistogramSnapshot getLoadLatency() {
+		return loadLatency;
+	}
+	
+	/**
+	 * Returns the latencies of saving levels.
+	 * @return save latencies
+	 */
+	public HistogramSnapshot getSaveLatency() {
+		return saveLatency;
+	}
+	
+	@Override
+	public String toString() {
+		return "moves=" + movesApplied + " winChecks=" + winChecks + " solves=" + solves + " levelsLoaded=" 
+				+ levelsLoaded + " levelsSaved=" + levelsSaved + " bytesRead=" + bytesRead + " bytesWritten=" 
+				+ bytesWritten + "\nsolve: " + solveLatency + "\nload: " + loadLatency + "\nsave: " + saveLatency;
+	}
+}
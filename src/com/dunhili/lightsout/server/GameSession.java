@@ -0,0 +1,156 @@
+package com.dunhili.lightsout.server;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.MoveHistory;
+
+/**
+ * One game of Lights Out hosted by the {@link SessionEngine}. Every command on a session runs while holding the 
+ * session's lock, so the commands of one game are applied one at a time in order while different games run in
+ * parallel. Sessions are reused for later games once they're closed, so each command checks the id of the game it
+ * was meant for.
+ * @author dunhili
+ */
+class GameSession {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private final GameBoard board;
+	private final MoveHistory history;
+	
+	private int id;
+	private int level;
+	private boolean open;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a session with a board of the given layout.
+	 * @param layout layout of the board
+	 */
+	GameSession(String[] layout) {
+		this.board = new GameBoard(layout);
+		this.history = new MoveHistory(board);
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Starts a new game in this session.
+	 * @param id id of the new game
+	 * @param level index of the level being played
+	 * @param layout layout of the level, the same size as the session's board
+	 */
+	synchronized void open(int id, int level, String[] layout) {
+		board.resetBoard(layout);
+		history.clear();
+		this.id = id;
+		this.level = level;
+		this.open = true;
+	}
+	
+	/**
+	 * Presses the tile at the given index (x, y). Presses outside the board are ignored.
+	 * @param sessionId id of the game the press is for
+	 * @param x x coordinate of the tile
+	 * @param y y coordinate of the tile
+	 * @return state of the session after the press
+	 */
+	synchronized SessionState press(int sessionId, int x, int y) {
+		checkOpen(sessionId);
+		history.press(x, y);
+		return getState();
+	}
+	
+	/**
+	 * Undoes the last move, if there is one.
+	 * @param sessionId id of the game to undo the move in
+	 * @return state of the session after the undo
+	 */
+	synchronized SessionState undo(int sessionId) {
+		checkOpen(sessionId);
+		history.undo();
+		return getState();
+	}
+	
+	/**
+	 * Returns the state of the session.
+	 * @param sessionId id of the game
+	 * @return state of the session
+	 */
+	synchronized SessionState getState(int sessionId) {
+		checkOpen(sessionId);
+		return getState();
+	}
+	
+	/**
+	 * Returns the current layout of the board.
+	 * @param sessionId id of the game
+	 * @return the board's layout
+	 */
+	synchronized String[] getBoard(int sessionId) {
+		checkOpen(sessionId);
+		return board.saveBoard();
+	}
+	
+	/**
+	 * Returns the index of the level being played.
+	 * @param sessionId id of the game
+	 * @return index of the level
+	 */
+	synchronized int getLevel(int sessionId) {
+		checkOpen(sessionId);
+		return level;
+	}
+	
+	/**
+	 * Ends the game, so the session can be reused.
+	 * @param sessionId id of the game to end
+	 */
+	synchronized void close(int sessionId) {
+		checkOpen(sessionId);
+		open = false;
+	}
+	
+	/**
+	 * Returns the width of the session's board.
+	 * @return board width
+	 */
+	int getWidth() {
+		return board.getWidth();
+	}
+	
+	/**
+	 * Returns the height of the session's board.
+	 * @return board height
+	 */
+	int getHeight() {
+		return board.getHeight();
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the state of the session. Must be called while holding the lock.
+	 * @return state of the session
+	 */
+	private SessionState getState() {
+		return new SessionState(id, history.getNumberOfMoves(), board.getNumberOfWhiteTiles());
+	}
+	
+	/**
+	 * Throws an exception if the session isn't playing the game with the given id.
+	 * @param sessionId id of the game
+	 */
+	private void checkOpen(int sessionId) {
+		if (!open || id != sessionId) {
+			throw new IllegalArgumentException("Session " + sessionId + " isn't open.");
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package com.dunhili.lightsout.server;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.LayoutCatalog;
+import com.dunhili.lightsout.board.Level;
+
+/**
+ * Hosts many games of Lights Out at once without a UI. Each game is a session on one of the engine's levels, whose 
+ * layouts are shared through a {@link LayoutCatalog}. Commands on the same session are applied one at a time, while
+ * commands on different sessions run in parallel. Closed sessions are kept in a pool for their board size and reused
+ * by later games, so opening a game usually doesn't allocate a new board.
+ * @author dunhili
+ */
+public class SessionEngine {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(SessionEngine.class);
+	
+	/** Default largest number of closed sessions kept for reuse. */
+	public static final int DEFAULT_MAX_POOLED_SESSIONS = 4096;
+	
+	private final LayoutCatalog catalog;
+	private final int[] layoutIds;
+	private final int maxPooledSessions;
+	
+	private final ConcurrentHashMap<Integer, GameSession> sessions = new ConcurrentHashMap<Integer, GameSession>();
+	
+	/** Closed sessions waiting to be reused, by board size (width << 32 | height). */
+	private final ConcurrentHashMap<Long, Queue<GameSession>> pool = new ConcurrentHashMap<Long, Queue<GameSession>>();
+	private final AtomicInteger pooledSessions = new AtomicInteger();
+	private final AtomicInteger nextId = new AtomicInteger(1);
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates an engine that hosts games on the given levels.
+	 * @param levels levels that can be played
+	 */
+	public SessionEngine(List<Level> levels) {
+		this(new LayoutCatalog(), levels, DEFAULT_MAX_POOLED_SESSIONS);
+	}
+	
+	/**
+	 * Creates an engine that hosts games on the given levels, interning their layouts into the given catalog.
+	 * @param catalog catalog to hold the layouts of the levels
+	 * @param levels levels that can be played
+	 * @param maxPooledSessions largest number of closed sessions to keep for reuse
+	 */
+	public SessionEngine(LayoutCatalog catalog, List<Level> levels, int maxPooledSessions) {
+		this.catalog = catalog;
+		this.layoutIds = catalog.internAll(levels);
+		this.maxPooledSessions = maxPooledSessions;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Starts a new game on the given level.
+	 * @param level index of the level to play
+	 * @return id of the new session
+	 */
+	public int open(int level) {
+		if (level < 0 || level >= layoutIds.length) {
+			throw new IllegalArgumentException("Level " + level + " doesn't exist, there are " + layoutIds.length 
+					+ " levels.");
+		}
+		String[] layout = catalog.getLayout(layoutIds[level]);
+		int width = layout[0].length();
+		int height = layout.length;
+		
+		GameSession session = null;
+		Queue<GameSession> free = pool.get(sizeKey(width, height));
+		if (free != null) {
+			session = free.poll();
+		}
+		if (session != null) {
+			pooledSessions.decrementAndGet();
+		} else {
+			session = new GameSession(layout);
+		}
+		
+		int id = nextId.getAndIncrement();
+		session.open(id, level, layout);
+		sessions.put(id, session);
+		if (log.isDebugEnabled()) {
+			log.debug("Opened session " + id + " on level " + level + ".");
+		}
+		return id;
+	}
+	
+	/**
+	 * Presses the tile at the given index (x, y) in the given session. Presses outside the board are ignored.
+	 * @param sessionId id of the session
+	 * @param x x coordinate of the tile
+	 * @param y y coordinate of the tile
+	 * @return state of the session after the press
+	 */
+	public SessionState press(int sessionId, int x, int y) {
+		return getSession(sessionId).press(sessionId, x, y);
+	}
+	
+	/**
+	 * Undoes the last move in the given session, if there is one.
+	 * @param sessionId id of the session
+	 * @return state of the session after the undo
+	 */
+	public SessionState undo(int sessionId) {
+		return getSession(sessionId).undo(sessionId);
+	}
+	
+	/**
+	 * Returns the state of the given session.
+	 * @param sessionId id of the session
+	 * @return state of the session
+	 */
+	public SessionState getState(int sessionId) {
+		return getSession(sessionId).getState(sessionId);
+	}
+	
+	/**
+	 * Returns the current layout of the given session's board.
+	 * @param sessionId id of the session
+	 * @return the board's layout
+	 */
+	public String[] getBoard(int sessionId) {
+		return getSession(sessionId).getBoard(sessionId);
+	}
+	
+	/**
+	 * Returns the index of the level being played in the given session.
+	 * @param sessionId id of the session
+	 * @return index of the level
+	 */
+	public int getLevel(int sessionId) {
+		return getSession(sessionId).getLevel(sessionId);
+	}
+	
+	/**
+	 * Ends the given session and keeps it for reuse if the pool isn't full.
+	 * @param sessionId id of the session
+	 */
+	public void close(int sessionId) {
+		GameSession session = sessions.remove(sessionId);
+		if (session == null) {
+			throw new IllegalArgumentException("Session " + sessionId + " isn't open.");
+		}
+		session.close(sessionId);
+		if (pooledSessions.incrementAndGet() <= maxPooledSessions) {
+			Long key = sizeKey(session.getWidth(), session.getHeight());
+			Queue<GameSession> free = pool.get(key);
+			if (free == null) {
+				pool.putIfAbsent(key, new ConcurrentLinkedQueue<GameSession>());
+				free = pool.get(key);
+			}
+			free.add(session);
+		} else {
+			pooledSessions.decrementAndGet();
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Closed session " + sessionId + ".");
+		}
+	}
+	
+	/**
+	 * Returns the number of levels that can be played.
+	 * @return number of levels
+	 */
+	public int getNumberOfLevels() {
+		return layoutIds.length;
+	}
+	
+	/**
+	 * Returns the number of open sessions.
+	 * @return number of open sessions
+	 */
+	public int getOpenSessions() {
+		return sessions.size();
+	}
+	
+	/**
+	 * Returns the number of closed sessions waiting to be reused.
+	 * @return number of pooled sessions
+	 */
+	public int getPooledSessions() {
+		return pooledSessions.get();
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the open session with the given id.
+	 * @param sessionId id of the session
+	 * @return the session
+	 */
+	private GameSession getSession(int sessionId) {
+		GameSession session = sessions.get(sessionId);
+		if (session == null) {
+			throw new IllegalArgumentException("Session " + sessionId + " isn't open.");
+		}
+		return session;
+	}
+	
+	/**
+	 * Returns the key of the pool for boards of the given size.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return pool key
+	 */
+	private static Long sizeKey(int width, int height) {
+		return ((long) width << 32) | height;
+	}
+}
@@ -0,0 +1,293 @@
+package com.dunhili.lightsout.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.utils.LevelUtil;
+
+/**
+ * Serves a {@link SessionEngine} over a plain text protocol on a local socket, one command per line:
+ * <pre>
+ * OPEN level            -&gt; OK sessionId
+ * PRESS sessionId x y   -&gt; OK sessionId moves whiteTiles WON|PLAYING
+ * UNDO sessionId        -&gt; OK sessionId moves whiteTiles WON|PLAYING
+ * STATE sessionId       -&gt; OK sessionId moves whiteTiles WON|PLAYING
+ * BOARD sessionId       -&gt; OK row row ...
+ * CLOSE sessionId       -&gt; OK
+ * LEVELS                -&gt; OK numberOfLevels
+ * QUIT                  -&gt; closes the connection
+ * </pre>
+ * Failed commands answer "ERR message". Each connection is handled by its own thread, a virtual thread when the JVM
+ * has them (Java 21+) and otherwise a pooled platform thread. Responses are only flushed once every pipelined command 
+ * the client has sent so far has been answered, so clients that send commands in batches get one write per batch.
+ * @author dunhili
+ */
+public class SessionServer implements Closeable {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(SessionServer.class);
+	
+	private final SessionEngine engine;
+	private final ServerSocket serverSocket;
+	private final ExecutorService connections;
+	private final Set<Socket> clients = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+	private final Thread acceptor;
+	private volatile boolean closed = false;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a server for the engine listening on the given port of the loopback address. Call {@link #start()}
+	 * to start accepting connections.
+	 * @param engine engine to serve
+	 * @param port port to listen on, or 0 for any free port
+	 * @throws IOException if the port can't be bound
+	 */
+	public SessionServer(SessionEngine engine, int port) throws IOException {
+		this.engine = engine;
+		this.serverSocket = new ServerSocket();
+		serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		this.connections = createConnectionExecutor();
+		this.acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				acceptConnections();
+			}
+		}, "session-server-acceptor");
+		acceptor.setDaemon(true);
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Starts accepting connections.
+	 */
+	public void start() {
+		log.info("Session server listening on port " + getPort() + ".");
+		acceptor.start();
+	}
+	
+	/**
+	 * Returns the port the server is listening on.
+	 * @return port number
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+	
+	/**
+	 * Runs one command and returns its response, without the trailing newline.
+	 * @param command command to run
+	 * @return response to the command
+	 */
+	public String handle(String command) {
+		String[] parts = command.trim().split("\\s+");
+		try {
+			String name = parts[0].toUpperCase();
+			if ("PRESS".equals(name)) {
+				checkArguments(parts, 4);
+				return "OK " + engine.press(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), 
+						Integer.parseInt(parts[3]));
+			} else if ("OPEN".equals(name)) {
+				checkArguments(parts, 2);
+				return "OK " + engine.open(Integer.parseInt(parts[1]));
+			} else if ("UNDO".equals(name)) {
+				checkArguments(parts, 2);
+				return "OK " + engine.undo(Integer.parseInt(parts[1]));
+			} else if ("STATE".equals(name)) {
+				checkArguments(parts, 2);
+				return "OK " + engine.getState(Integer.parseInt(parts[1]));
+			} else if ("BOARD".equals(name)) {
+				checkArguments(parts, 2);
+				StringBuilder builder = new StringBuilder("OK");
+				for (String row : engine.getBoard(Integer.parseInt(parts[1]))) {
+					builder.append(' ').append(row);
+				}
+				return builder.toString();
+			} else if ("CLOSE".equals(name)) {
+				checkArguments(parts, 2);
+				engine.close(Integer.parseInt(parts[1]));
+				return "OK";
+			} else if ("LEVELS".equals(name)) {
+				return "OK " + engine.getNumberOfLevels();
+			}
+			return "ERR Unknown command " + parts[0] + ".";
+		} catch (NumberFormatException e) {
+			return "ERR Invalid number " + e.getMessage() + ".";
+		} catch (IllegalArgumentException e) {
+			return "ERR " + e.getMessage();
+		}
+	}
+	
+	/**
+	 * Stops accepting connections and closes every open connection.
+	 */
+	@Override
+	public void close() throws IOException {
+		log.trace("close()");
+		closed = true;
+		serverSocket.close();
+		for (Socket client : clients) {
+			client.close();
+		}
+		connections.shutdownNow();
+		try {
+			connections.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Starts a server for the levels in the level file. The only argument is the port to listen on.
+	 * @param args command line arguments
+	 * @throws IOException if the port can't be bound
+	 */
+	public static void main(String[] args) throws IOException {
+		BasicConfigurator.configure();
+		Logger.getRootLogger().setLevel(Level.INFO);
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : 7070;
+		SessionServer server = new SessionServer(new SessionEngine(LevelUtil.readLevelsFromFile()), port);
+		server.start();
+		try {
+			server.acceptor.join();
+		} catch (InterruptedException e) {
+			server.close();
+		}
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Accepts connections until the server is closed, handing each one to its own thread.
+	 */
+	private void acceptConnections() {
+		while (!closed) {
+			try {
+				final Socket client = serverSocket.accept();
+				client.setTcpNoDelay(true);
+				clients.add(client);
+				connections.execute(new Runnable() {
+					@Override
+					public void run() {
+						serve(client);
+					}
+				});
+			} catch (IOException e) {
+				if (!closed) {
+					log.error("Error while accepting connection : ", e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Answers the commands from one client until it disconnects or sends QUIT.
+	 * @param client client connection
+	 */
+	private void serve(Socket client) {
+		try {
+			BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), 
+					StandardCharsets.US_ASCII));
+			Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), 
+					StandardCharsets.US_ASCII));
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				} else if ("QUIT".equalsIgnoreCase(line.trim())) {
+					break;
+				}
+				out.write(handle(line));
+				out.write('\n');
+				if (!in.ready()) {
+					out.flush();
+				}
+			}
+			out.flush();
+		} catch (SocketException e) {
+			log.debug("Connection closed : " + e.getMessage());
+		} catch (IOException e) {
+			log.error("Error while serving connection : ", e);
+		} finally {
+			clients.remove(client);
+			try {
+				client.close();
+			} catch (IOException e) {
+				log.error("Error while closing connection : ", e);
+			}
+		}
+	}
+	
+	/**
+	 * Throws an exception if the command doesn't have the given number of parts.
+	 * @param parts parts of the command
+	 * @param expected expected number of parts, including the command name
+	 */
+	private static void checkArguments(String[] parts, int expected) {
+		if (parts.length != expected) {
+			throw new IllegalArgumentException(parts[0].toUpperCase() + " takes " + (expected - 1) + " arguments.");
+		}
+	}
+	
+	/**
+	 * Creates the executor that runs one task per connection. Uses a virtual thread per task when the JVM supports
+	 * them, found by reflection since this code has to build on Java 8, and otherwise a cached pool of daemon 
+	 * threads.
+	 * @return the executor
+	 */
+	private static ExecutorService createConnectionExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			ExecutorService executor = (ExecutorService) factory.invoke(null);
+			log.info("Serving connections on virtual threads.");
+			return executor;
+		} catch (NoSuchMethodException e) {
+			log.info("Virtual threads aren't available, serving connections on platform threads.");
+		} catch (ReflectiveOperationException e) {
+			log.warn("Couldn't create virtual threads, serving connections on platform threads : " + e);
+		}
+		
+		final AtomicInteger count = new AtomicInteger();
+		return Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "session-connection-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
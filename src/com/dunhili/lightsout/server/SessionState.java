@@ -0,0 +1,72 @@
+package com.dunhili.lightsout.server;
+
+/**
+ * An immutable view of a game session right after a command was applied to it.
+ * @author dunhili
+ */
+public class SessionState {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private final int sessionId;
+	private final int numberOfMoves;
+	private final int whiteTiles;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a session state with the given values.
+	 * @param sessionId id of the session
+	 * @param numberOfMoves number of moves made in the session
+	 * @param whiteTiles number of WHITE tiles left on the board
+	 */
+	public SessionState(int sessionId, int numberOfMoves, int whiteTiles) {
+		this.sessionId = sessionId;
+		this.numberOfMoves = numberOfMoves;
+		this.whiteTiles = whiteTiles;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the id of the session.
+	 * @return session id
+	 */
+	public int getSessionId() {
+		return sessionId;
+	}
+	
+	/**
+	 * Returns the number of moves made in the session, not counting moves that were undone.
+	 * @return number of moves
+	 */
+	public int getNumberOfMoves() {
+		return numberOfMoves;
+	}
+	
+	/**
+	 * Returns the number of WHITE tiles left on the board.
+	 * @return number of WHITE tiles
+	 */
+	public int getWhiteTiles() {
+		return whiteTiles;
+	}
+	
+	/**
+	 * Returns true if every tile on the board is BLACK.
+	 * @return true if the game has been won
+	 */
+	public boolean isGameWon() {
+		return whiteTiles == 0;
+	}
+	
+	@Override
+	public String toString() {
+		return sessionId + " " + numberOfMoves + " " + whiteTiles + " " + (isGameWon() ? "WON" : "PLAYING");
+	}
+}
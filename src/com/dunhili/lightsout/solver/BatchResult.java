@@ -0,0 +1,94 @@
+package com.dunhili.lightsout.solver;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of solving a pack of levels with the {@link BatchSolver}: the optimal number of moves for every level,
+ * the indices of the levels whose stored ideal number of moves doesn't match, and the indices of the levels whose 
+ * kernel was too large to search exhaustively, so their stored ideal number of moves could be neither proven nor 
+ * disproven.
+ * @author dunhili
+ */
+public class BatchResult {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private final int[] optimalMoves;
+	private final List<Integer> mismatches;
+	private final List<Integer> unproven;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a result from the optimal number of moves for each level and the indices of the mismatched levels.
+	 * @param optimalMoves optimal number of moves for each level, or -1 for levels that can't be solved
+	 * @param mismatches indices of the levels whose ideal number of moves is wrong, in ascending order
+	 */
+	public BatchResult(int[] optimalMoves, List<Integer> mismatches) {
+		this(optimalMoves, mismatches, Collections.<Integer>emptyList());
+	}
+	
+	/**
+	 * Creates a result from the optimal number of moves for each level and the indices of the mismatched and 
+	 * unproven levels.
+	 * @param optimalMoves optimal number of moves for each level, or -1 for levels that can't be solved
+	 * @param mismatches indices of the levels whose ideal number of moves is wrong, in ascending order
+	 * @param unproven indices of the levels whose ideal number of moves couldn't be checked, in ascending order
+	 */
+	public BatchResult(int[] optimalMoves, List<Integer> mismatches, List<Integer> unproven) {
+		this.optimalMoves = optimalMoves;
+		this.mismatches = Collections.unmodifiableList(mismatches);
+		this.unproven = Collections.unmodifiableList(unproven);
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the number of levels that were solved.
+	 * @return number of levels
+	 */
+	public int getNumberOfLevels() {
+		return optimalMoves.length;
+	}
+	
+	/**
+	 * Returns the optimal number of moves for the level at the given index, or -1 if it can't be solved. For an 
+	 * unproven level this is the fewest moves found, which may not be the minimum.
+	 * @param index index of the level in the pack
+	 * @return optimal number of moves
+	 */
+	public int getOptimalMoves(int index) {
+		return optimalMoves[index];
+	}
+	
+	/**
+	 * Returns the indices of the levels whose stored ideal number of moves doesn't match the optimal number.
+	 * @return indices of the mismatched levels, in ascending order
+	 */
+	public List<Integer> getMismatches() {
+		return mismatches;
+	}
+	
+	/**
+	 * Returns the indices of the levels whose kernel was too large to search exhaustively and whose stored ideal 
+	 * number of moves is no more than the fewest moves found, so it may or may not be the minimum.
+	 * @return indices of the unproven levels, in ascending order
+	 */
+	public List<Integer> getUnproven() {
+		return unproven;
+	}
+	
+	/**
+	 * Returns true if no level's stored ideal number of moves is known to be wrong. Unproven levels don't count.
+	 * @return true if there are no mismatches, otherwise false
+	 */
+	public boolean isValid() {
+		return mismatches.isEmpty();
+	}
+}
@@ -0,0 +1,272 @@
+package com.dunhili.lightsout.solver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.Level;
+
+/**
+ * Solves every level in a pack in parallel to find their optimal number of moves and check them against the ideal
+ * number of moves stored with each level. The pack is split into ranges of levels that are solved independently, 
+ * each holding on to the chasing table of the last board size it saw so levels of the same size don't go through the
+ * shared cache. Packs too large to hold on the heap can be streamed through {@link #solve(Iterator, ExecutorService, int)},
+ * which solves the levels in chunks as they're read.
+ * @author dunhili
+ */
+public class BatchSolver {
+	/** Number of levels below which a range is solved directly instead of being split further. */
+	private static final int SPLIT_THRESHOLD = 256;
+	
+	/** Number of levels read into each task when solving a stream of levels. */
+	private static final int STREAM_CHUNK_SIZE = 1024;
+	
+	private static final Logger log = Logger.getLogger(BatchSolver.class);
+	
+	/** Can't be instantiated. */
+	private BatchSolver() { }
+	
+	/**
+	 * Solves every level in the list on the common fork-join pool.
+	 * @param levels levels to solve
+	 * @return optimal number of moves for each level and the levels that don't match
+	 */
+	public static BatchResult solve(List<Level> levels) {
+		return solve(levels, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Solves every level in the list on the given fork-join pool.
+	 * @param levels levels to solve
+	 * @param pool pool to solve the levels on
+	 * @return optimal number of moves for each level and the levels that don't match
+	 */
+	public static BatchResult solve(List<Level> levels, ForkJoinPool pool) {
+		log.info("Solving " + levels.size() + " levels...");
+		int[] optimalMoves = new int[levels.size()];
+		boolean[] minimal = new boolean[levels.size()];
+		pool.invoke(new SolveRange(levels, optimalMoves, minimal, 0, levels.size()));
+		return createResult(levels, optimalMoves, minimal);
+	}
+	
+	/**
+	 * Solves every level in the list on the given executor, one task per range of levels. The caller keeps ownership
+	 * of the executor and is responsible for shutting it down.
+	 * @param levels levels to solve
+	 * @param executor executor to solve the levels on
+	 * @param parallelism number of tasks to split the levels into
+	 * @return optimal number of moves for each level and the levels that don't match
+	 * @throws InterruptedException if the thread is interrupted while waiting for the tasks
+	 * @throws ExecutionException if a task fails
+	 */
+	public static BatchResult solve(List<Level> levels, ExecutorService executor, int parallelism) 
+			throws InterruptedException, ExecutionException {
+		log.info("Solving " + levels.size() + " levels...");
+		final int[] optimalMoves = new int[levels.size()];
+		final boolean[] minimal = new boolean[levels.size()];
+		int chunk = Math.max(1, (levels.size() + parallelism - 1) / Math.max(1, parallelism));
+		
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int start = 0; start < levels.size(); start += chunk) {
+			final SolveRange range = new SolveRange(levels, optimalMoves, minimal, start, 
+					Math.min(levels.size(), start + chunk));
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					range.solveDirectly();
+					return null;
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		return createResult(levels, optimalMoves, minimal);
+	}
+	
+	/**
+	 * Solves every level read from the given iterator, usually a {@link com.dunhili.lightsout.utils.LevelReader}, on
+	 * the given executor. Levels are read in chunks and each chunk is solved by its own task while the next ones are
+	 * read, and only a few chunks are held at a time, so the whole pack is never on the heap. The caller keeps 
+	 * ownership of the executor and the iterator.
+	 * @param levels levels to solve
+	 * @param executor executor to solve the levels on
+	 * @param parallelism number of chunks to solve at the same time
+	 * @return optimal number of moves for each level and the levels that don't match
+	 * @throws InterruptedException if the thread is interrupted while waiting for the tasks
+	 * @throws ExecutionException if a task fails
+	 */
+	public static BatchResult solve(Iterator<Level> levels, ExecutorService executor, int parallelism) 
+			throws InterruptedException, ExecutionException {
+		log.info("Solving levels as they're read...");
+		int maxChunksInFlight = 2 * Math.max(1, parallelism);
+		Deque<Future<?>> inFlight = new ArrayDeque<Future<?>>();
+		List<int[]> chunkMoves = new ArrayList<int[]>();
+		List<boolean[]> chunkMinimal = new ArrayList<boolean[]>();
+		int[] idealMoves = new int[STREAM_CHUNK_SIZE];
+		int count = 0;
+		while (levels.hasNext()) {
+			List<Level> chunk = new ArrayList<Level>(STREAM_CHUNK_SIZE);
+			while (chunk.size() < STREAM_CHUNK_SIZE && levels.hasNext()) {
+				Level level = levels.next();
+				if (count == idealMoves.length) {
+					idealMoves = Arrays.copyOf(idealMoves, count * 2);
+				}
+				idealMoves[count++] = level.getIdealNumberOfMoves();
+				chunk.add(level);
+			}
+			
+			int[] moves = new int[chunk.size()];
+			boolean[] minimal = new boolean[chunk.size()];
+			chunkMoves.add(moves);
+			chunkMinimal.add(minimal);
+			final SolveRange range = new SolveRange(chunk, moves, minimal, 0, chunk.size());
+			inFlight.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					range.solveDirectly();
+					return null;
+				}
+			}));
+			// don't read ahead of the solvers by more than a few chunks
+			if (inFlight.size() >= maxChunksInFlight) {
+				inFlight.poll().get();
+			}
+		}
+		for (Future<?> future : inFlight) {
+			future.get();
+		}
+		
+		int[] optimalMoves = new int[count];
+		boolean[] minimal = new boolean[count];
+		int position = 0;
+		for (int i = 0; i < chunkMoves.size(); i++) {
+			int[] moves = chunkMoves.get(i);
+			System.arraycopy(moves, 0, optimalMoves, position, moves.length);
+			System.arraycopy(chunkMinimal.get(i), 0, minimal, position, moves.length);
+			position += moves.length;
+		}
+		return createResult(Arrays.copyOf(idealMoves, count), optimalMoves, minimal);
+	}
+	
+	/**
+	 * Compares the optimal number of moves to the ideal number stored with each level.
+	 * @param levels levels that were solved
+	 * @param optimalMoves optimal number of moves for each level
+	 * @param minimal whether the optimal number of moves of each level is proven to be the minimum
+	 * @return the result
+	 */
+	private static BatchResult createResult(List<Level> levels, int[] optimalMoves, boolean[] minimal) {
+		int[] idealMoves = new int[levels.size()];
+		for (int i = 0; i < idealMoves.length; i++) {
+			idealMoves[i] = levels.get(i).getIdealNumberOfMoves();
+		}
+		return createResult(idealMoves, optimalMoves, minimal);
+	}
+	
+	/**
+	 * Compares the optimal number of moves to the ideal number stored with each level. When the optimal number 
+	 * isn't proven to be the minimum, the level only counts as a mismatch if a solution shorter than its ideal number
+	 * was found, or it's marked as unsolvable, otherwise it's unproven.
+	 * @param idealMoves ideal number of moves stored with each level
+	 * @param optimalMoves optimal number of moves for each level
+	 * @param minimal whether the optimal number of moves of each level is proven to be the minimum
+	 * @return the result
+	 */
+	private static BatchResult createResult(int[] idealMoves, int[] optimalMoves, boolean[] minimal) {
+		List<Integer> mismatches = new ArrayList<Integer>();
+		List<Integer> unproven = new ArrayList<Integer>();
+		for (int i = 0; i < optimalMoves.length; i++) {
+			if (!minimal[i] && idealMoves[i] >= 0 && idealMoves[i] <= optimalMoves[i]) {
+				if (log.isDebugEnabled()) {
+					log.debug("Level " + i + " has ideal number of moves " + idealMoves[i] + ", the fewest found is " 
+							+ optimalMoves[i] + " but isn't proven to be the minimum.");
+				}
+				unproven.add(i);
+			} else if (optimalMoves[i] != idealMoves[i]) {
+				if (log.isDebugEnabled()) {
+					log.debug("Level " + i + " has ideal number of moves " + idealMoves[i]
+							+ " but the minimum is " + optimalMoves[i] + ".");
+				}
+				mismatches.add(i);
+			}
+		}
+		
+		if (!mismatches.isEmpty()) {
+			log.warn(mismatches.size() + " of " + optimalMoves.length + " levels have the wrong ideal number of moves.");
+		}
+		if (!unproven.isEmpty()) {
+			log.info(unproven.size() + " of " + optimalMoves.length + " levels couldn't be proven minimal.");
+		}
+		log.info("Done solving levels.");
+		return new BatchResult(optimalMoves, mismatches, unproven);
+	}
+	
+	/**
+	 * Solves the levels in the range [start, end), splitting it in half while it's larger than the threshold.
+	 */
+	private static class SolveRange extends RecursiveAction {
+		private static final long serialVersionUID = -3925386425917324160L;
+		
+		private final List<Level> levels;
+		private final int[] optimalMoves;
+		private final boolean[] minimal;
+		private final int start;
+		private final int end;
+		
+		/**
+		 * Creates a task to solve the levels in the range [start, end).
+		 * @param levels every level in the pack
+		 * @param optimalMoves where the optimal number of moves of each level is written
+		 * @param minimal where it's written whether each optimal number of moves is proven to be the minimum
+		 * @param start index of the first level to solve
+		 * @param end index after the last level to solve
+		 */
+		SolveRange(List<Level> levels, int[] optimalMoves, boolean[] minimal, int start, int end) {
+			this.levels = levels;
+			this.optimalMoves = optimalMoves;
+			this.minimal = minimal;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute() {
+			if (end - start <= SPLIT_THRESHOLD) {
+				solveDirectly();
+				return;
+			}
+			int middle = (start + end) >>> 1;
+			invokeAll(new SolveRange(levels, optimalMoves, minimal, start, middle), 
+					new SolveRange(levels, optimalMoves, minimal, middle, end));
+		}
+		
+		/**
+		 * Solves every level in the range on the current thread.
+		 */
+		void solveDirectly() {
+			ChasingTable table = null;
+			for (int i = start; i < end; i++) {
+				GameBoard board = new GameBoard(levels.get(i).getLayout());
+				if (table == null || table.getWidth() != board.getWidth() || table.getHeight() != board.getHeight()) {
+					table = ChasingSolver.getTable(board.getWidth(), board.getHeight());
+				}
+				Solution solution = ChasingSolver.solveMinimum(table, board);
+				optimalMoves[i] = (solution == null) ? -1 : solution.getNumberOfPresses();
+				minimal[i] = solution == null || solution.isMinimal();
+			}
+		}
+	}
+}
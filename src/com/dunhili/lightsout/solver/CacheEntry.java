@@ -0,0 +1,13 @@
+package com.dunhili.lightsout.solver;
+
+/**
+ * Something that can be held in a {@link DimensionCache}, which needs to know roughly how much memory it uses.
+ * @author dunhili
+ */
+public interface CacheEntry {
+	/**
+	 * Returns an estimate of the memory used by this entry, in bytes.
+	 * @return estimated size in bytes
+	 */
+	long getSizeInBytes();
+}
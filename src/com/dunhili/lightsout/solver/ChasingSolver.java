@@ -0,0 +1,123 @@
+package com.dunhili.lightsout.solver;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.Topology;
+import com.dunhili.lightsout.metrics.Metrics;
+
+/**
+ * Solves boards by chasing the lights (see {@link ChasingTable}). The table for each board size is built the first
+ * time that size is solved and shared by every later solve, so repeated solves of the same size only cost
+ * O(width x height) bit operations.
+ * @author dunhili
+ */
+public class ChasingSolver {
+	private static final Logger log = Logger.getLogger(ChasingSolver.class);
+	
+	/** Default memory budget of the table cache, 64 MB. */
+	public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+	
+	private static final DimensionCache<ChasingTable> tables = new DimensionCache<ChasingTable>(DEFAULT_CACHE_BYTES,
+			new DimensionCache.Loader<ChasingTable>() {
+				@Override
+				public ChasingTable load(int width, int height) {
+					return new ChasingTable(width, height);
+				}
+			});
+	
+	/** Can't be instantiated. */
+	private ChasingSolver() { }
+	
+	/**
+	 * Returns a solution for the given board, or null if the board can't be solved. The solution isn't necessarily
+	 * the one with the fewest presses when the board size has a non-trivial kernel. Chasing only works for the plus
+	 * topology, so boards with any other topology are solved by {@link LinearSolver} instead.
+	 * @param board board to solve
+	 * @return a solution, or null if there is no solution
+	 */
+	public static Solution solve(GameBoard board) {
+		log.trace("solve()");
+		if (board.getTopology() != Topology.PLUS) {
+			return LinearSolver.solve(board);
+		}
+		long start = System.nanoTime();
+		try {
+			int width = board.getWidth();
+			int height = board.getHeight();
+			long[] presses = getTable(width, height).particularSolution(getRows(board));
+			return (presses == null) ? null : new Solution(width, height, presses);
+		} finally {
+			Metrics.SOLVES.increment();
+			Metrics.SOLVE_LATENCY.recordSince(start);
+		}
+	}
+	
+	/**
+	 * Returns the solution with the fewest presses for the given board, or null if the board can't be solved. See
+	 * {@link MinimumSearch} for how the kernel is searched. Boards with a topology other than plus are solved by
+	 * {@link LinearSolver} instead.
+	 * @param board board to solve
+	 * @return minimum solution, or null if there is no solution
+	 */
+	public static Solution solveMinimum(GameBoard board) {
+		if (board.getTopology() != Topology.PLUS) {
+			return LinearSolver.solve(board);
+		}
+		return solveMinimum(getTable(board.getWidth(), board.getHeight()), board);
+	}
+	
+	/**
+	 * Returns the solution with the fewest presses for the given board using the given chasing table, or null if the
+	 * board can't be solved. Callers solving many boards of the same size can hold on to the table to skip the cache.
+	 * @param table chasing table for the dimensions of the board
+	 * @param board board to solve
+	 * @return minimum solution, or null if there is no solution
+	 */
+	public static Solution solveMinimum(ChasingTable table, GameBoard board) {
+		log.trace("solveMinimum()");
+		long start = System.nanoTime();
+		try {
+			long[] presses = table.particularSolution(getRows(board));
+			if (presses == null) {
+				return null;
+			}
+			return MinimumSearch.minimize(board.getWidth(), board.getHeight(), presses, table.getKernelBasis(), 
+					MinimumSearch.lowerBound(board.toBitVector(), 5));
+		} finally {
+			Metrics.SOLVES.increment();
+			Metrics.SOLVE_LATENCY.recordSince(start);
+		}
+	}
+	
+	/**
+	 * Returns the chasing table for boards of dimension width x height, building it if it isn't cached yet.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return the chasing table
+	 */
+	public static ChasingTable getTable(int width, int height) {
+		return tables.get(width, height);
+	}
+	
+	/**
+	 * Returns the cache of chasing tables, to change its memory budget or read its counters.
+	 * @return the table cache
+	 */
+	public static DimensionCache<ChasingTable> getCache() {
+		return tables;
+	}
+	
+	/**
+	 * Returns the packed rows of the board.
+	 * @param board board to read
+	 * @return the rows of the board
+	 */
+	private static long[][] getRows(GameBoard board) {
+		long[][] rows = new long[board.getHeight()][];
+		for (int y = 0; y < rows.length; y++) {
+			rows[y] = board.getRowBits(y);
+		}
+		return rows;
+	}
+}
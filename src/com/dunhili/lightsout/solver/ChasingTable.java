@@ -0,0 +1,311 @@
+package com.dunhili.lightsout.solver;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.utils.BitUtil;
+
+/**
+ * Solves boards of a given width x height by "chasing the lights" down the board. Once the presses on the first
+ * row are chosen, the presses on every other row are forced: a tile in row y can only be cleared by pressing the 
+ * tile below it. Chasing leaves some WHITE tiles on the last row, and that leftover pattern depends linearly on the
+ * first row presses. This table holds the reduced form of that W x W map, so it only has to be built once per board
+ * size, and solving a board then takes two chases down the board plus one small matrix-vector product.
+ * @author dunhili
+ */
+public class ChasingTable implements CacheEntry {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(ChasingTable.class);
+	
+	private final int width;
+	private final int height;
+	private final int rowWords;
+	private final long lastWordMask;
+	
+	/** The row operations that reduce the first row to last row map, one row per leftover bit. */
+	private final long[][] transform;
+	
+	/** First row press bit solved by each of the first rank rows of the transform. */
+	private final int[] pivotColumns;
+	private final int rank;
+	
+	/** First row presses that chase down to an empty last row, ie the kernel of the first row to last row map. */
+	private final long[][] firstRowKernel;
+	
+	/** The first row kernel chased down the board, ie a basis of the kernel of the full toggle matrix. */
+	private final long[][] kernelBasis;
+	
+	private final long sizeInBytes;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Builds the chasing table for boards of dimension width x height.
+	 * @param width width of the board
+	 * @param height height of the board
+	 */
+	public ChasingTable(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			log.error("Board dimensions must be positive.");
+			throw new IllegalArgumentException("Board dimensions must be positive.");
+		}
+		
+		this.width = width;
+		this.height = height;
+		this.rowWords = BitUtil.wordsFor(width);
+		int remainder = width % BitUtil.BITS_PER_WORD;
+		this.lastWordMask = (remainder == 0) ? -1L : BitUtil.lowMask(remainder);
+		
+		// row r of the map holds the first row presses whose chase leaves bit r of the last row WHITE
+		long[][] map = new long[width][rowWords];
+		long[][] lights = new long[height][rowWords];
+		long[] firstRow = new long[rowWords];
+		for (int i = 0; i < width; i++) {
+			clear(lights);
+			firstRow[i >>> 6] = 1L << i;
+			long[] leftover = chase(lights, firstRow, null);
+			firstRow[i >>> 6] = 0L;
+			for (int r = 0; r < width; r++) {
+				if (BitUtil.get(leftover, r)) {
+					BitUtil.set(map[r], i);
+				}
+			}
+		}
+		
+		this.transform = new long[width][];
+		this.pivotColumns = new int[width];
+		this.rank = reduce(map);
+		this.firstRowKernel = buildKernel(map);
+		this.kernelBasis = chaseKernel();
+		this.sizeInBytes = DimensionCache.sizeOf(transform) + DimensionCache.sizeOf(firstRowKernel) 
+				+ DimensionCache.sizeOf(kernelBasis) + 4L * pivotColumns.length;
+		
+		if (log.isDebugEnabled()) {
+			log.debug("Chasing table " + width + "x" + height + " has rank " + rank + ".");
+		}
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the width of the boards this table solves.
+	 * @return board width
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Returns the height of the boards this table solves.
+	 * @return board height
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns the dimension of the kernel of the toggle matrix, ie the number of independent press patterns that
+	 * leave the board unchanged.
+	 * @return kernel dimension
+	 */
+	public int getKernelDimension() {
+		return firstRowKernel.length;
+	}
+	
+	@Override
+	public long getSizeInBytes() {
+		return sizeInBytes;
+	}
+	
+	/**
+	 * Returns a set of presses that turns every WHITE tile BLACK, or null if the board can't be solved. The result
+	 * is one particular solution and isn't necessarily the one with the fewest presses.
+	 * @param rows the rows of the board, as returned by {@link com.dunhili.lightsout.board.GameBoard#getRowBits(int)}
+	 * @return bit vector of the tiles to press, or null if there is no solution
+	 */
+	public long[] particularSolution(long[][] rows) {
+		long[][] lights = new long[height][];
+		for (int y = 0; y < height; y++) {
+			lights[y] = rows[y].clone();
+		}
+		long[] leftover = chase(lights, new long[rowWords], null);
+		
+		for (int i = rank; i < width; i++) {
+			if (BitUtil.dot(transform[i], leftover)) {
+				return null;
+			}
+		}
+		long[] firstRow = new long[rowWords];
+		for (int i = 0; i < rank; i++) {
+			if (BitUtil.dot(transform[i], leftover)) {
+				BitUtil.set(firstRow, pivotColumns[i]);
+			}
+		}
+		
+		for (int y = 0; y < height; y++) {
+			System.arraycopy(rows[y], 0, lights[y], 0, rowWords);
+		}
+		long[] presses = new long[BitUtil.wordsFor(width * height)];
+		chase(lights, firstRow, presses);
+		return presses;
+	}
+	
+	/**
+	 * Returns a basis of the kernel of the toggle matrix as full board press vectors. Adding any combination of these
+	 * to a solution gives another solution.
+	 * @return kernel basis vectors
+	 */
+	public long[][] getKernelBasis() {
+		return kernelBasis;
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Chases each first row kernel vector down the board to get the full board kernel vectors.
+	 * @return kernel basis vectors
+	 */
+	private long[][] chaseKernel() {
+		long[][] basis = new long[firstRowKernel.length][];
+		long[][] lights = new long[height][rowWords];
+		for (int k = 0; k < firstRowKernel.length; k++) {
+			clear(lights);
+			basis[k] = new long[BitUtil.wordsFor(width * height)];
+			chase(lights, firstRowKernel[k], basis[k]);
+		}
+		return basis;
+	}
+	
+	/**
+	 * Presses the given first row tiles and then chases the lights down the board, pressing the tile below every 
+	 * WHITE tile. The lights are changed in place.
+	 * @param lights rows of the board, changed in place
+	 * @param firstRow presses on the first row
+	 * @param presses if non-null, every press is recorded in this bit vector (y * width + x)
+	 * @return the WHITE tiles left on the last row
+	 */
+	private long[] chase(long[][] lights, long[] firstRow, long[] presses) {
+		long[] row = firstRow.clone();
+		for (int y = 0; y < height; y++) {
+			if (y > 0) {
+				System.arraycopy(lights[y - 1], 0, row, 0, rowWords);
+			}
+			pressRow(lights, y, row);
+			if (presses != null) {
+				BitUtil.copyBits(row, 0, presses, y * width, width);
+			}
+		}
+		return lights[height - 1];
+	}
+	
+	/**
+	 * Presses every tile of row y in the given mask at once.
+	 * @param lights rows of the board, changed in place
+	 * @param y row to press
+	 * @param mask tiles to press in the row
+	 */
+	private void pressRow(long[][] lights, int y, long[] mask) {
+		long[] center = lights[y];
+		BitUtil.xorWithNeighbours(center, 0, mask, 0, rowWords);
+		center[rowWords - 1] &= lastWordMask;
+		
+		if (y > 0) {
+			BitUtil.xorInto(lights[y - 1], mask);
+		}
+		if (y < height - 1) {
+			BitUtil.xorInto(lights[y + 1], mask);
+		}
+	}
+	
+	/**
+	 * Reduces the first row to last row map with Gauss-Jordan elimination, recording the row operations in the
+	 * transform.
+	 * @param map the map, reduced in place
+	 * @return rank of the map
+	 */
+	private int reduce(long[][] map) {
+		for (int i = 0; i < width; i++) {
+			transform[i] = new long[rowWords];
+			BitUtil.set(transform[i], i);
+		}
+		
+		int pivotRow = 0;
+		for (int column = 0; column < width && pivotRow < width; column++) {
+			int found = -1;
+			for (int i = pivotRow; i < width; i++) {
+				if (BitUtil.get(map[i], column)) {
+					found = i;
+					break;
+				}
+			}
+			if (found < 0) {
+				continue;
+			}
+			long[] swap = map[found];
+			map[found] = map[pivotRow];
+			map[pivotRow] = swap;
+			swap = transform[found];
+			transform[found] = transform[pivotRow];
+			transform[pivotRow] = swap;
+			
+			for (int i = 0; i < width; i++) {
+				if (i != pivotRow && BitUtil.get(map[i], column)) {
+					BitUtil.xorInto(map[i], map[pivotRow]);
+					BitUtil.xorInto(transform[i], transform[pivotRow]);
+				}
+			}
+			pivotColumns[pivotRow] = column;
+			pivotRow++;
+		}
+		return pivotRow;
+	}
+	
+	/**
+	 * Builds a basis of the kernel of the reduced map, one vector per free (non-pivot) column.
+	 * @param reduced the reduced map
+	 * @return the kernel basis as first row presses
+	 */
+	private long[][] buildKernel(long[][] reduced) {
+		boolean[] isPivot = new boolean[width];
+		for (int i = 0; i < rank; i++) {
+			isPivot[pivotColumns[i]] = true;
+		}
+		
+		long[][] basis = new long[width - rank][];
+		int k = 0;
+		for (int free = 0; free < width; free++) {
+			if (isPivot[free]) {
+				continue;
+			}
+			long[] vector = new long[rowWords];
+			BitUtil.set(vector, free);
+			for (int i = 0; i < rank; i++) {
+				if (BitUtil.get(reduced[i], free)) {
+					BitUtil.set(vector, pivotColumns[i]);
+				}
+			}
+			basis[k++] = vector;
+		}
+		return basis;
+	}
+	
+	/**
+	 * Clears every row of the board.
+	 * @param lights rows of the board
+	 */
+	private static void clear(long[][] lights) {
+		for (long[] row : lights) {
+			Arrays.fill(row, 0L);
+		}
+	}
+}
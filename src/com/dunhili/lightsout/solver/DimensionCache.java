@@ -0,0 +1,295 @@
+package com.dunhili.lightsout.solver;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A thread-safe cache of precomputed solver data keyed by board dimension (width x height), and optionally by a 
+ * variant of the data for that dimension such as the board's {@link com.dunhili.lightsout.board.Topology}, so every 
+ * variant shares one budget and one set of counters. The cache holds at most
+ * a configurable number of bytes and evicts the least recently used dimensions once it goes over that budget.
+ * Entries are built outside the cache's lock, so two threads missing on the same dimension at the same time may
+ * both build it; only one copy is kept.
+ * @param <V> type of the cached entries
+ * @author dunhili
+ */
+public class DimensionCache<V extends CacheEntry> {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	/**
+	 * Builds the entry for a board dimension when it isn't in the cache.
+	 * @param <V> type of the entries
+	 */
+	public interface Loader<V> {
+		/**
+		 * Builds the entry for boards of dimension width x height.
+		 * @param width width of the board
+		 * @param height height of the board
+		 * @return the entry
+		 */
+		V load(int width, int height);
+	}
+	
+	/**
+	 * Builds the entry for a variant of a board dimension when it isn't in the cache.
+	 * @param <V> type of the entries
+	 */
+	public interface VariantLoader<V> {
+		/**
+		 * Builds the entry for the given variant of boards of dimension width x height.
+		 * @param variant variant of the entry, or null for the plain dimension
+		 * @param width width of the board
+		 * @param height height of the board
+		 * @return the entry
+		 */
+		V load(Object variant, int width, int height);
+	}
+	
+	private static final Logger log = Logger.getLogger(DimensionCache.class);
+	
+	private final VariantLoader<V> loader;
+	
+	/** Entries in access order, so the first entry is always the least recently used. */
+	private final LinkedHashMap<Key, V> entries = new LinkedHashMap<Key, V>(16, 0.75f, true);
+	
+	private long maxBytes;
+	private long sizeInBytes = 0;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates an empty cache that holds at most maxBytes worth of entries.
+	 * @param maxBytes memory budget of the cache in bytes
+	 * @param loader builds the entries that aren't in the cache
+	 */
+	public DimensionCache(long maxBytes, final Loader<V> loader) {
+		this(maxBytes, new VariantLoader<V>() {
+			@Override
+			public V load(Object variant, int width, int height) {
+				return loader.load(width, height);
+			}
+		});
+	}
+	
+	/**
+	 * Creates an empty cache of several variants per dimension that holds at most maxBytes worth of entries.
+	 * @param maxBytes memory budget of the cache in bytes
+	 * @param loader builds the entries that aren't in the cache
+	 */
+	public DimensionCache(long maxBytes, VariantLoader<V> loader) {
+		this.maxBytes = maxBytes;
+		this.loader = loader;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the entry for boards of dimension width x height, building it if it isn't cached. An entry bigger than
+	 * the whole budget is returned but not cached.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return the entry
+	 */
+	public V get(int width, int height) {
+		return get(null, width, height);
+	}
+	
+	/**
+	 * Returns the entry for the given variant of boards of dimension width x height, building it if it isn't cached.
+	 * Variants are told apart with {@link Object#equals(Object)}. An entry bigger than the whole budget is returned
+	 * but not cached.
+	 * @param variant variant of the entry, or null for the plain dimension
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return the entry
+	 */
+	public V get(Object variant, int width, int height) {
+		Key key = new Key(variant, width, height);
+		synchronized (this) {
+			V entry = entries.get(key);
+			if (entry != null) {
+				hits.increment();
+				return entry;
+			}
+		}
+		
+		misses.increment();
+		if (log.isDebugEnabled()) {
+			log.debug("Building solver data for " + key + ".");
+		}
+		V entry = loader.load(variant, width, height);
+		
+		synchronized (this) {
+			V existing = entries.get(key);
+			if (existing != null) {
+				return existing;
+			}
+			if (entry.getSizeInBytes() > maxBytes) {
+				if (log.isDebugEnabled()) {
+					log.debug("Solver data for " + key + " is larger than the cache, not caching it.");
+				}
+				return entry;
+			}
+			entries.put(key, entry);
+			sizeInBytes += entry.getSizeInBytes();
+			evictToBudget();
+		}
+		return entry;
+	}
+	
+	/**
+	 * Sets the memory budget of the cache, evicting entries if it's now over the budget.
+	 * @param maxBytes memory budget of the cache in bytes
+	 */
+	public synchronized void setMaxBytes(long maxBytes) {
+		this.maxBytes = maxBytes;
+		evictToBudget();
+	}
+	
+	/**
+	 * Returns the memory budget of the cache.
+	 * @return memory budget in bytes
+	 */
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+	
+	/**
+	 * Returns the estimated memory used by the cached entries.
+	 * @return size of the cached entries in bytes
+	 */
+	public synchronized long getSizeInBytes() {
+		return sizeInBytes;
+	}
+	
+	/**
+	 * Returns the number of dimensions and variants currently cached.
+	 * @return number of entries
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Removes every entry from the cache. The counters aren't reset.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		sizeInBytes = 0;
+	}
+	
+	/**
+	 * Returns the number of lookups that found their entry in the cache.
+	 * @return number of cache hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	/**
+	 * Returns the number of lookups that had to build their entry.
+	 * @return number of cache misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * Returns the number of entries evicted to stay within the memory budget.
+	 * @return number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	/**
+	 * Returns an estimate of the memory used by a matrix of packed rows.
+	 * @param matrix matrix to measure
+	 * @return estimated size in bytes
+	 */
+	public static long sizeOf(long[][] matrix) {
+		long size = 16 + 4L * matrix.length;
+		for (long[] row : matrix) {
+			size += 16 + 8L * row.length;
+		}
+		return size;
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Evicts the least recently used entries until the cache is within its memory budget. Must be called while 
+	 * holding the cache's lock.
+	 */
+	private void evictToBudget() {
+		Iterator<Map.Entry<Key, V>> iterator = entries.entrySet().iterator();
+		while (sizeInBytes > maxBytes && iterator.hasNext()) {
+			Map.Entry<Key, V> eldest = iterator.next();
+			sizeInBytes -= eldest.getValue().getSizeInBytes();
+			iterator.remove();
+			evictions.increment();
+			if (log.isDebugEnabled()) {
+				log.debug("Evicted solver data for " + eldest.getKey() + ".");
+			}
+		}
+	}
+	
+	/**
+	 * Key of a cached entry, a board dimension and the variant of the entry for it.
+	 */
+	private static final class Key {
+		private final Object variant;
+		private final int width;
+		private final int height;
+		
+		/**
+		 * Creates the key of the given variant of a board dimension.
+		 * @param variant variant of the entry, or null for the plain dimension
+		 * @param width width of the board
+		 * @param height height of the board
+		 */
+		Key(Object variant, int width, int height) {
+			this.variant = variant;
+			this.width = width;
+			this.height = height;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return width == other.width && height == other.height 
+					&& (variant == null ? other.variant == null : variant.equals(other.variant));
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * (31 * width + height) + (variant == null ? 0 : variant.hashCode());
+		}
+		
+		@Override
+		public String toString() {
+			return (variant == null) ? width + "x" + height : variant + " " + width + "x" + height;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package com.dunhili.lightsout.solver;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.Topology;
+import com.dunhili.lightsout.utils.BitUtil;
+
+/**
+ * Keeps the set of presses that still clear a {@link GameBoard} up to date as the player makes moves, so hints don't
+ * need the board to be solved again. Presses are linear over GF(2), so after pressing tile c the presses that clear
+ * the board are the old ones with tile c flipped. Taking a press out of a minimum solution leaves a minimum solution,
+ * so only a press that isn't part of the solution can leave it longer than needed, and only when the board has a
+ * non-trivial kernel. In that case the remaining presses are re-minimized over the kernel the next time a hint is
+ * asked for, without another elimination. The board is only solved from scratch if it was changed some other way,
+ * which is noticed through its hash. Boards with the plus topology are solved by chasing the lights, so hints work
+ * on large boards too. Not thread-safe.
+ * @author dunhili
+ */
+public class HintService {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(HintService.class);
+	
+	private final GameBoard board;
+	private final int width;
+	
+	/** Chasing table of the board size for the plus topology, which scales to large boards, otherwise null. */
+	private final ChasingTable table;
+	
+	/** Toggle system of the board size for every other topology, otherwise null. */
+	private final ToggleSystem system;
+	
+	private final long[][] kernelBasis;
+	private final int maxToggles;
+	
+	/** Presses that clear the board, as bit (y * width + x), or null if the board can't be solved. */
+	private long[] remaining;
+	private int numberOfRemaining;
+	
+	/** Every word of the remaining presses before this one is zero, so hints start looking from here. */
+	private int firstWord;
+	
+	/** True if the remaining presses were known to be a minimum when they were last minimized. */
+	private boolean minimal;
+	
+	/** True if a press was added to the remaining presses since they were last minimized. */
+	private boolean needsMinimize;
+	
+	/** Hash of the board the remaining presses are for, to notice changes that didn't go through this service. */
+	private long boardHash;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a hint service for the given board and solves it.
+	 * @param board board to give hints for
+	 */
+	public HintService(GameBoard board) {
+		this.board = board;
+		this.width = board.getWidth();
+		if (board.getTopology() == Topology.PLUS) {
+			this.table = ChasingSolver.getTable(width, board.getHeight());
+			this.system = null;
+			this.kernelBasis = table.getKernelBasis();
+			this.maxToggles = 5;
+		} else {
+			this.table = null;
+			this.system = LinearSolver.getSystem(board.getTopology(), width, board.getHeight());
+			this.kernelBasis = system.getKernelBasis();
+			this.maxToggles = system.getMaxToggles();
+		}
+		resolve();
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Presses the tile at (x, y) on the board and updates the remaining presses.
+	 * @param x x coordinate of the tile to press
+	 * @param y y coordinate of the tile to press
+	 */
+	public void press(int x, int y) {
+		if (board.longHash() != boardHash) {
+			resolve();
+		}
+		board.swapTiles(x, y);
+		pressed(x, y);
+	}
+	
+	/**
+	 * Updates the remaining presses after the tile at (x, y) was pressed on the board by something else, eg a
+	 * {@link com.dunhili.lightsout.board.MoveHistory}. Costs O(1). Must be called right after each press, before 
+	 * the board changes again.
+	 * @param x x coordinate of the tile that was pressed
+	 * @param y y coordinate of the tile that was pressed
+	 */
+	public void pressed(int x, int y) {
+		if (log.isTraceEnabled()) {
+			log.trace("pressed(" + x + ", " + y + ")");
+		}
+		if (!board.isPressable(x, y) || remaining == null) {
+			return;
+		}
+		
+		int cell = y * width + x;
+		int word = cell >>> 6;
+		long bit = 1L << cell;
+		remaining[word] ^= bit;
+		if ((remaining[word] & bit) != 0L) {
+			numberOfRemaining++;
+			needsMinimize |= kernelBasis.length > 0;
+			firstWord = Math.min(firstWord, word);
+		} else {
+			numberOfRemaining--;
+		}
+		boardHash = board.longHash();
+	}
+	
+	/**
+	 * Returns true if the board can still be cleared.
+	 * @return true if the board can be solved, otherwise false
+	 */
+	public boolean isSolvable() {
+		update();
+		return remaining != null;
+	}
+	
+	/**
+	 * Returns the tile to press next, as (y * width + x), or -1 if the board is already cleared or can't be solved.
+	 * @return index of the tile to press, or -1 if there is none
+	 */
+	public int getHint() {
+		update();
+		if (remaining == null || numberOfRemaining == 0) {
+			return -1;
+		}
+		while (remaining[firstWord] == 0L) {
+			firstWord++;
+		}
+		return (firstWord << 6) + Long.numberOfTrailingZeros(remaining[firstWord]);
+	}
+	
+	/**
+	 * Returns true if the tile at (x, y) is one of the remaining presses.
+	 * @param x x coordinate of the tile
+	 * @param y y coordinate of the tile
+	 * @return true if the tile should be pressed, otherwise false
+	 */
+	public boolean isHinted(int x, int y) {
+		update();
+		return remaining != null && board.isPressable(x, y) && BitUtil.get(remaining, y * width + x);
+	}
+	
+	/**
+	 * Returns the fewest presses that still clear the board, or -1 if it can't be solved.
+	 * @return number of remaining presses, or -1 if there is no solution
+	 */
+	public int getNumberOfRemainingPresses() {
+		update();
+		return (remaining == null) ? -1 : numberOfRemaining;
+	}
+	
+	/**
+	 * Returns the remaining presses as a solution, or null if the board can't be solved.
+	 * @return the remaining presses, or null if there is no solution
+	 */
+	public Solution getSolution() {
+		update();
+		return (remaining == null) ? null : new Solution(width, board.getHeight(), remaining.clone(), minimal);
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Brings the remaining presses up to date before they're read, solving the board again if it changed without
+	 * this service seeing it and re-minimizing if a press was added since the last minimum.
+	 */
+	private void update() {
+		if (board.longHash() != boardHash) {
+			log.debug("Board changed outside the hint service, solving it again.");
+			resolve();
+		} else if (needsMinimize) {
+			Solution solution = MinimumSearch.minimize(width, board.getHeight(), remaining, kernelBasis,
+					(board.getNumberOfWhiteTiles() + maxToggles - 1) / maxToggles);
+			setRemaining(solution);
+		}
+	}
+	
+	/**
+	 * Solves the board from scratch.
+	 */
+	private void resolve() {
+		setRemaining((table != null) ? ChasingSolver.solveMinimum(table, board) 
+				: LinearSolver.solve(system, board.toBitVector()));
+		boardHash = board.longHash();
+	}
+	
+	/**
+	 * Replaces the remaining presses with the given solution.
+	 * @param solution solution of the board, or null if it can't be solved
+	 */
+	private void setRemaining(Solution solution) {
+		remaining = (solution == null) ? null : solution.getPresses();
+		numberOfRemaining = (solution == null) ? 0 : solution.getNumberOfPresses();
+		minimal = solution != null && solution.isMinimal();
+		needsMinimize = false;
+		firstWord = 0;
+	}
+}
@@ -0,0 +1,268 @@
+package com.dunhili.lightsout.solver;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.utils.BitUtil;
+import com.dunhili.lightsout.utils.LevelUtil;
+
+/**
+ * Generates random levels of one size whose minimum number of moves falls in a difficulty band. Every layout is made
+ * by pressing random tiles on a blank board, so it's always solvable, and its ideal number of moves is then found 
+ * with the {@link ChasingSolver}. Each level only depends on the seed and its own index, so the same seed always
+ * produces the same levels no matter how many threads generate them.
+ * @author dunhili
+ */
+public class LevelGenerator {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(LevelGenerator.class);
+	
+	/** Number of levels generated per task. */
+	private static final int CHUNK_SIZE = 1024;
+	
+	/** Number of layouts tried for one level before giving up on the difficulty band. */
+	private static final int MAX_ATTEMPTS = 1000;
+	
+	private final int width;
+	private final int height;
+	private final int minMoves;
+	private final int maxMoves;
+	private final long seed;
+	private final String[] blankLayout;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a generator of width x height levels that take between minMoves and maxMoves moves to clear.
+	 * @param width width of the levels
+	 * @param height height of the levels
+	 * @param minMoves smallest ideal number of moves of a level
+	 * @param maxMoves largest ideal number of moves of a level
+	 * @param seed seed the levels are generated from
+	 */
+	public LevelGenerator(int width, int height, int minMoves, int maxMoves, long seed) {
+		if (width <= 0 || height <= 0) {
+			log.error("Level dimensions must be positive.");
+			throw new IllegalArgumentException("Level dimensions must be positive.");
+		} else if (minMoves < 1 || minMoves > maxMoves || maxMoves > width * height) {
+			log.error("Difficulty band [" + minMoves + ", " + maxMoves + "] is invalid.");
+			throw new IllegalArgumentException("Difficulty band [" + minMoves + ", " + maxMoves + "] is invalid. Must "
+					+ "be at least 1 move and at most " + (width * height) + " moves.");
+		}
+		this.width = width;
+		this.height = height;
+		this.minMoves = minMoves;
+		this.maxMoves = maxMoves;
+		this.seed = seed;
+		
+		char[] row = new char[width];
+		Arrays.fill(row, 'B');
+		this.blankLayout = new String[height];
+		Arrays.fill(blankLayout, new String(row));
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Generates the level with the given index. The same index and seed always give the same level.
+	 * @param index index of the level
+	 * @return the level
+	 * @throws IllegalStateException if no level in the difficulty band was found, eg because the board size can't 
+	 * need that many moves
+	 */
+	public Level generateLevel(int index) {
+		return generateLevel(index, ChasingSolver.getTable(width, height));
+	}
+	
+	/**
+	 * Generates the levels with indices [0, count) on the common fork-join pool and writes them to the stream in 
+	 * the {@link LevelUtil} format, in order of their index. Only a few chunks of levels are held in memory at a 
+	 * time. The stream isn't closed.
+	 * @param count number of levels to generate
+	 * @param out stream to write the levels to
+	 * @return number of levels written
+	 * @throws IOException if the stream can't be written to
+	 */
+	public int generate(int count, OutputStream out) throws IOException {
+		return generate(count, out, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Generates the levels with indices [0, count) on the given pool and writes them to the stream in the 
+	 * {@link LevelUtil} format, in order of their index. Only a few chunks of levels are held in memory at a time.
+	 * The stream isn't closed.
+	 * @param count number of levels to generate
+	 * @param out stream to write the levels to
+	 * @param pool pool to generate the levels on
+	 * @return number of levels written
+	 * @throws IOException if the stream can't be written to
+	 */
+	public int generate(int count, OutputStream out, ForkJoinPool pool) throws IOException {
+		log.info("Generating " + count + " levels...");
+		int window = Math.max(2, pool.getParallelism() * 2);
+		Deque<Future<List<Level>>> chunks = new ArrayDeque<Future<List<Level>>>();
+		int next = 0;
+		int written = 0;
+		try {
+			while (written < count) {
+				while (chunks.size() < window && next < count) {
+					chunks.add(pool.submit(new GenerateChunk(next, Math.min(count, next + CHUNK_SIZE))));
+					next += CHUNK_SIZE;
+				}
+				List<Level> levels = chunks.poll().get();
+				if (written > 0) {
+					out.write('\n');
+				}
+				LevelUtil.writeLevels(levels, out);
+				written += levels.size();
+			}
+		} catch (InterruptedException e) {
+			cancel(chunks);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while generating levels.");
+		} catch (ExecutionException e) {
+			cancel(chunks);
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Error while generating levels.", e.getCause());
+		}
+		log.info("Done generating levels.");
+		return written;
+	}
+	
+	/**
+	 * Generates a pack of levels to a file. The arguments are the width, height, minimum moves, maximum moves, 
+	 * number of levels, seed and output file.
+	 * @param args command line arguments
+	 * @throws IOException if the file can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 7) {
+			System.err.println("Usage: LevelGenerator <width> <height> <minMoves> <maxMoves> <count> <seed> <file>");
+			return;
+		}
+		LevelGenerator generator = new LevelGenerator(Integer.parseInt(args[0]), Integer.parseInt(args[1]), 
+				Integer.parseInt(args[2]), Integer.parseInt(args[3]), Long.parseLong(args[5]));
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(args[6]), 1 << 16);
+		try {
+			generator.generate(Integer.parseInt(args[4]), out);
+		} finally {
+			out.close();
+		}
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Generates the level with the given index using the given chasing table.
+	 * @param index index of the level
+	 * @param table chasing table for the size of the levels
+	 * @return the level
+	 */
+	private Level generateLevel(int index, ChasingTable table) {
+		SplittableRandom random = new SplittableRandom(seedFor(index));
+		int cells = width * height;
+		long[] pressed = new long[BitUtil.wordsFor(cells)];
+		for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+			GameBoard board = new GameBoard(blankLayout);
+			Arrays.fill(pressed, 0L);
+			int presses = minMoves + random.nextInt(maxMoves - minMoves + 1);
+			for (int i = 0; i < presses; ) {
+				int cell = random.nextInt(cells);
+				if (!BitUtil.get(pressed, cell)) {
+					BitUtil.set(pressed, cell);
+					board.swapTiles(cell % width, cell / width);
+					i++;
+				}
+			}
+			
+			// presses in the kernel cancel out, so the layout can need fewer moves than were made
+			Solution solution = ChasingSolver.solveMinimum(table, board);
+			int idealNumberOfMoves = solution.getNumberOfPresses();
+			if (solution.isMinimal() && idealNumberOfMoves >= minMoves && idealNumberOfMoves <= maxMoves) {
+				return new Level(board.saveBoard(), idealNumberOfMoves);
+			}
+		}
+		log.error("Couldn't generate level " + index + " in [" + minMoves + ", " + maxMoves + "] moves.");
+		throw new IllegalStateException("Couldn't generate a " + width + "x" + height + " level in [" + minMoves + ", "
+				+ maxMoves + "] moves after " + MAX_ATTEMPTS + " attempts.");
+	}
+	
+	/**
+	 * Returns the seed of the random numbers for the level with the given index, mixing the index into the 
+	 * generator's seed so neighbouring levels get unrelated numbers.
+	 * @param index index of the level
+	 * @return seed for the level
+	 */
+	private long seedFor(int index) {
+		long z = seed + (index + 1L) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Cancels every chunk that hasn't been written yet.
+	 * @param chunks chunks to cancel
+	 */
+	private static void cancel(Deque<Future<List<Level>>> chunks) {
+		for (Future<List<Level>> chunk : chunks) {
+			chunk.cancel(true);
+		}
+	}
+	
+	/**
+	 * Generates the levels with indices in the range [start, end) on one thread.
+	 */
+	private class GenerateChunk implements Callable<List<Level>> {
+		private final int start;
+		private final int end;
+		
+		/**
+		 * Creates a task to generate the levels in the range [start, end).
+		 * @param start index of the first level
+		 * @param end index after the last level
+		 */
+		GenerateChunk(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		public List<Level> call() {
+			ChasingTable table = ChasingSolver.getTable(width, height);
+			List<Level> levels = new ArrayList<Level>(end - start);
+			for (int i = start; i < end; i++) {
+				levels.add(generateLevel(i, table));
+			}
+			return levels;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.dunhili.lightsout.solver;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.Topology;
+import com.dunhili.lightsout.metrics.Metrics;
+
+/**
+ * Solves boards by Gaussian elimination over GF(2) on the full toggle system (see {@link ToggleSystem}), and
+ * finds the solution with the fewest presses by searching the kernel of the toggle matrix (see {@link MinimumSearch}).
+ * @author dunhili
+ */
+public class LinearSolver {
+	/** Default memory budget of the toggle system cache, 64 MB. */
+	public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+	
+	private static final Logger log = Logger.getLogger(LinearSolver.class);
+	
+	/** Toggle systems keyed by topology and board dimension, all within one budget. */
+	private static final DimensionCache<ToggleSystem> systems = new DimensionCache<ToggleSystem>(DEFAULT_CACHE_BYTES,
+			new DimensionCache.VariantLoader<ToggleSystem>() {
+				@Override
+				public ToggleSystem load(Object variant, int width, int height) {
+					if (variant == Topology.PLUS) {
+						return new ToggleSystem(width, height);
+					}
+					return new ToggleSystem(((Topology) variant).getMasks(width, height));
+				}
+			});
+	
+	/** Can't be instantiated. */
+	private LinearSolver() { }
+	
+	/**
+	 * Returns the solution with the fewest presses for the given board, or null if the board can't be solved. The 
+	 * board's topology decides which tiles each press toggles.
+	 * @param board board to solve
+	 * @return minimum solution, or null if there is no solution
+	 */
+	public static Solution solve(GameBoard board) {
+		return solve(getSystem(board.getTopology(), board.getWidth(), board.getHeight()), board.toBitVector());
+	}
+	
+	/**
+	 * Returns the solution with the fewest presses for the given WHITE tiles, or null if they can't be cleared.
+	 * @param system toggle system for the dimensions of the board
+	 * @param lights bit vector of the WHITE tiles
+	 * @return minimum solution, or null if there is no solution
+	 */
+	public static Solution solve(ToggleSystem system, long[] lights) {
+		long start = System.nanoTime();
+		try {
+			long[] presses = system.particularSolution(lights);
+			if (presses == null) {
+				log.debug("Board has no solution.");
+				return null;
+			}
+			return MinimumSearch.minimize(system.getWidth(), system.getHeight(), presses, system.getKernelBasis(),
+					MinimumSearch.lowerBound(lights, system.getMaxToggles()));
+		} finally {
+			Metrics.SOLVES.increment();
+			Metrics.SOLVE_LATENCY.recordSince(start);
+		}
+	}
+	
+	/**
+	 * Returns the toggle system for boards of dimension width x height, building it if it isn't cached yet.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return the toggle system
+	 */
+	public static ToggleSystem getSystem(int width, int height) {
+		return systems.get(Topology.PLUS, width, height);
+	}
+	
+	/**
+	 * Returns the toggle system for boards of dimension width x height with the given topology, building it if it 
+	 * isn't cached yet.
+	 * @param topology topology that decides which tiles each press toggles
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return the toggle system
+	 */
+	public static ToggleSystem getSystem(Topology topology, int width, int height) {
+		return systems.get(topology, width, height);
+	}
+	
+	/**
+	 * Returns the cache of toggle systems of every topology, to change its memory budget or read its counters.
+	 * @return the toggle system cache
+	 */
+	public static DimensionCache<ToggleSystem> getCache() {
+		return systems;
+	}
+	
+	/**
+	 * Returns the minimum number of presses needed to solve the given board, or -1 if the board can't be solved. If
+	 * the kernel of the board's toggle matrix has more than {@link MinimumSearch#MAX_EXHAUSTIVE_DIMENSION} vectors,
+	 * the count comes from a greedy search and is only an upper bound on the minimum; callers that need to know 
+	 * should use {@link #solve(GameBoard)} and check {@link Solution#isMinimal()}.
+	 * @param board board to solve
+	 * @return minimum number of presses, or an upper bound on it, or -1 if there is no solution
+	 */
+	public static int minimumPresses(GameBoard board) {
+		Solution solution = solve(board);
+		return (solution == null) ? -1 : solution.getNumberOfPresses();
+	}
+}
@@ -0,0 +1,195 @@
+package com.dunhili.lightsout.solver;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.utils.BitUtil;
+
+/**
+ * Finds the solution with the fewest presses out of a particular solution plus every combination of the kernel 
+ * basis vectors. The combinations are visited in Gray code order, so each step adds a single basis vector to the 
+ * current solution and only needs one XOR and popcount per word. Only the words that some kernel vector touches can
+ * change, so the search works on just those words.
+ * @author dunhili
+ */
+public class MinimumSearch {
+	/** Largest kernel dimension that is searched exhaustively (2^20 candidates). */
+	public static final int MAX_EXHAUSTIVE_DIMENSION = 20;
+	
+	private static final Logger log = Logger.getLogger(MinimumSearch.class);
+	
+	/** Can't be instantiated. */
+	private MinimumSearch() { }
+	
+	/**
+	 * Returns the solution with the fewest presses. The search stops as soon as it finds a solution with no more than
+	 * lowerBound presses, since nothing can beat it. If the kernel has more than {@link #MAX_EXHAUSTIVE_DIMENSION}
+	 * vectors then a greedy descent is used instead, and the result isn't guaranteed to be the minimum.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @param particular a particular solution
+	 * @param kernelBasis basis of the kernel of the toggle matrix
+	 * @param lowerBound a number of presses that no solution can go below
+	 * @return the solution with the fewest presses that was found
+	 */
+	public static Solution minimize(int width, int height, long[] particular, long[][] kernelBasis, int lowerBound) {
+		int k = kernelBasis.length;
+		if (k == 0) {
+			return new Solution(width, height, particular, true);
+		}
+		
+		// only the words that some kernel vector touches can change
+		int[] words = supportWords(kernelBasis, particular.length);
+		long[] current = gather(particular, words);
+		long[][] basis = new long[k][];
+		for (int i = 0; i < k; i++) {
+			basis[i] = gather(kernelBasis[i], words);
+		}
+		int fixedWeight = BitUtil.popCount(particular) - BitUtil.popCount(current);
+		
+		long[] presses = particular.clone();
+		if (k <= MAX_EXHAUSTIVE_DIMENSION) {
+			long best = grayCodeSearch(current, basis, lowerBound - fixedWeight);
+			for (int i = 0; i < k; i++) {
+				if ((best & (1L << i)) != 0L) {
+					BitUtil.xorInto(presses, kernelBasis[i]);
+				}
+			}
+			return new Solution(width, height, presses, true);
+		}
+		
+		if (log.isDebugEnabled()) {
+			log.debug("Kernel dimension " + k + " is too large to search exhaustively, using greedy descent.");
+		}
+		boolean[] used = greedyDescent(current, basis);
+		for (int i = 0; i < k; i++) {
+			if (used[i]) {
+				BitUtil.xorInto(presses, kernelBasis[i]);
+			}
+		}
+		int count = BitUtil.popCount(presses);
+		return new Solution(width, height, presses, count <= lowerBound);
+	}
+	
+	/**
+	 * Returns a lower bound on the number of presses needed to clear the given lights, given that a single press 
+	 * toggles at most maxToggles tiles.
+	 * @param lights bit vector of the WHITE tiles
+	 * @param maxToggles most tiles any single press toggles
+	 * @return lower bound on the number of presses
+	 */
+	public static int lowerBound(long[] lights, int maxToggles) {
+		return (BitUtil.popCount(lights) + maxToggles - 1) / maxToggles;
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Visits every combination of the basis vectors in Gray code order and returns the combination with the lowest
+	 * weight. The current vector is changed in place.
+	 * @param current the particular solution restricted to the support words
+	 * @param basis the kernel basis restricted to the support words
+	 * @param target weight at or below which the search can stop early
+	 * @return bit i is set if basis vector i is part of the best combination
+	 */
+	private static long grayCodeSearch(long[] current, long[][] basis, int target) {
+		int bestWeight = BitUtil.popCount(current);
+		long bestStep = 0L;
+		long steps = 1L << basis.length;
+		for (long step = 1; step < steps && bestWeight > target; step++) {
+			long[] vector = basis[Long.numberOfTrailingZeros(step)];
+			int weight = 0;
+			for (int w = 0; w < current.length; w++) {
+				current[w] ^= vector[w];
+				weight += Long.bitCount(current[w]);
+			}
+			if (weight < bestWeight) {
+				bestWeight = weight;
+				bestStep = step;
+			}
+		}
+		return bestStep ^ (bestStep >>> 1);
+	}
+	
+	/**
+	 * Repeatedly adds whichever single basis vector, or pair of basis vectors, lowers the weight the most until no 
+	 * addition helps. The current vector is changed in place.
+	 * @param current the particular solution restricted to the support words
+	 * @param basis the kernel basis restricted to the support words
+	 * @return entry i is true if basis vector i was added an odd number of times
+	 */
+	private static boolean[] greedyDescent(long[] current, long[][] basis) {
+		int k = basis.length;
+		boolean[] used = new boolean[k];
+		int weight = BitUtil.popCount(current);
+		boolean improved = true;
+		while (improved) {
+			improved = false;
+			int bestA = -1;
+			int bestB = -1;
+			int bestWeight = weight;
+			for (int a = 0; a < k; a++) {
+				for (int b = a; b < k; b++) {
+					int candidate = 0;
+					for (int w = 0; w < current.length; w++) {
+						long pair = (a == b) ? basis[a][w] : basis[a][w] ^ basis[b][w];
+						candidate += Long.bitCount(current[w] ^ pair);
+					}
+					if (candidate < bestWeight) {
+						bestWeight = candidate;
+						bestA = a;
+						bestB = b;
+					}
+				}
+			}
+			if (bestA >= 0) {
+				BitUtil.xorInto(current, basis[bestA]);
+				used[bestA] = !used[bestA];
+				if (bestB != bestA) {
+					BitUtil.xorInto(current, basis[bestB]);
+					used[bestB] = !used[bestB];
+				}
+				weight = bestWeight;
+				improved = true;
+			}
+		}
+		return used;
+	}
+	
+	/**
+	 * Returns the indices of the words that are non-zero in at least one of the vectors.
+	 * @param vectors vectors to check
+	 * @param length number of words in each vector
+	 * @return indices of the non-zero words
+	 */
+	private static int[] supportWords(long[][] vectors, int length) {
+		int count = 0;
+		int[] words = new int[length];
+		for (int w = 0; w < length; w++) {
+			for (long[] vector : vectors) {
+				if (vector[w] != 0L) {
+					words[count++] = w;
+					break;
+				}
+			}
+		}
+		int[] support = new int[count];
+		System.arraycopy(words, 0, support, 0, count);
+		return support;
+	}
+	
+	/**
+	 * Returns the given words of the vector.
+	 * @param vector vector to read
+	 * @param words indices of the words to read
+	 * @return the words of the vector
+	 */
+	private static long[] gather(long[] vector, int[] words) {
+		long[] gathered = new long[words.length];
+		for (int i = 0; i < words.length; i++) {
+			gathered[i] = vector[words[i]];
+		}
+		return gathered;
+	}
+}
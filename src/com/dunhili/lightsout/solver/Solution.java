@@ -0,0 +1,141 @@
+package com.dunhili.lightsout.solver;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.utils.BitUtil;
+
+/**
+ * A set of tiles to press that solves a board. Tile (x, y) is bit (y * width + x) of the press vector.
+ * @author dunhili
+ */
+public class Solution {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private final int width;
+	private final int height;
+	private final long[] presses;
+	private final int numberOfPresses;
+	private final boolean minimal;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a solution for a board of dimension width x height from the given press vector. The solution isn't
+	 * known to have the fewest presses.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @param presses bit vector of the tiles to press
+	 */
+	public Solution(int width, int height, long[] presses) {
+		this(width, height, presses, false);
+	}
+	
+	/**
+	 * Creates a solution for a board of dimension width x height from the given press vector.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @param presses bit vector of the tiles to press
+	 * @param minimal true if no other solution has fewer presses
+	 */
+	public Solution(int width, int height, long[] presses, boolean minimal) {
+		this.width = width;
+		this.height = height;
+		this.presses = presses;
+		this.numberOfPresses = BitUtil.popCount(presses);
+		this.minimal = minimal;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the width of the board this solution is for.
+	 * @return board width
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Returns the height of the board this solution is for.
+	 * @return board height
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns the number of tiles that need to be pressed.
+	 * @return number of presses in this solution
+	 */
+	public int getNumberOfPresses() {
+		return numberOfPresses;
+	}
+	
+	/**
+	 * Returns true if this solution is known to have the fewest presses of any solution for the board.
+	 * @return true if the solution is a minimum, otherwise false
+	 */
+	public boolean isMinimal() {
+		return minimal;
+	}
+	
+	/**
+	 * Returns true if the tile at (x, y) is pressed in this solution.
+	 * @param x x coordinate of the tile
+	 * @param y y coordinate of the tile
+	 * @return true if the tile is pressed, otherwise false
+	 */
+	public boolean isPressed(int x, int y) {
+		return BitUtil.get(presses, y * width + x);
+	}
+	
+	/**
+	 * Returns a copy of the press vector.
+	 * @return bit vector of the tiles to press
+	 */
+	public long[] getPresses() {
+		return presses.clone();
+	}
+	
+	/**
+	 * Presses every tile in this solution on the given board. A board of the same size has the whole solution 
+	 * pressed at once with {@link GameBoard#pressAll(long[])}.
+	 * @param board board to apply the solution to
+	 */
+	public void applyTo(GameBoard board) {
+		if (board.getWidth() == width && board.getHeight() == height) {
+			board.pressAll(presses);
+			return;
+		}
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (isPressed(x, y)) {
+					board.swapTiles(x, y);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns a String representation of the solution, with an 'X' for each pressed tile and a '.' for the rest.
+	 * Each row is separated by a newline character.
+	 * @return String representation of the solution
+	 */
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder((width + 1) * height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				str.append(isPressed(x, y) ? 'X' : '.');
+			}
+			str.append('\n');
+		}
+		str.deleteCharAt(str.length() - 1);
+		return str.toString();
+	}
+}
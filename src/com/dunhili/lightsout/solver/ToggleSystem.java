@@ -0,0 +1,340 @@
+package com.dunhili.lightsout.solver;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.ToggleMasks;
+import com.dunhili.lightsout.utils.BitUtil;
+
+/**
+ * The linear system over GF(2) for every board of a given width x height. Pressing tile c toggles a fixed set of
+ * tiles, so the presses x that clear a board with WHITE tiles b are the solutions of A x = b, where column c of the
+ * toggle matrix A is the set of tiles toggled by pressing c. The system is reduced once with bit-packed Gaussian 
+ * elimination and can then solve any board of the same dimensions.
+ * @author dunhili
+ */
+public class ToggleSystem implements CacheEntry {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(ToggleSystem.class);
+	
+	private final int width;
+	private final int height;
+	private final int cells;
+	
+	/** 
+	 * Row t is the set of presses that toggle tile t, so column c is the set of tiles toggled by pressing tile c.
+	 * The built-in topologies are symmetric, so row c is also the set of tiles toggled by pressing c.
+	 */
+	private final long[][] toggleMatrix;
+	
+	/** Most tiles toggled by a single press, used to bound how few presses can clear a board. */
+	private final int maxToggles;
+	
+	/** Reduced row echelon form of the toggle matrix. */
+	private final long[][] reducedMatrix;
+	
+	/** The row operations used to reduce the toggle matrix, ie transform x toggleMatrix = reducedMatrix. */
+	private final long[][] transform;
+	
+	/** Column of the leading bit of each of the first rank rows of the reduced matrix. */
+	private final int[] pivotColumns;
+	private final int rank;
+	
+	/** Basis of the press patterns that don't change the board at all. */
+	private final long[][] kernelBasis;
+	
+	private final long sizeInBytes;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Builds and reduces the toggle system for boards of dimension width x height.
+	 * @param width width of the board
+	 * @param height height of the board
+	 */
+	public ToggleSystem(int width, int height) {
+		this(width, height, buildToggleMatrix(width, height), 5);
+	}
+	
+	/**
+	 * Builds and reduces the toggle system for the boards the given toggle masks are for. A blocked tile is given a
+	 * press that only toggles itself, so it's never pressed in a solution and doesn't add to the kernel.
+	 * @param masks toggle masks of the board shape and topology
+	 */
+	public ToggleSystem(ToggleMasks masks) {
+		this(masks.getWidth(), masks.getHeight(), buildToggleMatrix(masks), Math.max(1, masks.getMaxToggles()));
+	}
+	
+	/**
+	 * Reduces the given toggle matrix for boards of dimension width x height.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @param toggleMatrix row t is the set of presses that toggle tile t
+	 * @param maxToggles most tiles toggled by a single press
+	 */
+	private ToggleSystem(int width, int height, long[][] toggleMatrix, int maxToggles) {
+		this.width = width;
+		this.height = height;
+		this.cells = width * height;
+		this.toggleMatrix = toggleMatrix;
+		this.maxToggles = maxToggles;
+		this.reducedMatrix = new long[cells][];
+		this.transform = new long[cells][];
+		this.pivotColumns = new int[cells];
+		this.rank = reduce();
+		this.kernelBasis = buildKernelBasis();
+		this.sizeInBytes = DimensionCache.sizeOf(toggleMatrix) + DimensionCache.sizeOf(reducedMatrix) 
+				+ DimensionCache.sizeOf(transform) + DimensionCache.sizeOf(kernelBasis) + 4L * pivotColumns.length;
+		
+		if (log.isDebugEnabled()) {
+			log.debug("Toggle system " + width + "x" + height + " has rank " + rank + " and kernel dimension " 
+					+ kernelBasis.length + ".");
+		}
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the width of the boards this system solves.
+	 * @return board width
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Returns the height of the boards this system solves.
+	 * @return board height
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns the rank of the toggle matrix.
+	 * @return rank of the toggle matrix
+	 */
+	public int getRank() {
+		return rank;
+	}
+	
+	/**
+	 * Returns the largest number of tiles toggled by a single press.
+	 * @return most tiles toggled by one press
+	 */
+	public int getMaxToggles() {
+		return maxToggles;
+	}
+	
+	@Override
+	public long getSizeInBytes() {
+		return sizeInBytes;
+	}
+	
+	/**
+	 * Returns the basis of the kernel of the toggle matrix, ie press patterns that leave the board unchanged. Adding
+	 * any combination of these to a solution gives another solution.
+	 * @return kernel basis vectors
+	 */
+	public long[][] getKernelBasis() {
+		return kernelBasis;
+	}
+	
+	/**
+	 * Returns the set of presses that toggle the given tile. For the built-in topologies this is also the set of 
+	 * tiles toggled by pressing the given tile.
+	 * @param cell index (y * width + x) of the tile
+	 * @return bit vector of the presses that toggle the tile
+	 */
+	public long[] getToggleMask(int cell) {
+		return toggleMatrix[cell];
+	}
+	
+	/**
+	 * Returns a set of presses that turns every WHITE tile in the given vector BLACK, or null if the board can't be 
+	 * solved. The result is one particular solution and isn't necessarily the one with the fewest presses.
+	 * @param lights bit vector of the WHITE tiles, as returned by {@link com.dunhili.lightsout.board.GameBoard#toBitVector()}
+	 * @return bit vector of the tiles to press, or null if there is no solution
+	 */
+	public long[] particularSolution(long[] lights) {
+		for (int i = rank; i < cells; i++) {
+			if (BitUtil.dot(transform[i], lights)) {
+				return null;
+			}
+		}
+		
+		long[] presses = new long[BitUtil.wordsFor(cells)];
+		for (int i = 0; i < rank; i++) {
+			if (BitUtil.dot(transform[i], lights)) {
+				BitUtil.set(presses, pivotColumns[i]);
+			}
+		}
+		return presses;
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Builds the toggle matrix, where pressing a tile toggles itself and the tiles directly above, below, left and 
+	 * right of it.
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return the toggle matrix
+	 */
+	private static long[][] buildToggleMatrix(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			log.error("Board dimensions must be positive.");
+			throw new IllegalArgumentException("Board dimensions must be positive.");
+		}
+		
+		int cells = width * height;
+		int words = BitUtil.wordsFor(cells);
+		long[][] matrix = new long[cells][];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int cell = y * width + x;
+				long[] row = new long[words];
+				BitUtil.set(row, cell);
+				if (x > 0) {
+					BitUtil.set(row, cell - 1);
+				}
+				if (x < width - 1) {
+					BitUtil.set(row, cell + 1);
+				}
+				if (y > 0) {
+					BitUtil.set(row, cell - width);
+				}
+				if (y < height - 1) {
+					BitUtil.set(row, cell + width);
+				}
+				matrix[cell] = row;
+			}
+		}
+		return matrix;
+	}
+	
+	/**
+	 * Builds the toggle matrix from the toggle masks of a topology, where row t has a bit for every press that 
+	 * toggles tile t.
+	 * @param masks toggle masks of the board shape and topology
+	 * @return the toggle matrix
+	 */
+	private static long[][] buildToggleMatrix(ToggleMasks masks) {
+		int cells = masks.getWidth() * masks.getHeight();
+		int words = BitUtil.wordsFor(cells);
+		long[][] matrix = new long[cells][];
+		for (int cell = 0; cell < cells; cell++) {
+			matrix[cell] = new long[words];
+		}
+		for (int cell = 0; cell < cells; cell++) {
+			if (masks.isBlocked(cell)) {
+				BitUtil.set(matrix[cell], cell);
+				continue;
+			}
+			for (int toggled : masks.getToggledCells(cell)) {
+				BitUtil.set(matrix[toggled], cell);
+			}
+		}
+		return matrix;
+	}
+	
+	/**
+	 * Reduces the toggle matrix to reduced row echelon form with Gauss-Jordan elimination, recording the row 
+	 * operations in the transform matrix.
+	 * @return rank of the toggle matrix
+	 */
+	private int reduce() {
+		int words = BitUtil.wordsFor(cells);
+		for (int i = 0; i < cells; i++) {
+			reducedMatrix[i] = toggleMatrix[i].clone();
+			transform[i] = new long[words];
+			BitUtil.set(transform[i], i);
+		}
+		
+		int pivotRow = 0;
+		for (int column = 0; column < cells && pivotRow < cells; column++) {
+			int word = column >>> 6;
+			long bit = 1L << column;
+			
+			int found = -1;
+			for (int i = pivotRow; i < cells; i++) {
+				if ((reducedMatrix[i][word] & bit) != 0L) {
+					found = i;
+					break;
+				}
+			}
+			if (found < 0) {
+				continue;
+			}
+			swapRows(found, pivotRow);
+			
+			long[] pivot = reducedMatrix[pivotRow];
+			long[] pivotTransform = transform[pivotRow];
+			for (int i = 0; i < cells; i++) {
+				if (i != pivotRow && (reducedMatrix[i][word] & bit) != 0L) {
+					// columns before this one are already clear in the pivot row, so start at its word
+					BitUtil.xorInto(reducedMatrix[i], word, pivot, word, words - word);
+					BitUtil.xorInto(transform[i], pivotTransform);
+				}
+			}
+			pivotColumns[pivotRow] = column;
+			pivotRow++;
+		}
+		return pivotRow;
+	}
+	
+	/**
+	 * Builds a basis of the kernel from the reduced matrix, one vector per free (non-pivot) column.
+	 * @return the kernel basis
+	 */
+	private long[][] buildKernelBasis() {
+		int words = BitUtil.wordsFor(cells);
+		boolean[] isPivot = new boolean[cells];
+		for (int i = 0; i < rank; i++) {
+			isPivot[pivotColumns[i]] = true;
+		}
+		
+		long[][] basis = new long[cells - rank][];
+		int k = 0;
+		for (int free = 0; free < cells; free++) {
+			if (isPivot[free]) {
+				continue;
+			}
+			long[] vector = new long[words];
+			BitUtil.set(vector, free);
+			for (int i = 0; i < rank; i++) {
+				if (BitUtil.get(reducedMatrix[i], free)) {
+					BitUtil.set(vector, pivotColumns[i]);
+				}
+			}
+			basis[k++] = vector;
+		}
+		return basis;
+	}
+	
+	/**
+	 * Swaps two rows of the reduced matrix along with their rows of the transform.
+	 * @param a first row
+	 * @param b second row
+	 */
+	private void swapRows(int a, int b) {
+		if (a == b) {
+			return;
+		}
+		long[] row = reducedMatrix[a];
+		reducedMatrix[a] = reducedMatrix[b];
+		reducedMatrix[b] = row;
+		
+		row = transform[a];
+		transform[a] = transform[b];
+		transform[b] = row;
+	}
+}
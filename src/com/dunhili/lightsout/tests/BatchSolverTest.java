@@ -0,0 +1,154 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.solver.BatchResult;
+import com.dunhili.lightsout.solver.BatchSolver;
+import com.dunhili.lightsout.solver.ChasingSolver;
+import com.dunhili.lightsout.solver.LinearSolver;
+import com.dunhili.lightsout.solver.Solution;
+import com.dunhili.lightsout.utils.LevelReader;
+import com.dunhili.lightsout.utils.LevelUtil;
+
+/**
+ * Tests the {@link BatchSolver} class.
+ * @author dunhili
+ */
+public class BatchSolverTest {
+	
+	/**
+	 * Tests {@link BatchSolver#solve(List)} on a pack large enough to be split across the pool.
+	 */
+	@Test
+	public void solveOnForkJoinPool() {
+		BatchResult result = BatchSolver.solve(createPack(1000));
+		assertEquals(1000, result.getNumberOfLevels());
+		assertEquals(6, result.getOptimalMoves(3));
+		assertEquals(-1, result.getOptimalMoves(4));
+		assertEquals(Arrays.asList(3, 4), result.getMismatches().subList(0, 2));
+		assertEquals(400, result.getMismatches().size());
+	}
+	
+	/**
+	 * Tests {@link BatchSolver#solve(List, ExecutorService, int)} with a caller supplied executor.
+	 */
+	@Test
+	public void solveOnExecutor() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			BatchResult result = BatchSolver.solve(createPack(10), executor, 3);
+			assertEquals(10, result.getNumberOfLevels());
+			assertEquals(Arrays.asList(3, 4, 8, 9), result.getMismatches());
+			assertEquals(2, result.getOptimalMoves(0));
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Tests {@link BatchSolver#solve(Iterator, ExecutorService, int)} on a pack streamed through a 
+	 * {@link LevelReader}, large enough to need several chunks.
+	 */
+	@Test
+	public void solveStream() throws Exception {
+		List<Level> pack = createPack(5000);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		LevelUtil.writeLevels(pack, out);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		LevelReader reader = new LevelReader(new ByteArrayInputStream(out.toByteArray()));
+		try {
+			BatchResult streamed = BatchSolver.solve(reader, executor, 2);
+			BatchResult listed = BatchSolver.solve(pack);
+			assertEquals(5000, streamed.getNumberOfLevels());
+			assertEquals(listed.getMismatches(), streamed.getMismatches());
+			for (int i = 0; i < 5000; i++) {
+				assertEquals(listed.getOptimalMoves(i), streamed.getOptimalMoves(i));
+			}
+			assertEquals(0, BatchSolver.solve(new ArrayList<Level>().iterator(), executor, 2).getNumberOfLevels());
+		} finally {
+			reader.close();
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Tests that on a board whose kernel is too large to search exhaustively, a stored ideal number of moves that 
+	 * isn't beaten is reported as unproven rather than as a mismatch, both by the batch solver and by 
+	 * {@link LevelUtil#verifyIdealNumberOfMoves(List)}.
+	 */
+	@Test
+	public void unprovenLevels() {
+		GameBoard board = new GameBoard(39, 39);
+		board.swapTiles(5, 5);
+		board.swapTiles(20, 30);
+		Solution solution = ChasingSolver.solveMinimum(board);
+		assertFalse(solution.isMinimal());
+		int found = solution.getNumberOfPresses();
+		
+		String[] layout = board.saveBoard();
+		List<Level> levels = new ArrayList<Level>();
+		levels.add(new Level(layout, found));
+		levels.add(new Level(layout, found - 1));
+		levels.add(new Level(layout, found + 1));
+		levels.add(new Level(layout, -1));
+		BatchResult result = BatchSolver.solve(levels);
+		assertEquals(Arrays.asList(0, 1), result.getUnproven());
+		assertEquals(Arrays.asList(2, 3), result.getMismatches());
+		assertEquals(found, result.getOptimalMoves(0));
+		
+		// the dense solver's greedy search can end somewhere else, so check against its own count
+		int linear = LinearSolver.solve(board).getNumberOfPresses();
+		levels.clear();
+		levels.add(new Level(layout, linear));
+		levels.add(new Level(layout, linear + 1));
+		levels.add(new Level(layout, -1));
+		assertEquals(Arrays.asList(1, 2), LevelUtil.verifyIdealNumberOfMoves(levels));
+	}
+	
+	/**
+	 * Tests a pack where every ideal number of moves is correct.
+	 */
+	@Test
+	public void validPack() {
+		List<Level> levels = new ArrayList<Level>();
+		levels.add(new Level(new String[] {"BWW", "WBW", "WWB"}, 2));
+		levels.add(new Level(new String[] {"BWWBWW", "BWWBWW", "BBWBWB", "BBBWWB", "BWWBWB"}, 10));
+		assertTrue(BatchSolver.solve(levels).isValid());
+	}
+	
+	/**
+	 * Creates a pack of levels where every fourth and fifth level out of five is wrong: the fourth has the wrong ideal 
+	 * number of moves and the fifth can't be solved.
+	 * @param size number of levels in the pack
+	 * @return the levels
+	 */
+	private static List<Level> createPack(int size) {
+		List<Level> levels = new ArrayList<Level>();
+		for (int i = 0; i < size; i++) {
+			switch (i % 5) {
+				case 0: levels.add(new Level(new String[] {"BWW", "WBW", "WWB"}, 2)); break;
+				case 1: levels.add(new Level(new String[] {"BWW", "BBB", "BBW"}, 4)); break;
+				case 2: levels.add(new Level(new String[] {"BBWB", "WWWW", "BWBB"}, 4)); break;
+				case 3: levels.add(new Level(new String[] {"WWW", "BBB", "BWB"}, 7)); break;
+				default: levels.add(new Level(new String[] {"WBBBB", "BBBBB", "BBBBB", "BBBBB", "BBBBB"}, 3)); break;
+			}
+		}
+		return levels;
+	}
+}
@@ -0,0 +1,89 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dunhili.lightsout.analysis.BoardAnalysis;
+import com.dunhili.lightsout.analysis.DimensionReport;
+import com.dunhili.lightsout.solver.ChasingTable;
+
+/**
+ * Tests the {@link BoardAnalysis} class.
+ * @author dunhili
+ */
+public class BoardAnalysisTest {
+	
+	/**
+	 * Tests the exact distribution of the classic 3x3 and 4x4 boards.
+	 */
+	@Test
+	public void enumerateSmallBoards() {
+		BoardAnalysis analysis = new BoardAnalysis(0, 0L);
+		DimensionReport three = analysis.analyze(3, 3);
+		assertEquals(9, three.getRank());
+		assertEquals(1.0, three.getSolvableFraction(), 0.0);
+		assertEquals(512, three.getSamples());
+		assertEquals(9, three.getMaxMoves());
+		assertEquals(1, three.getMoveCount(9));
+		assertTrue(three.isExhaustive());
+		
+		// 4x4 has a kernel of dimension 4, so only 1 in 16 layouts can be solved
+		DimensionReport four = analysis.analyze(4, 4);
+		assertEquals(4, four.getKernelDimension());
+		assertEquals(4096, four.getSamples());
+		assertEquals(1.0 / 16, four.getSolvableFraction(), 0.0);
+	}
+	
+	/**
+	 * Tests that the enumerated kernel dimension matches the chasing table, and that larger boards are sampled.
+	 */
+	@Test
+	public void sweep() throws Exception {
+		BoardAnalysis analysis = new BoardAnalysis(200, 19L);
+		List<DimensionReport> reports = analysis.sweep(1, 6, 4, 5);
+		assertEquals(12, reports.size());
+		for (DimensionReport report : reports) {
+			assertEquals(new ChasingTable(report.getWidth(), report.getHeight()).getKernelDimension(), 
+					report.getKernelDimension());
+		}
+		
+		DimensionReport fiveByFive = reports.get(4 * 2 + 1);
+		assertEquals(5, fiveByFive.getWidth());
+		assertEquals(5, fiveByFive.getHeight());
+		assertEquals(2, fiveByFive.getKernelDimension());
+		assertFalse(fiveByFive.isExhaustive());
+		assertTrue(fiveByFive.isExact());
+		assertEquals(200, fiveByFive.getSamples());
+		assertTrue(fiveByFive.getMaxMoves() <= 15);
+		
+		// large boards only get their rank
+		analysis.setMaxSampledTiles(100);
+		DimensionReport large = analysis.analyze(79, 79);
+		assertEquals(64, large.getKernelDimension());
+		assertEquals(0, large.getSamples());
+	}
+	
+	/**
+	 * Tests the CSV and JSON output.
+	 */
+	@Test
+	public void writeReports() throws Exception {
+		List<DimensionReport> reports = new BoardAnalysis(0, 0L).sweep(2, 2, 2, 3);
+		StringWriter csv = new StringWriter();
+		BoardAnalysis.writeCsv(reports, csv);
+		String[] lines = csv.toString().split("\n");
+		assertEquals(3, lines.length);
+		assertEquals("2,2,4,4,0,1,16,true,true,2.0000,4,1;4;6;4;1", lines[1]);
+		
+		StringWriter json = new StringWriter();
+		BoardAnalysis.writeJson(reports, json);
+		assertTrue(json.toString().startsWith("[\n  {\"width\": 2, \"height\": 2, \"rank\": 4"));
+		assertTrue(json.toString().contains("\"distribution\": [1, 4, 6, 4, 1]"));
+	}
+}
@@ -0,0 +1,96 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.ui.BoardComponent;
+
+/**
+ * Tests the {@link BoardComponent} class.
+ * @author dunhili
+ */
+public class BoardComponentTest {
+	
+	/**
+	 * Tests that points of the component map to the right tiles, with the board centered in the component.
+	 */
+	@Test
+	public void cellAt() {
+		BoardComponent component = new BoardComponent(new GameBoard(5, 4));
+		component.setSize(120, 80);
+		assertEquals(20, component.getTileSize());
+		assertEquals(new Rectangle(30, 40, 20, 20), component.getTileBounds(1, 2));
+		assertEquals(2 * 5 + 1, component.getCellAt(35, 45));
+		assertEquals(-1, component.getCellAt(5, 45));
+		assertEquals(-1, component.getCellAt(115, 45));
+	}
+	
+	/**
+	 * Tests that clicks press tiles, undo takes them back, and listeners hear about every move and the win.
+	 */
+	@Test
+	public void clicksPressTiles() {
+		GameBoard board = new GameBoard("BWB", "WWW", "BWB");
+		BoardComponent component = new BoardComponent(board);
+		component.setSize(30, 30);
+		final List<String> commands = new ArrayList<String>();
+		component.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				commands.add(e.getActionCommand());
+			}
+		});
+		
+		component.dispatchEvent(new MouseEvent(component, MouseEvent.MOUSE_PRESSED, 0L, 0, 5, 5, 1, false));
+		assertArrayEquals(new String[] {"WBB", "BWW", "BWB"}, board.saveBoard());
+		assertTrue(component.undo());
+		assertFalse(component.undo());
+		
+		assertEquals(4, component.showHint());
+		component.dispatchEvent(new MouseEvent(component, MouseEvent.MOUSE_PRESSED, 0L, 0, 15, 15, 1, false));
+		assertTrue(board.isGameWon());
+		assertEquals(1, component.getHistory().getNumberOfMoves());
+		assertEquals(-1, component.showHint());
+		
+		List<String> expected = new ArrayList<String>();
+		expected.add(BoardComponent.PRESS_COMMAND);
+		expected.add(BoardComponent.PRESS_COMMAND);
+		expected.add(BoardComponent.WON_COMMAND);
+		assertEquals(expected, commands);
+	}
+	
+	/**
+	 * Tests that painting only a single tile's rectangle only touches that tile.
+	 */
+	@Test
+	public void paintClip() {
+		BoardComponent component = new BoardComponent(new GameBoard("WB", "BW"));
+		component.setSize(20, 20);
+		BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.BLUE);
+		g.fillRect(0, 0, 20, 20);
+		g.setClip(component.getTileBounds(1, 0));
+		component.paint(g);
+		g.dispose();
+		
+		assertEquals(Color.DARK_GRAY.getRGB(), image.getRGB(15, 5));
+		assertEquals(Color.BLUE.getRGB(), image.getRGB(5, 5));
+		assertEquals(Color.BLUE.getRGB(), image.getRGB(15, 15));
+	}
+}
@@ -0,0 +1,67 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.solver.ChasingSolver;
+import com.dunhili.lightsout.solver.Solution;
+
+/**
+ * Tests the {@link ChasingSolver} class.
+ * @author dunhili
+ */
+public class ChasingSolverTest {
+	
+	/**
+	 * Tests that applying the solution from {@link ChasingSolver#solve(GameBoard)} wins the game.
+	 */
+	@Test
+	public void solutionWinsTheGame() {
+		GameBoard board = new GameBoard("BWWBWW", "BWWBWW", "BBWBWB", "BBBWWB", "BWWBWB");
+		Solution solution = ChasingSolver.solve(board);
+		solution.applyTo(board);
+		assertTrue(board.isGameWon());
+		
+		// 3x3 boards have a unique solution
+		assertEquals(6, ChasingSolver.solve(new GameBoard("WWW", "BBB", "BWB")).getNumberOfPresses());
+	}
+	
+	/**
+	 * Tests {@link ChasingSolver#solve(GameBoard)} on a board that is wider than a single word.
+	 */
+	@Test
+	public void solveWideBoard() {
+		Random random = new Random(42);
+		GameBoard board = new GameBoard(130, 20);
+		for (int i = 0; i < 500; i++) {
+			board.swapTiles(random.nextInt(130), random.nextInt(20));
+		}
+		
+		ChasingSolver.solve(board).applyTo(board);
+		assertTrue(board.isGameWon());
+	}
+	
+	/**
+	 * Tests {@link ChasingSolver#solve(GameBoard)} for a board that can't be solved.
+	 */
+	@Test
+	public void unsolvableBoard() {
+		assertNull(ChasingSolver.solve(new GameBoard("WBBBB", "BBBBB", "BBBBB", "BBBBB", "BBBBB")));
+	}
+	
+	/**
+	 * Tests that {@link ChasingSolver#getTable(int, int)} builds each table only once.
+	 */
+	@Test
+	public void tablesAreCached() {
+		assertSame(ChasingSolver.getTable(7, 9), ChasingSolver.getTable(7, 9));
+		assertEquals(2, ChasingSolver.getTable(5, 5).getKernelDimension());
+	}
+}
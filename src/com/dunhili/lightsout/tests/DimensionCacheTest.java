@@ -0,0 +1,80 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.dunhili.lightsout.solver.DimensionCache;
+import com.dunhili.lightsout.solver.ToggleSystem;
+
+/**
+ * Tests the {@link DimensionCache} class.
+ * @author dunhili
+ */
+public class DimensionCacheTest {
+	
+	/**
+	 * Loads a new toggle system for every miss.
+	 */
+	private static final DimensionCache.Loader<ToggleSystem> LOADER = new DimensionCache.Loader<ToggleSystem>() {
+		@Override
+		public ToggleSystem load(int width, int height) {
+			return new ToggleSystem(width, height);
+		}
+	};
+	
+	/**
+	 * Tests that {@link DimensionCache#get(int, int)} counts hits and misses.
+	 */
+	@Test
+	public void hitsAndMisses() {
+		DimensionCache<ToggleSystem> cache = new DimensionCache<ToggleSystem>(1024 * 1024, LOADER);
+		ToggleSystem system = cache.get(3, 3);
+		assertSame(system, cache.get(3, 3));
+		cache.get(4, 3);
+		
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(0, cache.getEvictions());
+		assertEquals(2, cache.size());
+	}
+	
+	/**
+	 * Tests that the least recently used entry is evicted once the cache is over its budget.
+	 */
+	@Test
+	public void evictLeastRecentlyUsed() {
+		long entrySize = new ToggleSystem(5, 5).getSizeInBytes();
+		DimensionCache<ToggleSystem> cache = new DimensionCache<ToggleSystem>(2 * entrySize, LOADER);
+		ToggleSystem first = cache.get(5, 5);
+		cache.get(1, 25);	// same number of tiles, so the same size
+		cache.get(5, 5);	// touch 5x5 so 1x25 is now the least recently used
+		cache.get(25, 1);
+		assertEquals(1, cache.getEvictions());
+		assertEquals(2, cache.size());
+		assertSame(first, cache.get(5, 5));
+		
+		cache.get(1, 25);
+		assertEquals(4, cache.getMisses());
+		assertEquals(2, cache.getEvictions());
+	}
+	
+	/**
+	 * Tests that lowering the budget with {@link DimensionCache#setMaxBytes(long)} evicts entries.
+	 */
+	@Test
+	public void shrinkBudget() {
+		DimensionCache<ToggleSystem> cache = new DimensionCache<ToggleSystem>(1024 * 1024, LOADER);
+		cache.get(3, 3);
+		cache.get(4, 4);
+		cache.setMaxBytes(0);
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getSizeInBytes());
+		assertEquals(2, cache.getEvictions());
+		
+		// entries larger than the whole budget are returned but not cached
+		cache.get(3, 3);
+		assertEquals(0, cache.size());
+	}
+}
@@ -5,6 +5,8 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertArrayEquals;
 
+import java.util.Random;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -184,7 +186,7 @@ public class GameBoardTest {
 		board = new GameBoard("BBB", "WWW");
 		assertEquals("BBB\nWWW", board.toString());
 		
-
+		
 		board = new GameBoard("BBBW", "BWWW", "BWBW");
 		assertEquals(TileColor.WHITE, board.getTileAt(3, 0));
 		assertEquals("BBBW\nBWWW\nBWBW", board.toString());
@@ -239,4 +241,167 @@ public class GameBoardTest {
 		board.swapTiles(2, 2);
 		assertTrue(board.isGameWon());
 	}
+	
+	/**
+	 * Tests the {@link GameBoard#swapTiles(int, int)} method on a board wider than a single word of tiles, where
+	 * a press crosses from one word of a row into the next.
+	 */
+	@Test
+	public void swapTilesAcrossWords() {
+		board = new GameBoard(130, 3);
+		board.swapTiles(63, 1);
+		assertEquals(TileColor.BLACK, board.getTileAt(62, 1));
+		assertEquals(TileColor.BLACK, board.getTileAt(63, 1));
+		assertEquals(TileColor.BLACK, board.getTileAt(64, 1));
+		assertEquals(TileColor.BLACK, board.getTileAt(63, 0));
+		assertEquals(TileColor.BLACK, board.getTileAt(63, 2));
+		assertEquals(TileColor.WHITE, board.getTileAt(65, 1));
+		
+		board.swapTiles(128, 1);
+		assertEquals(TileColor.BLACK, board.getTileAt(127, 1));
+		assertEquals(TileColor.BLACK, board.getTileAt(128, 1));
+		assertEquals(TileColor.BLACK, board.getTileAt(129, 1));
+		assertEquals(TileColor.WHITE, board.getTileAt(126, 1));
+		
+		board.swapTiles(129, 0);
+		assertEquals(TileColor.BLACK, board.getTileAt(129, 0));
+		assertEquals(TileColor.WHITE, board.getTileAt(128, 0));
+		assertEquals(TileColor.WHITE, board.getTileAt(129, 1));
+		assertEquals(TileColor.INVALID, board.getTileAt(130, 0));
+	}
+	
+	/**
+	 * Tests the {@link GameBoard#isGameWon()} method on a board wider than a single word of tiles.
+	 */
+	@Test
+	public void winWideBoard() {
+		board = new GameBoard(70, 1);
+		assertFalse(board.isGameWon());
+		for (int i = 0; i < 70; i++) {
+			board.setTileAt(i, 0, TileColor.BLACK);
+		}
+		assertTrue(board.isGameWon());
+		board.setTileAt(69, 0, TileColor.WHITE);
+		assertFalse(board.isGameWon());
+		assertEquals(70, board.saveBoard()[0].length());
+	}
+	
+	/**
+	 * Tests that the {@link GameBoard#getNumberOfWhiteTiles()} count stays equal to the tiles on the board through 
+	 * swaps, sets and resets, including swaps across word boundaries and along the edges.
+	 */
+	@Test
+	public void whiteTileCount() {
+		board = new GameBoard(130, 3);
+		assertEquals(390, board.getNumberOfWhiteTiles());
+		
+		Random random = new Random(15);
+		for (int i = 0; i < 2000; i++) {
+			int x = random.nextInt(130);
+			int y = random.nextInt(3);
+			if (random.nextInt(4) == 0) {
+				board.setTileAt(x, y, random.nextBoolean() ? TileColor.WHITE : TileColor.BLACK);
+			} else {
+				board.swapTiles(x, y);
+			}
+			if (i % 100 == 0) {
+				assertEquals(countWhiteTiles(board), board.getNumberOfWhiteTiles());
+			}
+		}
+		assertEquals(countWhiteTiles(board), board.getNumberOfWhiteTiles());
+		
+		board.resetBoard(new GameBoard(130, 3).saveBoard());
+		assertEquals(390, board.getNumberOfWhiteTiles());
+		
+		board = new GameBoard("WBW", "BBB", "BWB");
+		assertEquals(3, board.getNumberOfWhiteTiles());
+		board.resetBoard("BBB", "BBB", "BBB");
+		assertEquals(0, board.getNumberOfWhiteTiles());
+		assertTrue(board.isGameWon());
+	}
+	
+	/**
+	 * Counts the WHITE tiles on the board one tile at a time.
+	 * @param board board to count
+	 * @return number of WHITE tiles
+	 */
+	private static int countWhiteTiles(GameBoard board) {
+		int count = 0;
+		for (int y = 0; y < board.getHeight(); y++) {
+			for (int x = 0; x < board.getWidth(); x++) {
+				if (board.getTileAt(x, y) == TileColor.WHITE) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Tests that boards that reach the same tiles by different moves have the same hash and are equal.
+	 */
+	@Test
+	public void hashAndEquals() {
+		GameBoard first = new GameBoard(70, 4);
+		GameBoard second = new GameBoard(70, 4);
+		long emptyHash = first.longHash();
+		assertEquals(emptyHash, second.longHash());
+		
+		first.swapTiles(63, 1);
+		first.swapTiles(0, 0);
+		assertFalse(first.equals(second));
+		assertFalse(first.longHash() == second.longHash());
+		
+		second.swapTiles(0, 0);
+		second.swapTiles(63, 1);
+		assertEquals(first.longHash(), second.longHash());
+		assertEquals(first.hashCode(), second.hashCode());
+		assertEquals(first, second);
+		
+		// the hash follows the tiles, not the moves
+		GameBoard copy = new GameBoard(first.saveBoard());
+		assertEquals(first.longHash(), copy.longHash());
+		assertEquals(first, copy);
+		
+		first.swapTiles(0, 0);
+		first.swapTiles(63, 1);
+		assertEquals(emptyHash, first.longHash());
+		
+		// same tiles on a different size of board
+		assertFalse(new GameBoard("BB").equals(new GameBoard("B", "B")));
+		assertFalse(new GameBoard("BB").longHash() == new GameBoard("B", "B").longHash());
+	}
+	
+	/**
+	 * Tests that pressing a whole pattern at once gives the same board, count and hash as pressing each tile, for 
+	 * widths inside one word, exactly one word and across words.
+	 */
+	@Test
+	public void pressAll() {
+		Random random = new Random(24);
+		int[] widths = {1, 3, 64, 65, 130};
+		for (int width : widths) {
+			int height = 5;
+			long[] presses = new long[(width * height + 63) / 64];
+			GameBoard single = new GameBoard(width, height);
+			for (int cell = 0; cell < width * height; cell++) {
+				if (random.nextBoolean()) {
+					presses[cell >>> 6] |= 1L << cell;
+					single.swapTiles(cell % width, cell / width);
+				}
+			}
+			
+			GameBoard bulk = new GameBoard(width, height);
+			bulk.pressAll(presses);
+			assertArrayEquals(single.saveBoard(), bulk.saveBoard());
+			assertEquals(single.getNumberOfWhiteTiles(), bulk.getNumberOfWhiteTiles());
+			assertEquals(single.longHash(), bulk.longHash());
+			assertEquals(single, bulk);
+			
+			// single presses after a bulk one still keep the hash up to date
+			single.swapTiles(0, 0);
+			bulk.swapTiles(0, 0);
+			assertEquals(single.longHash(), bulk.longHash());
+		}
+	}
 }
@@ -0,0 +1,82 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.MoveHistory;
+import com.dunhili.lightsout.solver.HintService;
+import com.dunhili.lightsout.solver.LinearSolver;
+
+/**
+ * Tests the {@link HintService} class.
+ * @author dunhili
+ */
+public class HintServiceTest {
+	
+	/**
+	 * Tests that the remaining presses stay a minimum solution after every move, both on a board with a trivial 
+	 * kernel (6x6) and on ones without (5x5, 4x4).
+	 */
+	@Test
+	public void remainingPressesStayMinimal() {
+		Random random = new Random(23);
+		int[] sizes = {6, 5, 4};
+		for (int size : sizes) {
+			GameBoard board = new GameBoard(size);
+			HintService hints = new HintService(board);
+			for (int i = 0; i < 200; i++) {
+				hints.press(random.nextInt(size), random.nextInt(size));
+				assertEquals(LinearSolver.minimumPresses(board), hints.getNumberOfRemainingPresses());
+			}
+		}
+	}
+	
+	/**
+	 * Tests that following the hints clears the board in the number of presses the hint service promised.
+	 */
+	@Test
+	public void followHints() {
+		GameBoard board = new GameBoard(5);
+		HintService hints = new HintService(board);
+		int expected = hints.getNumberOfRemainingPresses();
+		int presses = 0;
+		for (int hint = hints.getHint(); hint >= 0; hint = hints.getHint()) {
+			assertTrue(hints.isHinted(hint % 5, hint / 5));
+			hints.press(hint % 5, hint / 5);
+			presses++;
+		}
+		assertEquals(expected, presses);
+		assertTrue(board.isGameWon());
+		assertEquals(0, hints.getNumberOfRemainingPresses());
+	}
+	
+	/**
+	 * Tests that moves made through a {@link MoveHistory} and changes made straight to the board are picked up.
+	 */
+	@Test
+	public void outsideChanges() {
+		GameBoard board = new GameBoard("BBB", "BBB", "BBB");
+		HintService hints = new HintService(board);
+		MoveHistory history = new MoveHistory(board);
+		assertEquals(-1, hints.getHint());
+		
+		history.press(0, 0);
+		hints.pressed(0, 0);
+		assertEquals(0, hints.getHint());
+		history.undo();
+		hints.pressed(0, 0);
+		assertEquals(0, hints.getNumberOfRemainingPresses());
+		
+		board.resetBoard("BWB", "WWW", "BWB");
+		assertEquals(1, hints.getNumberOfRemainingPresses());
+		assertEquals(4, hints.getHint());
+		
+		assertFalse(new HintService(new GameBoard("WBBBB", "BBBBB", "BBBBB", "BBBBB", "BBBBB")).isSolvable());
+	}
+}
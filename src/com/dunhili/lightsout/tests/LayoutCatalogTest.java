@@ -0,0 +1,89 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.dunhili.lightsout.board.LayoutCatalog;
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.board.PlayerProgress;
+
+/**
+ * Tests the {@link LayoutCatalog} and {@link PlayerProgress} classes.
+ * @author dunhili
+ */
+public class LayoutCatalogTest {
+	
+	/**
+	 * Tests that identical layouts are only stored once.
+	 */
+	@Test
+	public void internDuplicates() {
+		LayoutCatalog catalog = new LayoutCatalog();
+		int first = catalog.intern(new String[] {"BWW", "WBW", "WWB"}, 2);
+		int second = catalog.intern(new String[] {"BWW", "BBB", "BBW"}, 4);
+		assertEquals(first, catalog.intern(new String[] {"bww", "wbw", "wwb"}, 2));
+		assertEquals(2, catalog.size());
+		
+		assertArrayEquals(new String[] {"BWW", "BBB", "BBW"}, catalog.getLayout(second));
+		assertEquals(4, catalog.getIdealNumberOfMoves(second));
+		assertEquals("BWW\nWBW\nWWB", catalog.createBoard(first).toString());
+		
+		// same tiles but a different shape is a different layout
+		int wide = catalog.intern(new String[] {"BWWWBWWWB"}, 2);
+		assertEquals(3, catalog.size());
+		assertEquals(1, catalog.getLayout(wide).length);
+	}
+	
+	/**
+	 * Tests that many layouts can be interned, past the initial capacity of the catalog.
+	 */
+	@Test
+	public void internMany() {
+		LayoutCatalog catalog = new LayoutCatalog();
+		for (int i = 0; i < 512; i++) {
+			String row = Integer.toBinaryString(i | 512).replace('1', 'W').replace('0', 'B');
+			assertEquals(i, catalog.intern(new String[] {row, row}, i));
+		}
+		for (int i = 0; i < 512; i++) {
+			String row = Integer.toBinaryString(i | 512).replace('1', 'W').replace('0', 'B');
+			assertEquals(i, catalog.intern(new String[] {row, row}, i));
+			assertEquals(i, catalog.getIdealNumberOfMoves(i));
+		}
+		assertEquals(512, catalog.size());
+	}
+	
+	/**
+	 * Tests that players on the same levels share the catalog but keep separate scores.
+	 */
+	@Test
+	public void separateProgress() {
+		List<Level> levels = new ArrayList<Level>();
+		levels.add(new Level(new String[] {"BWW", "WBW", "WWB"}, 2));
+		levels.add(new Level(new String[] {"BWW", "WBW", "WWB"}, 2));
+		levels.add(new Level(new String[] {"WWW", "WWW", "WWW"}, 5));
+		
+		LayoutCatalog catalog = new LayoutCatalog();
+		int[] ids = catalog.internAll(levels);
+		assertEquals(2, catalog.size());
+		assertEquals(ids[0], ids[1]);
+		
+		PlayerProgress alice = new PlayerProgress(catalog, ids);
+		PlayerProgress bob = new PlayerProgress(catalog, ids);
+		alice.setNumberOfMoves(2, 5);
+		bob.setNumberOfMoves(2, 7);
+		assertTrue(alice.hasPerfectScore(2));
+		assertFalse(bob.hasPerfectScore(2));
+		assertFalse(alice.isCompleted(0));
+		
+		Level level = bob.toLevel(2);
+		assertEquals(7, level.getNumberOfMoves());
+		assertEquals("WWW WWW WWW", level.getCompressedLayout());
+	}
+}
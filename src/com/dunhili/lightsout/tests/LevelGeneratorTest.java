@@ -0,0 +1,80 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.solver.LevelGenerator;
+import com.dunhili.lightsout.solver.LinearSolver;
+import com.dunhili.lightsout.utils.LevelUtil;
+
+/**
+ * Tests the {@link LevelGenerator} class.
+ * @author dunhili
+ */
+public class LevelGeneratorTest {
+	@Rule
+	public ExpectedException exception = ExpectedException.none();
+	
+	/**
+	 * Tests that generated levels are in the difficulty band and their ideal number of moves is the minimum.
+	 */
+	@Test
+	public void levelsInBand() {
+		LevelGenerator generator = new LevelGenerator(5, 5, 6, 9, 18L);
+		for (int i = 0; i < 50; i++) {
+			Level level = generator.generateLevel(i);
+			assertTrue(level.getIdealNumberOfMoves() >= 6 && level.getIdealNumberOfMoves() <= 9);
+			assertEquals(level.getIdealNumberOfMoves(), LinearSolver.minimumPresses(new GameBoard(level.getLayout())));
+			assertEquals(0, level.getNumberOfMoves());
+		}
+	}
+	
+	/**
+	 * Tests that the same seed gives the same levels no matter how many threads generate them.
+	 */
+	@Test
+	public void deterministicAcrossThreads() throws Exception {
+		LevelGenerator generator = new LevelGenerator(4, 6, 3, 8, 42L);
+		ByteArrayOutputStream single = new ByteArrayOutputStream();
+		ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+		
+		ForkJoinPool pool = new ForkJoinPool(1);
+		try {
+			assertEquals(3000, generator.generate(3000, single, pool));
+		} finally {
+			pool.shutdown();
+		}
+		pool = new ForkJoinPool(4);
+		try {
+			assertEquals(3000, generator.generate(3000, parallel, pool));
+		} finally {
+			pool.shutdown();
+		}
+		assertArrayEquals(single.toByteArray(), parallel.toByteArray());
+		
+		List<Level> levels = LevelUtil.readLevels(new ByteArrayInputStream(parallel.toByteArray()));
+		assertEquals(3000, levels.size());
+		assertArrayEquals(generator.generateLevel(2999).getLayout(), levels.get(2999).getLayout());
+	}
+	
+	/**
+	 * Tests that a band that asks for more moves than the board has tiles is rejected.
+	 */
+	@Test
+	public void invalidBand() {
+		exception.expect(IllegalArgumentException.class);
+		new LevelGenerator(3, 3, 4, 10, 0L);
+	}
+}
@@ -0,0 +1,101 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dunhili.lightsout.utils.LevelIndex;
+import com.dunhili.lightsout.utils.LevelUtil;
+
+/**
+ * Tests the {@link LevelIndex} class.
+ * @author dunhili
+ */
+public class LevelIndexTest {
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	/**
+	 * Tests {@link LevelUtil#readLevel(File, int)}, which builds the index the first time it's used.
+	 */
+	@Test
+	public void readLevelThroughIndex() throws IOException {
+		File file = writeLevelFile("2 0 BWW WBW WWB\n4 0 BWW BBB BBW\r\n\n5 0 WWW WWW WWW\n");
+		assertEquals("WWW WWW WWW", LevelUtil.readLevel(file, 2).getCompressedLayout());
+		assertTrue(LevelIndex.getIndexFile(file).exists());
+		assertEquals("BWW BBB BBW", LevelUtil.readLevel(file, 1).getCompressedLayout());
+		assertEquals(2, LevelUtil.readLevel(file, 0).getIdealNumberOfMoves());
+		assertEquals(3, LevelIndex.forFile(file).size());
+	}
+	
+	/**
+	 * Tests that the index is rebuilt once the level file changes.
+	 */
+	@Test
+	public void rebuildStaleIndex() throws IOException {
+		File file = writeLevelFile("2 0 BWW WBW WWB\n4 0 BWW BBB BBW");
+		assertEquals(2, LevelIndex.forFile(file).size());
+		
+		// same size, so only the modification time and checksum give the change away
+		Files.write(file.toPath(), "4 0 BWW BBB BBW\n2 0 BWW WBW WWB".getBytes(StandardCharsets.US_ASCII));
+		file.setLastModified(file.lastModified() + 2000);
+		assertEquals(4, LevelUtil.readLevel(file, 0).getIdealNumberOfMoves());
+		
+		Files.write(file.toPath(), "5 0 WWW WWW WWW".getBytes(StandardCharsets.US_ASCII));
+		assertEquals(1, LevelIndex.forFile(file).size());
+	}
+	
+	/**
+	 * Tests that touching the level file without changing it keeps the index.
+	 */
+	@Test
+	public void touchedFileKeepsIndex() throws IOException {
+		File file = writeLevelFile("2 0 BWW WBW WWB\n4 0 BWW BBB BBW");
+		LevelIndex.forFile(file);
+		File indexFile = LevelIndex.getIndexFile(file);
+		byte[] before = Files.readAllBytes(indexFile.toPath());
+		
+		file.setLastModified(file.lastModified() + 2000);
+		assertEquals(2, LevelIndex.forFile(file).size());
+		byte[] after = Files.readAllBytes(indexFile.toPath());
+		assertEquals(before.length, after.length);
+	}
+	
+	/**
+	 * Tests that a read-only index is still used, even when its header can't be updated after a touch.
+	 */
+	@Test
+	public void readOnlyIndex() throws IOException {
+		File file = writeLevelFile("2 0 BWW WBW WWB\n4 0 BWW BBB BBW");
+		LevelIndex.forFile(file);
+		File indexFile = LevelIndex.getIndexFile(file);
+		assertTrue(indexFile.setWritable(false));
+		try {
+			assertEquals(2, LevelIndex.forFile(file).size());
+			file.setLastModified(file.lastModified() + 2000);
+			assertEquals(2, LevelIndex.forFile(file).size());
+			assertEquals("BWW BBB BBW", LevelUtil.readLevel(file, 1).getCompressedLayout());
+		} finally {
+			indexFile.setWritable(true);
+		}
+	}
+	
+	/**
+	 * Writes a level file with the given contents.
+	 * @param contents contents of the file
+	 * @return the file
+	 */
+	private File writeLevelFile(String contents) throws IOException {
+		File file = folder.newFile();
+		Files.write(file.toPath(), contents.getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
+}
@@ -0,0 +1,114 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.utils.LevelPack;
+import com.dunhili.lightsout.utils.LevelUtil;
+
+/**
+ * Tests the {@link LevelPack} class.
+ * @author dunhili
+ */
+public class LevelPackTest {
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	private static final String LEVELS = "2 0 BWW WBW WWB\n4 3 BWW BBB BBW\n-1 0 WBBBB BBBBB BBBBB BBBBB BBBBB\n"
+			+ "10 0 BWWBWW BWWBWW BBWBWB BBBWWB BWWBWB";
+	
+	/**
+	 * Tests writing a pack and reading levels back from it in any order.
+	 */
+	@Test
+	public void randomAccess() throws IOException {
+		File packFile = folder.newFile("levels.pack");
+		List<Level> levels = LevelUtil.readLevels(new ByteArrayInputStream(LEVELS.getBytes()));
+		assertEquals(4, LevelPack.write(levels.iterator(), packFile));
+		
+		LevelPack pack = new LevelPack(packFile);
+		try {
+			assertEquals(4, pack.size());
+			assertEquals("BWWBWW BWWBWW BBWBWB BBBWWB BWWBWB", pack.getLevel(3).getCompressedLayout());
+			assertEquals("BWW WBW WWB", pack.getLevel(0).getCompressedLayout());
+			assertEquals(-1, pack.getIdealNumberOfMoves(2));
+			assertEquals(4, pack.getIdealNumberOfMoves(1));
+			assertEquals(3, pack.getNumberOfMoves(1));
+		} finally {
+			pack.close();
+		}
+	}
+	
+	/**
+	 * Tests converting a text level file to a pack and back.
+	 */
+	@Test
+	public void convertRoundTrip() throws IOException {
+		File textFile = folder.newFile("levels.txt");
+		Files.write(textFile.toPath(), LEVELS.getBytes(StandardCharsets.US_ASCII));
+		File packFile = folder.newFile("levels.pack");
+		File copyFile = folder.newFile("copy.txt");
+		
+		assertEquals(4, LevelPack.convertFromText(textFile, packFile));
+		assertEquals(4, LevelPack.convertToText(packFile, copyFile));
+		assertEquals(LEVELS, new String(Files.readAllBytes(copyFile.toPath()), StandardCharsets.US_ASCII));
+	}
+	
+	/**
+	 * Tests a pack of levels larger than a single varint byte and wider than a single word.
+	 */
+	@Test
+	public void largeLevels() throws IOException {
+		List<Level> levels = new ArrayList<Level>();
+		char[] row = new char[200];
+		for (int i = 0; i < row.length; i++) {
+			row[i] = (i % 3 == 0) ? 'W' : 'B';
+		}
+		String[] layout = new String[150];
+		for (int y = 0; y < layout.length; y++) {
+			layout[y] = new String(row);
+		}
+		levels.add(new Level(layout, 1000, 5000));
+		
+		File packFile = folder.newFile("large.pack");
+		LevelPack.write(levels.iterator(), packFile);
+		LevelPack pack = new LevelPack(packFile);
+		try {
+			Level level = pack.getLevel(0);
+			assertEquals(1000, level.getIdealNumberOfMoves());
+			assertEquals(5000, level.getNumberOfMoves());
+			assertEquals(layout[149], level.getLayout()[149]);
+		} finally {
+			pack.close();
+		}
+	}
+	
+	/**
+	 * Tests opening a file that isn't a level pack.
+	 */
+	@Test(expected = IOException.class)
+	public void invalidPack() throws IOException {
+		File file = folder.newFile("bad.pack");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(LEVELS.getBytes());
+		} finally {
+			out.close();
+		}
+		new LevelPack(file).close();
+	}
+}
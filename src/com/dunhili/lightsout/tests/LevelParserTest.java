@@ -0,0 +1,166 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.utils.LevelParser;
+import com.dunhili.lightsout.utils.LevelUtil;
+
+/**
+ * Tests the {@link LevelParser} class.
+ * @author dunhili
+ */
+public class LevelParserTest {
+	@Rule
+	public ExpectedException exception = ExpectedException.none();
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	/**
+	 * Tests parsing levels with blank lines and Windows line endings.
+	 */
+	@Test
+	public void parseLevels() {
+		LevelParser parser = parse("5 0 WBW BWB BBB\r\n\n12 7 bwwb wbbw\n-1 0 W");
+		assertTrue(parser.next());
+		assertEquals(5, parser.getIdealNumberOfMoves());
+		assertEquals(0, parser.getNumberOfMoves());
+		assertEquals(3, parser.getWidth());
+		assertEquals(3, parser.getHeight());
+		assertEquals(new GameBoard("WBW", "BWB", "BBB"), parser.createBoard());
+		
+		assertTrue(parser.next());
+		Level level = parser.createLevel();
+		assertArrayEquals(new String[] {"BWWB", "WBBW"}, level.getLayout());
+		assertEquals(12, level.getIdealNumberOfMoves());
+		assertEquals(7, level.getNumberOfMoves());
+		
+		assertTrue(parser.next());
+		assertEquals(-1, parser.getIdealNumberOfMoves());
+		assertEquals(1, parser.createBoard().getNumberOfWhiteTiles());
+		assertFalse(parser.next());
+		assertEquals(3, parser.getLevelsParsed());
+	}
+	
+	/**
+	 * Tests that a wide level after a narrow one is packed correctly, and that a narrow one after it doesn't keep
+	 * any of its tiles.
+	 */
+	@Test
+	public void parseWideLevels() {
+		StringBuilder wide = new StringBuilder();
+		for (int i = 0; i < 130; i++) {
+			wide.append((i % 3 == 0) ? 'W' : 'B');
+		}
+		String[] layout = {wide.toString(), wide.toString().replace('W', 'x').replace('B', 'W').replace('x', 'B')};
+		LevelParser parser = parse("1 0 WW BB\n2 0 " + layout[0] + " " + layout[1] + "\n3 0 BB BB");
+		assertTrue(parser.next());
+		assertTrue(parser.next());
+		assertEquals(new GameBoard(layout), parser.createBoard());
+		assertArrayEquals(layout, parser.createLevel().getLayout());
+		assertTrue(parser.next());
+		assertTrue(parser.createBoard().isGameWon());
+	}
+	
+	/**
+	 * Tests that rows of different lengths are rejected with the same error as {@link GameBoard}.
+	 */
+	@Test
+	public void unequalRows() {
+		exception.expect(IllegalArgumentException.class);
+		exception.expectMessage("Each row in the board must be the same length.");
+		parse("5 0 WBW BW BBB").next();
+	}
+	
+	/**
+	 * Tests that characters other than 'W' and 'B' are rejected with the same error as {@link GameBoard}.
+	 */
+	@Test
+	public void invalidCharacter() {
+		exception.expect(IllegalArgumentException.class);
+		exception.expectMessage("Q is an invaild character for creating the board.");
+		parse("5 0 WBW BQB BBB").next();
+	}
+	
+	/**
+	 * Tests that a move count that isn't a number is rejected like {@link Integer#parseInt(String)} would.
+	 */
+	@Test
+	public void invalidNumber() {
+		exception.expect(NumberFormatException.class);
+		exception.expectMessage("For input string: \"5a\"");
+		parse("5a 0 WBW BWB BBB").next();
+	}
+	
+	/**
+	 * Tests that reading a mapped file gives the same levels as reading it through a stream.
+	 */
+	@Test
+	public void readMappedFile() throws Exception {
+		String text = "5 0 WBW BWB BBB\n4 2 WWBB BBWW\n9 0 W";
+		File file = folder.newFile("levels.txt");
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(text.getBytes(StandardCharsets.US_ASCII));
+		} finally {
+			out.close();
+		}
+		
+		List<Level> mapped = LevelUtil.readLevels(file);
+		List<Level> streamed = LevelUtil.readLevels(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(streamed.size(), mapped.size());
+		for (int i = 0; i < mapped.size(); i++) {
+			assertEquals(streamed.get(i).toString(), mapped.get(i).toString());
+		}
+	}
+	
+	/**
+	 * Tests that parsing a file in windows smaller than its levels gives the same levels as mapping it whole.
+	 */
+	@Test
+	public void parseInWindows() throws Exception {
+		String text = "5 0 WBW BWB BBB\n\n4 2 WWBB BBWW\r\n9 0 W\n12 3 WWWWWWWWWW BBBBBBBBBB WBWBWBWBWB\n1 0 B\n";
+		File file = folder.newFile("levels.txt");
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(text.getBytes(StandardCharsets.US_ASCII));
+		} finally {
+			out.close();
+		}
+		
+		List<Level> whole = LevelParser.map(file).parseAll();
+		for (int windowBytes : new int[] {1, 7, 16, 30, text.length() - 1, 1024}) {
+			List<Level> windowed = LevelParser.parseFile(file, windowBytes);
+			assertEquals(whole.size(), windowed.size());
+			for (int i = 0; i < whole.size(); i++) {
+				assertEquals(whole.get(i).toString(), windowed.get(i).toString());
+			}
+		}
+	}
+	
+	/**
+	 * Creates a parser over the given text.
+	 * @param text text to parse
+	 * @return the parser
+	 */
+	private static LevelParser parse(String text) {
+		return new LevelParser(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)));
+	}
+}
@@ -0,0 +1,92 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.NoSuchElementException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.utils.LevelReader;
+import com.dunhili.lightsout.utils.LevelUtil;
+
+/**
+ * Tests the {@link LevelReader} class.
+ * @author dunhili
+ */
+public class LevelReaderTest {
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	/**
+	 * Tests reading levels one at a time from a stream.
+	 */
+	@Test
+	public void readLevelsLazily() throws IOException {
+		LevelReader reader = new LevelReader(new ByteArrayInputStream("2 0 BWW WBW WWB\n\n4 3 BBWB WWWW BWBB".getBytes()));
+		try {
+			assertTrue(reader.hasNext());
+			Level level = reader.next();
+			assertEquals(2, level.getIdealNumberOfMoves());
+			assertEquals("BWW WBW WWB", level.getCompressedLayout());
+			
+			level = reader.next();
+			assertEquals(4, level.getIdealNumberOfMoves());
+			assertEquals(3, level.getNumberOfMoves());
+			assertEquals(2, reader.getLevelsRead());
+			assertFalse(reader.hasNext());
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Tests that {@link LevelReader#next()} throws once the levels run out.
+	 */
+	@Test(expected = NoSuchElementException.class)
+	public void readPastEnd() throws IOException {
+		LevelReader reader = new LevelReader(new ByteArrayInputStream("5 0 WWW WWW WWW".getBytes()));
+		try {
+			reader.next();
+			reader.next();
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Tests {@link LevelUtil#openLevels(File)} on a file written by {@link LevelUtil#writeLevels(java.util.List, OutputStream)}.
+	 */
+	@Test
+	public void openLevelFile() throws IOException {
+		File file = folder.newFile("levels.txt");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			LevelUtil.writeLevels(LevelUtil.readLevels(new ByteArrayInputStream(
+					"2 0 BWW WBW WWB\n4 0 BWW BBB BBW\n5 0 WWW WWW WWW".getBytes())), out);
+		} finally {
+			out.close();
+		}
+		
+		int count = 0;
+		LevelReader reader = LevelUtil.openLevels(file);
+		try {
+			for (Level level : reader) {
+				assertEquals(3, level.getLayout().length);
+				count++;
+			}
+		} finally {
+			reader.close();
+		}
+		assertEquals(3, count);
+	}
+}
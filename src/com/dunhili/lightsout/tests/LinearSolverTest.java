@@ -0,0 +1,65 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.solver.LinearSolver;
+import com.dunhili.lightsout.solver.Solution;
+import com.dunhili.lightsout.solver.ToggleSystem;
+
+/**
+ * Tests the {@link LinearSolver} and {@link ToggleSystem} classes.
+ * @author dunhili
+ */
+public class LinearSolverTest {
+	
+	/**
+	 * Tests {@link LinearSolver#solve(GameBoard)} on the levels from the test level file.
+	 */
+	@Test
+	public void solveTestLevels() {
+		assertEquals(2, LinearSolver.minimumPresses(new GameBoard("BWW", "WBW", "WWB")));
+		assertEquals(4, LinearSolver.minimumPresses(new GameBoard("BWW", "BBB", "BBW")));
+		assertEquals(5, LinearSolver.minimumPresses(new GameBoard("WWW", "WWW", "WWW")));
+		assertEquals(4, LinearSolver.minimumPresses(new GameBoard("BBWB", "WWWW", "BWBB")));
+	}
+	
+	/**
+	 * Tests that applying the solution from {@link LinearSolver#solve(GameBoard)} wins the game.
+	 */
+	@Test
+	public void solutionWinsTheGame() {
+		GameBoard board = new GameBoard("BWWBWW", "BWWBWW", "BBWBWB", "BBBWWB", "BWWBWB");
+		Solution solution = LinearSolver.solve(board);
+		solution.applyTo(board);
+		assertTrue(board.isGameWon());
+	}
+	
+	/**
+	 * Tests that the minimum solution is found on a board whose toggle matrix has a non-trivial kernel.
+	 */
+	@Test
+	public void minimumWithKernel() {
+		ToggleSystem system = new ToggleSystem(5, 5);
+		assertEquals(23, system.getRank());
+		assertEquals(2, system.getKernelBasis().length);
+		
+		// the all WHITE 5x5 board needs 15 presses at best
+		assertEquals(15, LinearSolver.minimumPresses(new GameBoard(5)));
+	}
+	
+	/**
+	 * Tests {@link LinearSolver#solve(GameBoard)} for a board that can't be solved.
+	 */
+	@Test
+	public void unsolvableBoard() {
+		// a single WHITE corner on a 5x5 board can't be cleared
+		GameBoard board = new GameBoard("WBBBB", "BBBBB", "BBBBB", "BBBBB", "BBBBB");
+		assertNull(LinearSolver.solve(board));
+		assertEquals(-1, LinearSolver.minimumPresses(board));
+	}
+}
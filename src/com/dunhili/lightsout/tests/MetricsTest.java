@@ -0,0 +1,118 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.metrics.HistogramSnapshot;
+import com.dunhili.lightsout.metrics.LatencyHistogram;
+import com.dunhili.lightsout.metrics.Metrics;
+import com.dunhili.lightsout.metrics.MetricsSnapshot;
+import com.dunhili.lightsout.solver.LinearSolver;
+
+/**
+ * Tests the {@link Metrics} and {@link LatencyHistogram} classes.
+ * @author dunhili
+ */
+public class MetricsTest {
+	
+	/**
+	 * Clears the process-wide metrics before each test.
+	 */
+	@Before
+	public void resetMetrics() {
+		Metrics.reset();
+	}
+	
+	/**
+	 * Tests that the histogram percentiles are within the precision of the buckets.
+	 */
+	@Test
+	public void histogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 10000; i++) {
+			histogram.record(i * 1000L);
+		}
+		HistogramSnapshot snapshot = histogram.snapshot();
+		assertEquals(10000, snapshot.getCount());
+		assertEquals(10000000L, snapshot.getMax());
+		assertEquals(5000500L, snapshot.getMean());
+		assertWithin(5000000L, snapshot.getP50());
+		assertWithin(9000000L, snapshot.getP90());
+		assertWithin(9990000L, snapshot.getP999());
+		
+		histogram.reset();
+		assertEquals(0, histogram.snapshot().getCount());
+		assertEquals(0, histogram.snapshot().getP99());
+	}
+	
+	/**
+	 * Tests that small values are recorded exactly.
+	 */
+	@Test
+	public void histogramSmallValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(3);
+		histogram.record(-5);
+		histogram.record(3);
+		HistogramSnapshot snapshot = histogram.snapshot();
+		assertEquals(3, snapshot.getP50());
+		assertEquals(3, snapshot.getMax());
+	}
+	
+	/**
+	 * Tests that moves, win checks and solves are counted.
+	 */
+	@Test
+	public void gameplayCounters() {
+		GameBoard board = new GameBoard("BBB", "BBB", "BBB");
+		board.swapTiles(1, 1);
+		board.swapTiles(5, 5);	// outside the board, not a move
+		board.isGameWon();
+		LinearSolver.solve(board);
+		
+		MetricsSnapshot snapshot = Metrics.snapshot();
+		assertEquals(1, snapshot.getMovesApplied());
+		assertEquals(1, snapshot.getWinChecks());
+		assertEquals(1, snapshot.getSolves());
+		assertEquals(1, snapshot.getSolveLatency().getCount());
+	}
+	
+	/**
+	 * Tests that the metrics can be read over JMX.
+	 */
+	@Test
+	public void mbean() throws Exception {
+		ObjectName name = Metrics.registerMBean();
+		assertEquals(name, Metrics.registerMBean());
+		Metrics.MOVES_APPLIED.add(7);
+		
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertEquals(7L, server.getAttribute(name, "MovesApplied"));
+		CompositeData snapshot = (CompositeData) server.getAttribute(name, "Snapshot");
+		assertEquals(7L, snapshot.get("movesApplied"));
+		assertTrue(snapshot.get("solveLatency") instanceof CompositeData);
+		
+		server.invoke(name, "reset", null, null);
+		assertEquals(0L, server.getAttribute(name, "MovesApplied"));
+	}
+	
+	/**
+	 * Asserts that the actual value is within the precision of the histogram buckets of the expected value.
+	 * @param expected expected value
+	 * @param actual actual value
+	 */
+	private static void assertWithin(long expected, long actual) {
+		long tolerance = expected / LatencyHistogram.SUB_BUCKETS;
+		assertTrue("Expected " + expected + " but was " + actual, Math.abs(expected - actual) <= tolerance);
+	}
+}
@@ -0,0 +1,120 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.solver.ChasingSolver;
+import com.dunhili.lightsout.solver.LinearSolver;
+import com.dunhili.lightsout.solver.MinimumSearch;
+import com.dunhili.lightsout.solver.Solution;
+
+/**
+ * Tests the {@link MinimumSearch} class.
+ * @author dunhili
+ */
+public class MinimumSearchTest {
+	
+	/**
+	 * Tests that the minimum found on 4x4 boards, which have a kernel of dimension 4, matches a brute force search 
+	 * over every set of presses.
+	 */
+	@Test
+	public void matchesBruteForce() {
+		Random random = new Random(7);
+		for (int trial = 0; trial < 5; trial++) {
+			GameBoard board = randomSolvableBoard(random, 4, 4);
+			Solution solution = ChasingSolver.solveMinimum(board);
+			assertTrue(solution.isMinimal());
+			assertEquals(bruteForceMinimum(board), solution.getNumberOfPresses());
+			assertEquals(solution.getNumberOfPresses(), LinearSolver.minimumPresses(board));
+		}
+	}
+	
+	/**
+	 * Tests the search on a 19x19 board, which has a kernel of dimension 16.
+	 */
+	@Test
+	public void searchLargeKernel() {
+		GameBoard board = randomSolvableBoard(new Random(19), 19, 19);
+		Solution solution = ChasingSolver.solveMinimum(board);
+		assertTrue(solution.isMinimal());
+		assertTrue(solution.getNumberOfPresses() <= ChasingSolver.solve(board).getNumberOfPresses());
+		
+		solution.applyTo(board);
+		assertTrue(board.isGameWon());
+	}
+	
+	/**
+	 * Tests the greedy fallback on a 39x39 board, which has a kernel of dimension 32.
+	 */
+	@Test
+	public void greedyForHugeKernel() {
+		GameBoard board = randomSolvableBoard(new Random(39), 39, 39);
+		Solution solution = ChasingSolver.solveMinimum(board);
+		assertFalse(solution.isMinimal());
+		assertTrue(solution.getNumberOfPresses() <= ChasingSolver.solve(board).getNumberOfPresses());
+		
+		solution.applyTo(board);
+		assertTrue(board.isGameWon());
+	}
+	
+	/**
+	 * Tests {@link MinimumSearch#lowerBound(long[], int)}.
+	 */
+	@Test
+	public void lowerBound() {
+		assertEquals(0, MinimumSearch.lowerBound(new GameBoard("BBB", "BBB").toBitVector(), 5));
+		assertEquals(2, MinimumSearch.lowerBound(new GameBoard("WWW", "WWW").toBitVector(), 5));
+	}
+	
+	/**
+	 * Creates a board that can be solved by pressing random tiles on an all BLACK board.
+	 * @param random source of the presses
+	 * @param width width of the board
+	 * @param height height of the board
+	 * @return the board
+	 */
+	private static GameBoard randomSolvableBoard(Random random, int width, int height) {
+		String[] rows = new String[height];
+		char[] row = new char[width];
+		Arrays.fill(row, 'B');
+		for (int y = 0; y < height; y++) {
+			rows[y] = new String(row);
+		}
+		
+		GameBoard board = new GameBoard(rows);
+		for (int i = 0; i < width * height / 2; i++) {
+			board.swapTiles(random.nextInt(width), random.nextInt(height));
+		}
+		return board;
+	}
+	
+	/**
+	 * Returns the fewest presses that solve the board by trying every set of presses.
+	 * @param board board to solve, which must have at most 20 tiles
+	 * @return minimum number of presses
+	 */
+	private static int bruteForceMinimum(GameBoard board) {
+		int cells = board.getWidth() * board.getHeight();
+		int best = Integer.MAX_VALUE;
+		for (int presses = 0; presses < (1 << cells); presses++) {
+			GameBoard copy = new GameBoard(board.saveBoard());
+			for (int c = 0; c < cells; c++) {
+				if ((presses & (1 << c)) != 0) {
+					copy.swapTiles(c % board.getWidth(), c / board.getWidth());
+				}
+			}
+			if (copy.isGameWon()) {
+				best = Math.min(best, Integer.bitCount(presses));
+			}
+		}
+		return best;
+	}
+}
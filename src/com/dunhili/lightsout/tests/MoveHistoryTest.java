@@ -0,0 +1,76 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.MoveHistory;
+
+/**
+ * Tests the {@link MoveHistory} class.
+ * @author dunhili
+ */
+public class MoveHistoryTest {
+	
+	/**
+	 * Tests undoing and redoing moves.
+	 */
+	@Test
+	public void undoRedo() {
+		String[] start = {"BWB", "WWW", "BWB"};
+		GameBoard board = new GameBoard(start);
+		MoveHistory history = new MoveHistory(board);
+		assertFalse(history.undo());
+		
+		assertTrue(history.press(1, 1));
+		assertTrue(board.isGameWon());
+		assertFalse(history.press(3, 1));
+		assertEquals(1, history.getNumberOfMoves());
+		
+		assertTrue(history.undo());
+		assertArrayEquals(start, board.saveBoard());
+		assertEquals(0, history.getNumberOfMoves());
+		assertTrue(history.canRedo());
+		
+		assertTrue(history.redo());
+		assertTrue(board.isGameWon());
+		assertFalse(history.redo());
+		
+		// a new move after an undo drops the undone moves
+		history.undo();
+		history.press(0, 0);
+		assertFalse(history.canRedo());
+		assertEquals(0, history.getMoveX(0));
+		assertEquals(0, history.getMoveY(0));
+	}
+	
+	/**
+	 * Tests that a long history replays to the same board and rolls back to the start.
+	 */
+	@Test
+	public void replayAndRollback() {
+		GameBoard board = new GameBoard(100, 70);
+		String[] start = board.saveBoard();
+		MoveHistory history = new MoveHistory(board);
+		Random random = new Random(16);
+		for (int i = 0; i < 10000; i++) {
+			history.press(random.nextInt(100), random.nextInt(70));
+		}
+		for (int i = 0; i < 300; i++) {
+			history.undo();
+		}
+		assertEquals(9700, history.getNumberOfMoves());
+		assertArrayEquals(board.saveBoard(), history.replay(start).saveBoard());
+		
+		history.rollback();
+		assertEquals(0, history.getNumberOfMoves());
+		assertFalse(history.canRedo());
+		assertArrayEquals(start, board.saveBoard());
+	}
+}
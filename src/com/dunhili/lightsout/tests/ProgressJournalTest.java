@@ -0,0 +1,219 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.utils.ProgressJournal;
+
+/**
+ * Tests the {@link ProgressJournal} class.
+ * @author dunhili
+ */
+public class ProgressJournalTest {
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	private static final String LEVELS = "2 0 BWW WBW WWB\n4 0 BWW BBB BBW\n5 0 WWW WWW WWW";
+	
+	/**
+	 * Tests that saved progress is appended to the journal and replayed on the next load.
+	 */
+	@Test
+	public void saveAndReplay() throws IOException {
+		File levelFile = writeLevelFile();
+		ProgressJournal journal = new ProgressJournal(levelFile);
+		List<Level> levels = journal.load();
+		journal.record(1, 6);
+		assertEquals(1, journal.save());
+		assertEquals(0, journal.save());
+		journal.record(1, 4);
+		journal.record(2, 9);
+		assertEquals(2, journal.save());
+		assertEquals(3 * ProgressJournal.RECORD_SIZE, journal.getJournalSize());
+		journal.close();
+		
+		// the level file itself is untouched
+		assertEquals(LEVELS, new String(Files.readAllBytes(levelFile.toPath()), StandardCharsets.US_ASCII));
+		
+		journal = new ProgressJournal(levelFile);
+		levels = journal.load();
+		assertEquals(0, levels.get(0).getNumberOfMoves());
+		assertEquals(4, levels.get(1).getNumberOfMoves());
+		assertEquals(9, levels.get(2).getNumberOfMoves());
+		journal.close();
+	}
+	
+	/**
+	 * Tests that a partly written record at the end of the journal is ignored.
+	 */
+	@Test
+	public void ignoreTornRecord() throws IOException {
+		File levelFile = writeLevelFile();
+		ProgressJournal journal = new ProgressJournal(levelFile);
+		journal.load();
+		journal.record(0, 3);
+		journal.save();
+		journal.close();
+		
+		OutputStream out = new FileOutputStream(ProgressJournal.getJournalFile(levelFile), true);
+		try {
+			out.write(new byte[] {2, 0, 0, 0, 7});
+		} finally {
+			out.close();
+		}
+		
+		journal = new ProgressJournal(levelFile);
+		List<Level> levels = journal.load();
+		assertEquals(3, levels.get(0).getNumberOfMoves());
+		assertEquals(0, levels.get(2).getNumberOfMoves());
+		assertEquals(ProgressJournal.RECORD_SIZE, journal.getJournalSize());
+		journal.close();
+	}
+	
+	/**
+	 * Tests that compacting merges the journal into the level file and empties the journal.
+	 */
+	@Test
+	public void compact() throws IOException {
+		File levelFile = writeLevelFile();
+		ProgressJournal journal = new ProgressJournal(levelFile);
+		List<Level> levels = journal.load();
+		journal.record(0, 2);
+		journal.record(2, 8);
+		journal.save();
+		journal.compact();
+		assertEquals(0, journal.getJournalSize());
+		assertEquals("2 2 BWW WBW WWB\n4 0 BWW BBB BBW\n5 8 WWW WWW WWW", 
+				new String(Files.readAllBytes(levelFile.toPath()), StandardCharsets.US_ASCII));
+		
+		journal.record(1, 5);
+		journal.save();
+		journal.close();
+		
+		journal = new ProgressJournal(levelFile);
+		levels = journal.load();
+		assertEquals(2, levels.get(0).getNumberOfMoves());
+		assertEquals(5, levels.get(1).getNumberOfMoves());
+		assertEquals(8, levels.get(2).getNumberOfMoves());
+		journal.close();
+	}
+	
+	/**
+	 * Tests that passing the threshold compacts the journal in the background.
+	 */
+	@Test
+	public void compactInBackground() throws IOException {
+		File levelFile = writeLevelFile();
+		ProgressJournal journal = new ProgressJournal(levelFile, 2 * ProgressJournal.RECORD_SIZE);
+		journal.load();
+		for (int i = 1; i <= 3; i++) {
+			journal.record(0, i);
+			journal.save();
+		}
+		journal.close();
+		
+		// the last save may land before or after the compaction takes its snapshot
+		assertTrue(ProgressJournal.getJournalFile(levelFile).length() <= ProgressJournal.RECORD_SIZE);
+		assertTrue(Files.readAllLines(levelFile.toPath(), StandardCharsets.US_ASCII).get(0).startsWith("2 2 ")
+				|| Files.readAllLines(levelFile.toPath(), StandardCharsets.US_ASCII).get(0).startsWith("2 3 "));
+		
+		journal = new ProgressJournal(levelFile);
+		assertEquals(3, journal.load().get(0).getNumberOfMoves());
+		journal.close();
+	}
+	
+	/**
+	 * Tests that saving only looks at the recorded levels, so a level changed without being recorded is never 
+	 * visited, and a change that was undone before saving isn't written.
+	 */
+	@Test
+	public void saveOnlyRecorded() throws IOException {
+		File levelFile = writeLevelFile();
+		ProgressJournal journal = new ProgressJournal(levelFile);
+		List<Level> levels = journal.load();
+		levels.get(2).setNumberOfMoves(7);
+		journal.record(0, 3);
+		journal.record(1, 1);
+		journal.record(1, 0);
+		assertEquals(1, journal.save());
+		assertEquals(ProgressJournal.RECORD_SIZE, journal.getJournalSize());
+		journal.close();
+		
+		journal = new ProgressJournal(levelFile);
+		levels = journal.load();
+		assertEquals(3, levels.get(0).getNumberOfMoves());
+		assertEquals(0, levels.get(1).getNumberOfMoves());
+		assertEquals(0, levels.get(2).getNumberOfMoves());
+		journal.close();
+	}
+	
+	/**
+	 * Tests that a failed compaction deletes its temporary files, leaves the journal whole and lets a later 
+	 * compaction run.
+	 */
+	@Test
+	public void failedCompaction() throws IOException, InterruptedException {
+		File levelFile = writeLevelFile();
+		File tempFile = new File(levelFile.getPath() + ".tmp");
+		assertTrue(tempFile.mkdir());
+		
+		ProgressJournal journal = new ProgressJournal(levelFile, 2 * ProgressJournal.RECORD_SIZE);
+		journal.load();
+		journal.record(0, 1);
+		journal.save();
+		journal.record(1, 2);
+		journal.save();
+		for (int i = 0; i < 500 && journal.isCompactionPending(); i++) {
+			Thread.sleep(10);
+		}
+		assertFalse(journal.isCompactionPending());
+		assertFalse(tempFile.exists());
+		assertFalse(new File(ProgressJournal.getJournalFile(levelFile).getPath() + ".tmp").exists());
+		assertEquals(2 * ProgressJournal.RECORD_SIZE, journal.getJournalSize());
+		assertEquals(LEVELS, new String(Files.readAllBytes(levelFile.toPath()), StandardCharsets.US_ASCII));
+		
+		journal.record(2, 3);
+		journal.save();
+		journal.close();
+		assertTrue(Files.readAllLines(levelFile.toPath(), StandardCharsets.US_ASCII).get(0).startsWith("2 1 "));
+		assertTrue(ProgressJournal.getJournalFile(levelFile).length() <= ProgressJournal.RECORD_SIZE);
+	}
+	
+	/**
+	 * Tests that an empty level file can be loaded and compacted.
+	 */
+	@Test
+	public void compactEmpty() throws IOException {
+		File levelFile = folder.newFile("empty.txt");
+		ProgressJournal journal = new ProgressJournal(levelFile);
+		assertTrue(journal.load().isEmpty());
+		assertEquals(0, journal.save());
+		journal.compact();
+		journal.close();
+		assertEquals(0, levelFile.length());
+	}
+	
+	/**
+	 * Writes the test level file.
+	 * @return the file
+	 */
+	private File writeLevelFile() throws IOException {
+		File file = folder.newFile("levels.txt");
+		Files.write(file.toPath(), LEVELS.getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
+}
@@ -0,0 +1,113 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.utils.SaveService;
+
+/**
+ * Tests the {@link SaveService} class.
+ * @author dunhili
+ */
+public class SaveServiceTest {
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
+	/**
+	 * Tests that a requested save is written by the time the service shuts down.
+	 */
+	@Test
+	public void saveInBackground() throws Exception {
+		File target = folder.newFile("levels.txt");
+		SaveService service = new SaveService(target);
+		List<Level> levels = createLevels();
+		levels.get(1).setNumberOfMoves(4);
+		service.requestSave(levels);
+		
+		// changes after the request aren't part of it
+		levels.get(1).setNumberOfMoves(9);
+		assertTrue(service.shutdown(5, TimeUnit.SECONDS));
+		assertEquals("2 0 BWW WBW WWB\n4 4 BWW BBB BBW", read(target));
+		assertEquals(1, folder.getRoot().list().length);
+	}
+	
+	/**
+	 * Tests that rapid save requests are coalesced into fewer writes, always ending with the latest levels.
+	 */
+	@Test
+	public void coalesceRequests() throws Exception {
+		File target = folder.newFile("levels.txt");
+		SaveService service = new SaveService(target);
+		List<Level> levels = createLevels();
+		for (int i = 1; i <= 100; i++) {
+			levels.get(0).setNumberOfMoves(i);
+			service.requestSave(levels);
+		}
+		assertTrue(service.shutdown(5, TimeUnit.SECONDS));
+		assertTrue(service.getSavesWritten() <= 100);
+		assertEquals("2 100 BWW WBW WWB\n4 0 BWW BBB BBW", read(target));
+	}
+	
+	/**
+	 * Tests that a save requested after shutting down fails loudly instead of being dropped.
+	 */
+	@Test
+	public void saveAfterShutdown() throws Exception {
+		File target = folder.newFile("levels.txt");
+		SaveService service = new SaveService(target);
+		assertTrue(service.shutdown(5, TimeUnit.SECONDS));
+		try {
+			service.requestSave(createLevels());
+			fail("Expected the save to be rejected.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertEquals(0, service.getSavesWritten());
+		assertEquals("", read(target));
+	}
+	
+	/**
+	 * Tests {@link SaveService#writeAtomically(List, File)} replacing an existing file.
+	 */
+	@Test
+	public void replaceExistingFile() throws IOException {
+		File target = folder.newFile("levels.txt");
+		Files.write(target.toPath(), "old contents".getBytes(StandardCharsets.US_ASCII));
+		SaveService.writeAtomically(createLevels(), target);
+		assertEquals("2 0 BWW WBW WWB\n4 0 BWW BBB BBW", read(target));
+	}
+	
+	/**
+	 * Creates the levels to save.
+	 * @return the levels
+	 */
+	private static List<Level> createLevels() {
+		List<Level> levels = new ArrayList<Level>();
+		levels.add(new Level(new String[] {"BWW", "WBW", "WWB"}, 2));
+		levels.add(new Level(new String[] {"BWW", "BBB", "BBW"}, 4));
+		return levels;
+	}
+	
+	/**
+	 * Reads the file as a String.
+	 * @param file file to read
+	 * @return contents of the file
+	 */
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+	}
+}
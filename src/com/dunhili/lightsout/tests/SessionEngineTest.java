@@ -0,0 +1,129 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.server.SessionEngine;
+import com.dunhili.lightsout.server.SessionServer;
+import com.dunhili.lightsout.server.SessionState;
+
+/**
+ * Tests the {@link SessionEngine} and {@link SessionServer} classes.
+ * @author dunhili
+ */
+public class SessionEngineTest {
+	private SessionEngine engine;
+	
+	/**
+	 * Creates an engine with a 3x3 and a 4x2 level.
+	 */
+	@Before
+	public void createEngine() {
+		List<Level> levels = new ArrayList<Level>();
+		levels.add(new Level(new String[] {"BWB", "WWW", "BWB"}, 1));
+		levels.add(new Level(new String[] {"WWBB", "WBBB"}, 1));
+		engine = new SessionEngine(levels);
+	}
+	
+	/**
+	 * Tests playing, undoing and closing sessions.
+	 */
+	@Test
+	public void playSessions() {
+		int first = engine.open(0);
+		int second = engine.open(0);
+		assertEquals(2, engine.getOpenSessions());
+		
+		SessionState state = engine.press(first, 1, 1);
+		assertTrue(state.isGameWon());
+		assertEquals(1, state.getNumberOfMoves());
+		assertFalse(engine.getState(second).isGameWon());
+		
+		state = engine.undo(first);
+		assertEquals(0, state.getNumberOfMoves());
+		assertArrayEquals(new String[] {"BWB", "WWW", "BWB"}, engine.getBoard(first));
+		
+		engine.close(first);
+		assertEquals(1, engine.getOpenSessions());
+		assertEquals(1, engine.getPooledSessions());
+		try {
+			engine.press(first, 1, 1);
+			throw new AssertionError("Closed session accepted a press.");
+		} catch (IllegalArgumentException e) {
+			assertEquals("Session " + first + " isn't open.", e.getMessage());
+		}
+	}
+	
+	/**
+	 * Tests that closed sessions are reused for boards of the same size and start from the level's layout.
+	 */
+	@Test
+	public void reuseSessions() {
+		int first = engine.open(0);
+		engine.press(first, 0, 0);
+		engine.close(first);
+		
+		int other = engine.open(1);
+		assertEquals(1, engine.getPooledSessions());
+		assertEquals(1, engine.getLevel(other));
+		
+		int reused = engine.open(0);
+		assertEquals(0, engine.getPooledSessions());
+		assertEquals(0, engine.getState(reused).getNumberOfMoves());
+		assertArrayEquals(new String[] {"BWB", "WWW", "BWB"}, engine.getBoard(reused));
+	}
+	
+	/**
+	 * Tests the text protocol over a socket, with pipelined commands.
+	 */
+	@Test
+	public void socketProtocol() throws Exception {
+		SessionServer server = new SessionServer(engine, 0);
+		server.start();
+		try {
+			Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+			try {
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), 
+						StandardCharsets.US_ASCII));
+				Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+				out.write("LEVELS\nOPEN 1\n");
+				out.flush();
+				assertEquals("OK 2", in.readLine());
+				String session = in.readLine().substring(3);
+				
+				out.write("PRESS " + session + " 0 0\nBOARD " + session + "\nPRESS " + session + " x 0\nFOO\nOPEN 9\n"
+						+ "CLOSE " + session + "\nQUIT\n");
+				out.flush();
+				assertEquals("OK " + session + " 1 0 WON", in.readLine());
+				assertEquals("OK BBBB BBBB", in.readLine());
+				assertTrue(in.readLine().startsWith("ERR Invalid number"));
+				assertEquals("ERR Unknown command FOO.", in.readLine());
+				assertEquals("ERR Level 9 doesn't exist, there are 2 levels.", in.readLine());
+				assertEquals("OK", in.readLine());
+				assertEquals(null, in.readLine());
+			} finally {
+				socket.close();
+			}
+		} finally {
+			server.close();
+		}
+		assertEquals(Arrays.asList(0, 1), Arrays.asList(engine.getOpenSessions(), engine.getPooledSessions()));
+	}
+}
@@ -0,0 +1,211 @@
+package com.dunhili.lightsout.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.TileColor;
+import com.dunhili.lightsout.board.ToggleMasks;
+import com.dunhili.lightsout.board.Topology;
+import com.dunhili.lightsout.solver.ChasingSolver;
+import com.dunhili.lightsout.solver.DimensionCache;
+import com.dunhili.lightsout.solver.LinearSolver;
+import com.dunhili.lightsout.solver.Solution;
+import com.dunhili.lightsout.solver.ToggleSystem;
+
+/**
+ * Tests the {@link Topology} class.
+ * @author dunhili
+ */
+public class TopologyTest {
+	
+	/**
+	 * Tests that presses on a torus wrap around the edges of the board.
+	 */
+	@Test
+	public void torusPress() {
+		GameBoard board = new GameBoard(Topology.TORUS, "BBBB", "BBBB", "BBBB", "BBBB");
+		board.swapTiles(0, 0);
+		assertArrayEquals(new String[] {"WWBW", "WBBB", "BBBB", "WBBB"}, board.saveBoard());
+		assertEquals(5, board.getNumberOfWhiteTiles());
+	}
+	
+	/**
+	 * Tests that presses with the 8 neighbor topology toggle the diagonal tiles too.
+	 */
+	@Test
+	public void eightNeighborPress() {
+		GameBoard board = new GameBoard(Topology.EIGHT_NEIGHBOR, "BBBB", "BBBB", "BBBB");
+		board.swapTiles(1, 1);
+		assertArrayEquals(new String[] {"WWWB", "WWWB", "WWWB"}, board.saveBoard());
+		board.swapTiles(3, 2);
+		assertArrayEquals(new String[] {"WWWB", "WWBW", "WWBW"}, board.saveBoard());
+	}
+	
+	/**
+	 * Tests that blocked tiles are always BLACK, can't be pressed and aren't toggled by their neighbours.
+	 */
+	@Test
+	public void blockedCells() {
+		Topology topology = Topology.PLUS.withBlockedCells(1, 1);
+		GameBoard board = new GameBoard(topology, 3, 3);
+		assertArrayEquals(new String[] {"WWW", "WBW", "WWW"}, board.saveBoard());
+		assertEquals(TileColor.INVALID, board.getTileAt(1, 1));
+		assertFalse(board.isPressable(1, 1));
+		
+		board.swapTiles(1, 1);
+		assertEquals(8, board.getNumberOfWhiteTiles());
+		board.swapTiles(1, 0);
+		assertArrayEquals(new String[] {"BBB", "WBW", "WWW"}, board.saveBoard());
+		
+		board.setTileAt(1, 1, TileColor.WHITE);
+		assertEquals(TileColor.INVALID, board.getTileAt(1, 1));
+		assertEquals(new GameBoard(Topology.PLUS.withBlockedCells(1, 1), "BBB", "WWW", "WWW"), board);
+	}
+	
+	/**
+	 * Tests that presses through the cached masks match the plus topology's own press on a board wider than a word.
+	 */
+	@Test
+	public void masksMatchPlus() {
+		Random random = new Random(22);
+		GameBoard plus = new GameBoard(130, 4);
+		GameBoard masked = new GameBoard(Topology.PLUS.withBlockedCells(), 130, 4);
+		for (int i = 0; i < 500; i++) {
+			int x = random.nextInt(130);
+			int y = random.nextInt(4);
+			plus.swapTiles(x, y);
+			masked.swapTiles(x, y);
+		}
+		assertArrayEquals(plus.saveBoard(), masked.saveBoard());
+		assertEquals(plus.getNumberOfWhiteTiles(), masked.getNumberOfWhiteTiles());
+		assertEquals(plus.longHash(), masked.longHash());
+	}
+	
+	/**
+	 * Tests that the solvers find the solution with the fewest presses for each topology, by comparing against every
+	 * possible set of presses.
+	 */
+	@Test
+	public void minimumSolutions() {
+		Topology[] topologies = {Topology.TORUS, Topology.EIGHT_NEIGHBOR, Topology.TORUS.withBlockedCells(0, 0, 2, 1)};
+		Random random = new Random(7);
+		for (Topology topology : topologies) {
+			for (int trial = 0; trial < 20; trial++) {
+				GameBoard board = new GameBoard(topology, 3, 4);
+				for (int i = 0; i < 6; i++) {
+					board.swapTiles(random.nextInt(3), random.nextInt(4));
+				}
+				
+				Solution solution = LinearSolver.solve(board);
+				assertNotNull(solution);
+				assertEquals(bruteForceMinimum(board), solution.getNumberOfPresses());
+				
+				GameBoard solved = new GameBoard(topology, board.saveBoard());
+				solution.applyTo(solved);
+				assertTrue(solved.isGameWon());
+				
+				solved = new GameBoard(topology, board.saveBoard());
+				ChasingSolver.solve(board).applyTo(solved);
+				assertTrue(solved.isGameWon());
+			}
+		}
+	}
+	
+	/**
+	 * Tests that the toggle systems of every topology go through the one solver cache, and that equal topologies 
+	 * share their toggle masks.
+	 */
+	@Test
+	public void sharedCaches() {
+		DimensionCache<ToggleSystem> cache = LinearSolver.getCache();
+		long misses = cache.getMisses();
+		ToggleSystem torus = LinearSolver.getSystem(Topology.TORUS, 7, 5);
+		ToggleSystem eight = LinearSolver.getSystem(Topology.EIGHT_NEIGHBOR, 7, 5);
+		ToggleSystem plus = LinearSolver.getSystem(Topology.PLUS, 7, 5);
+		assertNotSame(torus, eight);
+		assertNotSame(torus, plus);
+		assertSame(plus, LinearSolver.getSystem(7, 5));
+		assertSame(torus, LinearSolver.getSystem(Topology.TORUS, 7, 5));
+		assertTrue(cache.getMisses() - misses <= 3);
+		
+		Topology first = Topology.TORUS.withBlockedCells(1, 2);
+		Topology second = Topology.TORUS.withBlockedCells(1, 2);
+		assertSame(first.getMasks(6, 6), second.getMasks(6, 6));
+		assertSame(LinearSolver.getSystem(first, 6, 6), LinearSolver.getSystem(second, 6, 6));
+	}
+	
+	/**
+	 * Tests that the toggle mask cache evicts masks once it's over its budget, and builds them again when asked.
+	 */
+	@Test
+	public void boundedMasks() {
+		DimensionCache<ToggleMasks> cache = Topology.getMaskCache();
+		long maxBytes = cache.getMaxBytes();
+		try {
+			ToggleMasks masks = Topology.EIGHT_NEIGHBOR.getMasks(9, 4);
+			ToggleMasks torus = Topology.TORUS.getMasks(9, 4);
+			long evictions = cache.getEvictions();
+			cache.setMaxBytes(Math.max(masks.getSizeInBytes(), torus.getSizeInBytes()));
+			assertTrue(cache.getEvictions() > evictions);
+			assertTrue(cache.getSizeInBytes() <= cache.getMaxBytes());
+			
+			ToggleMasks rebuilt = Topology.EIGHT_NEIGHBOR.getMasks(9, 4);
+			assertNotSame(masks, rebuilt);
+			assertArrayEquals(masks.getToggledCells(10), rebuilt.getToggledCells(10));
+		} finally {
+			cache.setMaxBytes(maxBytes);
+		}
+	}
+	
+	/**
+	 * Tests that tiles with the same press share a pattern, so the masks of a large board stay small enough to cache 
+	 * and presses near the edges still wrap or clip correctly.
+	 */
+	@Test
+	public void compactMasks() {
+		ToggleMasks masks = Topology.EIGHT_NEIGHBOR.getMasks(300, 200);
+		assertTrue(masks.getNumberOfPatterns() <= 3 * 300);
+		assertTrue(masks.getSizeInBytes() < 5L * 300 * 200);
+		assertSame(masks, Topology.EIGHT_NEIGHBOR.getMasks(300, 200));
+		assertArrayEquals(new int[] {0, 1, 300, 301}, masks.getToggledCells(0));
+		assertArrayEquals(new int[] {62, 63, 64, 362, 363, 364, 662, 663, 664}, masks.getToggledCells(363));
+		
+		ToggleMasks torus = Topology.TORUS.getMasks(70, 3);
+		assertEquals(Topology.TORUS.getToggledCells(70, 3, 69, 0).length, torus.getToggledCells(69).length);
+		assertArrayEquals(new int[] {0, 68, 69, 139, 209}, torus.getToggledCells(69));
+		assertEquals(5, torus.getMaxToggles());
+	}
+	
+	/**
+	 * Returns the fewest presses that clear the board, by trying every set of presses.
+	 * @param board board to clear
+	 * @return fewest presses, or -1 if the board can't be cleared
+	 */
+	private static int bruteForceMinimum(GameBoard board) {
+		int width = board.getWidth();
+		int cells = width * board.getHeight();
+		int best = -1;
+		for (int presses = 0; presses < (1 << cells); presses++) {
+			GameBoard copy = new GameBoard(board.getTopology(), board.saveBoard());
+			for (int cell = 0; cell < cells; cell++) {
+				if ((presses & (1 << cell)) != 0) {
+					copy.swapTiles(cell % width, cell / width);
+				}
+			}
+			if (copy.isGameWon() && (best < 0 || Integer.bitCount(presses) < best)) {
+				best = Integer.bitCount(presses);
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,378 @@
+package com.dunhili.lightsout.ui;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+import javax.swing.JComponent;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.MoveHistory;
+import com.dunhili.lightsout.board.TileColor;
+import com.dunhili.lightsout.board.Topology;
+import com.dunhili.lightsout.solver.HintService;
+
+/**
+ * A single component that paints a {@link GameBoard} directly and turns clicks into presses. Only the tiles inside
+ * the clip are painted, with each run of same colored tiles in a row filled at once, and after a press only the
+ * rectangles of the tiles that changed are repainted, so large boards stay responsive. Fires an action event with
+ * {@link #PRESS_COMMAND} after every move and {@link #WON_COMMAND} once the board is cleared.
+ * @author dunhili
+ */
+public class BoardComponent extends JComponent {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	/** Action command fired after a move is made or undone. */
+	public static final String PRESS_COMMAND = "press";
+	
+	/** Action command fired when a move clears the board. */
+	public static final String WON_COMMAND = "won";
+	
+	private static final long serialVersionUID = -3385202245711408151L;
+	private static final Logger log = Logger.getLogger(BoardComponent.class);
+	
+	/** Largest preferred size of the board in pixels, the tiles shrink to fit bigger boards. */
+	private static final int MAX_PREFERRED_PIXELS = 480;
+	private static final int MAX_TILE_SIZE = 48;
+	
+	/** Smallest tile size that still gets grid lines drawn around it. */
+	private static final int MIN_GRID_TILE_SIZE = 4;
+	
+	private static final Color WHITE_TILE = Color.WHITE;
+	private static final Color BLACK_TILE = Color.DARK_GRAY;
+	private static final Color BLOCKED_TILE = Color.LIGHT_GRAY;
+	private static final Color GRID = Color.GRAY;
+	private static final Color HINT = Color.RED;
+	
+	private final GameBoard board;
+	private final MoveHistory history;
+	
+	/** Created the first time a hint is asked for, and kept up to date by every move after that. */
+	private HintService hints;
+	
+	/** Index (y * width + x) of the hinted tile, or -1 if no hint is showing. */
+	private int hintCell = -1;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a component that plays the given board. Moves should only be made on the board through the component.
+	 * @param board board to paint and play
+	 */
+	public BoardComponent(GameBoard board) {
+		this.board = board;
+		this.history = new MoveHistory(board);
+		
+		int tileSize = Math.max(1, Math.min(MAX_TILE_SIZE,
+				MAX_PREFERRED_PIXELS / Math.max(board.getWidth(), board.getHeight())));
+		setPreferredSize(new Dimension(tileSize * board.getWidth(), tileSize * board.getHeight()));
+		setOpaque(true);
+		
+		addMouseListener(new MouseAdapter() {
+			@Override
+			public void mousePressed(MouseEvent e) {
+				int cell = getCellAt(e.getX(), e.getY());
+				if (cell >= 0) {
+					press(cell % BoardComponent.this.board.getWidth(), cell / BoardComponent.this.board.getWidth());
+				}
+			}
+		});
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the board this component plays.
+	 * @return the board
+	 */
+	public GameBoard getBoard() {
+		return board;
+	}
+	
+	/**
+	 * Returns the moves made on the board.
+	 * @return history of the moves
+	 */
+	public MoveHistory getHistory() {
+		return history;
+	}
+	
+	/**
+	 * Adds a listener for the {@link #PRESS_COMMAND} and {@link #WON_COMMAND} events.
+	 * @param listener listener to add
+	 */
+	public void addActionListener(ActionListener listener) {
+		listenerList.add(ActionListener.class, listener);
+	}
+	
+	/**
+	 * Removes a listener that was added with {@link #addActionListener(ActionListener)}.
+	 * @param listener listener to remove
+	 */
+	public void removeActionListener(ActionListener listener) {
+		listenerList.remove(ActionListener.class, listener);
+	}
+	
+	/**
+	 * Presses the tile at (x, y) and repaints the tiles it changed. Presses outside the board or on blocked tiles are
+	 * ignored.
+	 * @param x x coordinate of the tile
+	 * @param y y coordinate of the tile
+	 * @return true if the move was made, otherwise false
+	 */
+	public boolean press(int x, int y) {
+		if (log.isTraceEnabled()) {
+			log.trace("press(" + x + ", " + y + ")");
+		}
+		if (!history.press(x, y)) {
+			return false;
+		}
+		moved(x, y);
+		fireAction(board.isGameWon() ? WON_COMMAND : PRESS_COMMAND);
+		return true;
+	}
+	
+	/**
+	 * Undoes the last move, if there is one, and repaints the tiles it changed.
+	 * @return true if a move was undone, false if there was nothing to undo
+	 */
+	public boolean undo() {
+		log.trace("undo()");
+		if (!history.canUndo()) {
+			return false;
+		}
+		int last = history.getNumberOfMoves() - 1;
+		int x = history.getMoveX(last);
+		int y = history.getMoveY(last);
+		history.undo();
+		moved(x, y);
+		fireAction(PRESS_COMMAND);
+		return true;
+	}
+	
+	/**
+	 * Highlights the next tile to press on the way to a minimum solution.
+	 * @return index (y * width + x) of the hinted tile, or -1 if the board is cleared or can't be solved
+	 */
+	public int showHint() {
+		log.trace("showHint()");
+		if (hints == null) {
+			hints = new HintService(board);
+		}
+		clearHint();
+		hintCell = hints.getHint();
+		if (hintCell >= 0) {
+			repaintTile(hintCell % board.getWidth(), hintCell / board.getWidth());
+		}
+		return hintCell;
+	}
+	
+	/**
+	 * Returns the side length in pixels of each tile at the component's current size.
+	 * @return tile size in pixels
+	 */
+	public int getTileSize() {
+		return Math.max(1, Math.min(getWidth() / board.getWidth(), getHeight() / board.getHeight()));
+	}
+	
+	/**
+	 * Returns the tile under the given point of the component, as (y * width + x), or -1 if the point isn't on the
+	 * board.
+	 * @param px x coordinate of the point
+	 * @param py y coordinate of the point
+	 * @return index of the tile, or -1 if there is none
+	 */
+	public int getCellAt(int px, int py) {
+		int tileSize = getTileSize();
+		int dx = px - getOriginX(tileSize);
+		int dy = py - getOriginY(tileSize);
+		if (dx < 0 || dy < 0) {
+			return -1;
+		}
+		int x = dx / tileSize;
+		int y = dy / tileSize;
+		return (x < board.getWidth() && y < board.getHeight()) ? y * board.getWidth() + x : -1;
+	}
+	
+	/**
+	 * Returns the rectangle the tile at (x, y) is painted in.
+	 * @param x x coordinate of the tile
+	 * @param y y coordinate of the tile
+	 * @return bounds of the tile
+	 */
+	public Rectangle getTileBounds(int x, int y) {
+		int tileSize = getTileSize();
+		return new Rectangle(getOriginX(tileSize) + x * tileSize, getOriginY(tileSize) + y * tileSize,
+				tileSize, tileSize);
+	}
+	
+	/**
+	 * Paints the tiles inside the clip. Each run of tiles of the same color in a row is filled with one rectangle.
+	 * @param g graphics to paint with
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) {
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+		g.setColor(getBackground() != null ? getBackground() : Color.BLACK);
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+		
+		int tileSize = getTileSize();
+		int originX = getOriginX(tileSize);
+		int originY = getOriginY(tileSize);
+		int firstX = Math.max(0, (clip.x - originX) / tileSize);
+		int firstY = Math.max(0, (clip.y - originY) / tileSize);
+		int lastX = Math.min(board.getWidth() - 1, (clip.x + clip.width - 1 - originX) / tileSize);
+		int lastY = Math.min(board.getHeight() - 1, (clip.y + clip.height - 1 - originY) / tileSize);
+		
+		for (int y = firstY; y <= lastY; y++) {
+			int top = originY + y * tileSize;
+			int runStart = firstX;
+			TileColor runColor = board.getTileAt(firstX, y);
+			for (int x = firstX + 1; x <= lastX + 1; x++) {
+				TileColor color = (x <= lastX) ? board.getTileAt(x, y) : null;
+				if (color != runColor) {
+					g.setColor(colorOf(runColor));
+					g.fillRect(originX + runStart * tileSize, top, (x - runStart) * tileSize, tileSize);
+					runStart = x;
+					runColor = color;
+				}
+			}
+		}
+		
+		if (tileSize >= MIN_GRID_TILE_SIZE && firstX <= lastX && firstY <= lastY) {
+			g.setColor(GRID);
+			int left = originX + firstX * tileSize;
+			int right = originX + (lastX + 1) * tileSize - 1;
+			int top = originY + firstY * tileSize;
+			int bottom = originY + (lastY + 1) * tileSize - 1;
+			for (int y = firstY; y <= lastY; y++) {
+				g.drawLine(left, originY + y * tileSize, right, originY + y * tileSize);
+			}
+			for (int x = firstX; x <= lastX; x++) {
+				g.drawLine(originX + x * tileSize, top, originX + x * tileSize, bottom);
+			}
+		}
+		
+		if (hintCell >= 0) {
+			int x = hintCell % board.getWidth();
+			int y = hintCell / board.getWidth();
+			if (x >= firstX && x <= lastX && y >= firstY && y <= lastY) {
+				g.setColor(HINT);
+				g.drawRect(originX + x * tileSize + 1, originY + y * tileSize + 1, tileSize - 3, tileSize - 3);
+			}
+		}
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Updates the hints after the tile at (x, y) was pressed and repaints the tiles the press changed.
+	 * @param x x coordinate of the pressed tile
+	 * @param y y coordinate of the pressed tile
+	 */
+	private void moved(int x, int y) {
+		if (hints != null) {
+			hints.pressed(x, y);
+		}
+		clearHint();
+		
+		int width = board.getWidth();
+		if (board.getTopology() == Topology.PLUS) {
+			repaintTile(x, y);
+			repaintTile(x - 1, y);
+			repaintTile(x + 1, y);
+			repaintTile(x, y - 1);
+			repaintTile(x, y + 1);
+		} else {
+			int[] cells = board.getTopology().getMasks(width, board.getHeight()).getToggledCells(y * width + x);
+			for (int cell : cells) {
+				repaintTile(cell % width, cell / width);
+			}
+		}
+	}
+	
+	/**
+	 * Removes the hint highlight, if one is showing.
+	 */
+	private void clearHint() {
+		if (hintCell >= 0) {
+			repaintTile(hintCell % board.getWidth(), hintCell / board.getWidth());
+			hintCell = -1;
+		}
+	}
+	
+	/**
+	 * Asks for the rectangle of the tile at (x, y) to be repainted, if the tile is on the board.
+	 * @param x x coordinate of the tile
+	 * @param y y coordinate of the tile
+	 */
+	private void repaintTile(int x, int y) {
+		if (x >= 0 && x < board.getWidth() && y >= 0 && y < board.getHeight()) {
+			repaint(getTileBounds(x, y));
+		}
+	}
+	
+	/**
+	 * Returns the x coordinate of the left edge of the board, which is centered in the component.
+	 * @param tileSize side length of each tile
+	 * @return left edge of the board
+	 */
+	private int getOriginX(int tileSize) {
+		return Math.max(0, (getWidth() - tileSize * board.getWidth()) / 2);
+	}
+	
+	/**
+	 * Returns the y coordinate of the top edge of the board, which is centered in the component.
+	 * @param tileSize side length of each tile
+	 * @return top edge of the board
+	 */
+	private int getOriginY(int tileSize) {
+		return Math.max(0, (getHeight() - tileSize * board.getHeight()) / 2);
+	}
+	
+	/**
+	 * Returns the color to paint a tile of the given color with.
+	 * @param color color of the tile
+	 * @return paint color
+	 */
+	private static Color colorOf(TileColor color) {
+		if (color == TileColor.WHITE) {
+			return WHITE_TILE;
+		} else if (color == TileColor.BLACK) {
+			return BLACK_TILE;
+		}
+		return BLOCKED_TILE;
+	}
+	
+	/**
+	 * Sends an action event with the given command to every listener.
+	 * @param command action command of the event
+	 */
+	private void fireAction(String command) {
+		ActionEvent event = null;
+		for (ActionListener listener : listenerList.getListeners(ActionListener.class)) {
+			if (event == null) {
+				event = new ActionEvent(this, ActionEvent.ACTION_PERFORMED, command);
+			}
+			listener.actionPerformed(event);
+		}
+	}
+}
@@ -1,13 +1,18 @@
 package com.dunhili.lightsout.ui;
 
+import com.dunhili.lightsout.board.GameBoard;
 import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.metrics.Metrics;
 import com.dunhili.lightsout.utils.LevelUtil;
+import com.dunhili.lightsout.utils.ProgressJournal;
+import com.dunhili.lightsout.utils.SaveService;
 
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Properties;
@@ -23,7 +28,10 @@ import org.apache.log4j.PropertyConfigurator;
 public class GameScreen extends JPanel implements ActionListener {
 	static {
 		loadLog4jFile();
-		levels = LevelUtil.readLevelsFromFile();
+		Metrics.registerMBean();
+		List<Level> loadedLevels = loadLevels();
+		LevelUtil.verifyIdealNumberOfMoves(loadedLevels);
+		levels = loadedLevels;
 	}
 	
 	private static final long serialVersionUID = 4263327705957161268L;
@@ -31,6 +39,15 @@ public class GameScreen extends JPanel implements ActionListener {
 	
 	private static List<Level> levels;
 	
+	/** Journal the user's progress is saved to, or null if the save file couldn't be opened. */
+	private static ProgressJournal journal;
+	
+	/** Index of the level being played. */
+	private int currentLevel = 0;
+	
+	private BoardComponent boardComponent;
+	private JLabel movesLabel;
+	
 	public GameScreen() {
 		setupTitleWidgets();
 	}
@@ -39,6 +56,14 @@ public class GameScreen extends JPanel implements ActionListener {
 	public void actionPerformed(ActionEvent e) {
 	    if ("begin".equals(e.getActionCommand())) {
 	        setupGameWidgets();
+	    } else if ("undo".equals(e.getActionCommand())) {
+	    	boardComponent.undo();
+	    } else if ("hint".equals(e.getActionCommand())) {
+	    	boardComponent.showHint();
+	    } else if (BoardComponent.PRESS_COMMAND.equals(e.getActionCommand())) {
+	    	updateMovesLabel();
+	    } else if (BoardComponent.WON_COMMAND.equals(e.getActionCommand())) {
+	    	levelCompleted();
 	    }
 	}
 	
@@ -62,17 +87,88 @@ public class GameScreen extends JPanel implements ActionListener {
 		log.info("setting up game widgets...");
 		clearScreen();
 		
+		Level level = levels.get(currentLevel);
+		boardComponent = new BoardComponent(new GameBoard(level.getLayout()));
+		boardComponent.addActionListener(this);
+		
+		movesLabel = new JLabel();
+		updateMovesLabel();
+		
+		JButton undoButton = new JButton("Undo");
+		undoButton.setActionCommand("undo");
+		undoButton.addActionListener(this);
+		
+		JButton hintButton = new JButton("Hint");
+		hintButton.setActionCommand("hint");
+		hintButton.addActionListener(this);
 		
+		add(movesLabel);
+		add(boardComponent);
+		add(undoButton);
+		add(hintButton);
 		revalidate();
 		log.info("done setting up game.");
 	}
 	
+	private void updateMovesLabel() {
+		Level level = levels.get(currentLevel);
+		movesLabel.setText("Level " + (currentLevel + 1) + " - Moves: " + boardComponent.getHistory().getNumberOfMoves()
+				+ " (ideal " + level.getIdealNumberOfMoves() + ")");
+	}
+	
+	private void levelCompleted() {
+		Level level = levels.get(currentLevel);
+		int moves = boardComponent.getHistory().getNumberOfMoves();
+		log.info("Level " + (currentLevel + 1) + " completed in " + moves + " moves.");
+		if (!level.isCompleted() || moves < level.getNumberOfMoves()) {
+			if (journal == null) {
+				level.setNumberOfMoves(moves);
+			} else {
+				journal.record(currentLevel, moves);
+				saveProgress();
+			}
+		}
+		
+		if (currentLevel + 1 < levels.size()) {
+			currentLevel++;
+			setupGameWidgets();
+		} else {
+			currentLevel = 0;
+			setupTitleWidgets();
+		}
+	}
+	
 	private void clearScreen() {
 		removeAll();
 		revalidate(); 
 		repaint();
 	}
 	
+	private static List<Level> loadLevels() {
+		File saveFile = LevelUtil.getSaveFile(LevelUtil.LEVEL_FILE_NAME);
+		try {
+			if (!saveFile.exists()) {
+				// the first run copies the bundled levels to the save file the journal sits beside
+				saveFile.getAbsoluteFile().getParentFile().mkdirs();
+				SaveService.writeAtomically(LevelUtil.readLevelsFromFile(), saveFile);
+			}
+			journal = new ProgressJournal(saveFile);
+			return journal.load();
+		} catch (IOException e) {
+			log.error("Error while loading saved progress, progress won't be saved : ", e);
+			journal = null;
+			return LevelUtil.readLevelsFromFile();
+		}
+	}
+	
+	private static void saveProgress() {
+		try {
+			journal.save();
+		} catch (IOException e) {
+			log.error("Error while saving progress : ", e);
+		}
+	}
+	
 	private static void loadLog4jFile() {
 		try {
 			Properties props = new Properties();
@@ -97,7 +193,15 @@ public class GameScreen extends JPanel implements ActionListener {
         frame.addWindowListener(new WindowAdapter() {
         	@Override
             public void windowClosing(WindowEvent e) {
-            	LevelUtil.saveLevels(levels);
+            	if (journal == null) {
+            		return;
+            	}
+            	saveProgress();
+            	try {
+            		journal.close();
+            	} catch (IOException ex) {
+            		log.error("Error while closing the progress journal : ", ex);
+            	}
             }
         });
         
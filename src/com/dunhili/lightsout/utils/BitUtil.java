@@ -0,0 +1,222 @@
+package com.dunhili.lightsout.utils;
+
+/**
+ * A utility class for working with bit vectors packed into arrays of longs. Bit i of a vector is bit (i % 64) of 
+ * word (i / 64). These are the vectors over GF(2) that the solvers use, where addition is XOR.
+ * @author dunhili
+ */
+public class BitUtil {
+	/** Number of bits in each word of a vector. */
+	public static final int BITS_PER_WORD = 64;
+	
+	/** Can't be instantiated. */
+	private BitUtil() { }
+	
+	/**
+	 * Returns the number of words needed to hold the given number of bits.
+	 * @param bits number of bits
+	 * @return number of words needed to hold the bits
+	 */
+	public static int wordsFor(int bits) {
+		return (bits + BITS_PER_WORD - 1) / BITS_PER_WORD;
+	}
+	
+	/**
+	 * Returns true if bit i of the vector is set.
+	 * @param vector vector to check
+	 * @param i index of the bit
+	 * @return true if the bit is set, otherwise false
+	 */
+	public static boolean get(long[] vector, int i) {
+		return (vector[i >>> 6] & (1L << i)) != 0L;
+	}
+	
+	/**
+	 * Sets bit i of the vector.
+	 * @param vector vector to change
+	 * @param i index of the bit
+	 */
+	public static void set(long[] vector, int i) {
+		vector[i >>> 6] |= 1L << i;
+	}
+	
+	/**
+	 * Flips bit i of the vector.
+	 * @param vector vector to change
+	 * @param i index of the bit
+	 */
+	public static void flip(long[] vector, int i) {
+		vector[i >>> 6] ^= 1L << i;
+	}
+	
+	/**
+	 * XORs the source vector into the destination vector, ie adds it over GF(2).
+	 * @param dest vector to change
+	 * @param src vector to add to the destination
+	 */
+	public static void xorInto(long[] dest, long[] src) {
+		for (int i = 0; i < src.length; i++) {
+			dest[i] ^= src[i];
+		}
+	}
+	
+	/**
+	 * XORs length words of the source vector starting at word srcOffset into the destination vector starting at word
+	 * destOffset. The loop has no branches or carried state, so the JIT can run it over SIMD lanes on long rows.
+	 * @param dest vector to change
+	 * @param destOffset index of the first word to change
+	 * @param src vector to add to the destination
+	 * @param srcOffset index of the first word to add
+	 * @param length number of words
+	 */
+	public static void xorInto(long[] dest, int destOffset, long[] src, int srcOffset, int length) {
+		for (int i = 0; i < length; i++) {
+			dest[destOffset + i] ^= src[srcOffset + i];
+		}
+	}
+	
+	/**
+	 * XORs every set bit of a row of length words of the source, along with the bits either side of it, into the 
+	 * destination, ie dest ^= src ^ (src << 1) ^ (src >>> 1) across the whole row. This is pressing every tile of the
+	 * row in src at once. Bits shifted past the low end of the row are dropped, but the bit past the high end lands
+	 * in the unused top of the last word, so callers with a partial last word have to mask it off. The edge words are
+	 * handled outside the loop, so the loop itself is branch free and can be vectorized by the JIT.
+	 * @param dest vector to change
+	 * @param destOffset index of the first word of the destination row
+	 * @param src vector with the bits to spread
+	 * @param srcOffset index of the first word of the source row
+	 * @param length number of words in the row
+	 */
+	public static void xorWithNeighbours(long[] dest, int destOffset, long[] src, int srcOffset, int length) {
+		if (length == 1) {
+			long word = src[srcOffset];
+			dest[destOffset] ^= word ^ (word << 1) ^ (word >>> 1);
+			return;
+		}
+		
+		long first = src[srcOffset];
+		dest[destOffset] ^= first ^ (first << 1) ^ (first >>> 1) ^ (src[srcOffset + 1] << 63);
+		for (int i = 1; i < length - 1; i++) {
+			long word = src[srcOffset + i];
+			dest[destOffset + i] ^= word ^ (word << 1) ^ (src[srcOffset + i - 1] >>> 63) ^ (word >>> 1) 
+					^ (src[srcOffset + i + 1] << 63);
+		}
+		long last = src[srcOffset + length - 1];
+		dest[destOffset + length - 1] ^= last ^ (last << 1) ^ (src[srcOffset + length - 2] >>> 63) ^ (last >>> 1);
+	}
+	
+	/**
+	 * Returns the number of set bits in the vector.
+	 * @param vector vector to count
+	 * @return number of set bits
+	 */
+	public static int popCount(long[] vector) {
+		return popCount(vector, 0, vector.length);
+	}
+	
+	/**
+	 * Returns the number of set bits in length words of the vector starting at word offset.
+	 * @param vector vector to count
+	 * @param offset index of the first word to count
+	 * @param length number of words to count
+	 * @return number of set bits
+	 */
+	public static int popCount(long[] vector, int offset, int length) {
+		int count = 0;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			count += Long.bitCount(vector[i]);
+		}
+		return count;
+	}
+	
+	/**
+	 * Returns true if no bits in the vector are set.
+	 * @param vector vector to check
+	 * @return true if the vector is all zeros, otherwise false
+	 */
+	public static boolean isZero(long[] vector) {
+		for (long word : vector) {
+			if (word != 0L) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the dot product of the two vectors over GF(2), ie the parity of the bits they have in common.
+	 * @param a first vector
+	 * @param b second vector
+	 * @return true if an odd number of bits are set in both vectors, otherwise false
+	 */
+	public static boolean dot(long[] a, long[] b) {
+		long parity = 0L;
+		int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; i++) {
+			parity ^= a[i] & b[i];
+		}
+		return (Long.bitCount(parity) & 1) != 0;
+	}
+	
+	/**
+	 * Copies length bits from the source vector starting at bit srcOffset into the destination vector starting at 
+	 * bit destOffset. The destination bits are assumed to be clear, so the source bits are OR'd into place.
+	 * @param src vector to copy the bits from
+	 * @param srcOffset index of the first bit to copy
+	 * @param dest vector to copy the bits into
+	 * @param destOffset index of the first bit to write
+	 * @param length number of bits to copy
+	 */
+	public static void copyBits(long[] src, int srcOffset, long[] dest, int destOffset, int length) {
+		int copied = 0;
+		while (copied < length) {
+			int chunk = Math.min(BITS_PER_WORD, length - copied);
+			long bits = readBits(src, srcOffset + copied, chunk);
+			writeBits(dest, destOffset + copied, bits, chunk);
+			copied += chunk;
+		}
+	}
+	
+	/**
+	 * Reads up to 64 bits from the vector starting at the given bit index and returns them in the low bits of a word.
+	 * @param vector vector to read from
+	 * @param offset index of the first bit to read
+	 * @param length number of bits to read, between 1 and 64
+	 * @return the bits that were read
+	 */
+	public static long readBits(long[] vector, int offset, int length) {
+		int word = offset >>> 6;
+		int shift = offset & 63;
+		long bits = vector[word] >>> shift;
+		if (shift != 0 && shift + length > BITS_PER_WORD) {
+			bits |= vector[word + 1] << (BITS_PER_WORD - shift);
+		}
+		return bits & lowMask(length);
+	}
+	
+	/**
+	 * ORs up to 64 bits into the vector starting at the given bit index.
+	 * @param vector vector to write to
+	 * @param offset index of the first bit to write
+	 * @param bits the bits to write, in the low bits of the word
+	 * @param length number of bits to write, between 1 and 64
+	 */
+	public static void writeBits(long[] vector, int offset, long bits, int length) {
+		bits &= lowMask(length);
+		int word = offset >>> 6;
+		int shift = offset & 63;
+		vector[word] |= bits << shift;
+		if (shift != 0 && shift + length > BITS_PER_WORD) {
+			vector[word + 1] |= bits >>> (BITS_PER_WORD - shift);
+		}
+	}
+	
+	/**
+	 * Returns a mask with the lowest length bits set.
+	 * @param length number of bits to set, between 0 and 64
+	 * @return mask of the lowest length bits
+	 */
+	public static long lowMask(int length) {
+		return (length >= BITS_PER_WORD) ? -1L : (1L << length) - 1;
+	}
+}
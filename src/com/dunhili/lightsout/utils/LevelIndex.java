@@ -0,0 +1,346 @@
+package com.dunhili.lightsout.utils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.Level;
+
+/**
+ * A sidecar index of the byte offset of every level in a text level file, so level N can be read by seeking straight
+ * to its line instead of parsing every line before it. The index lives next to the level file with an '.idx' suffix
+ * and records the size, modification time and CRC32 checksum of the level file it was built from. It's rebuilt 
+ * automatically when the level file has changed.
+ * <p>The format, all integers little-endian:
+ * <p>header : magic 'LOIX' (int), version (int), number of levels (int), padding (int), source size (long), source 
+ * modification time (long), source CRC32 (long)
+ * <p>offsets : the byte offset of the start of each level's line (long)
+ * @author dunhili
+ */
+public class LevelIndex {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	/** The bytes 'LOIX' read as a little-endian int. */
+	public static final int MAGIC = 0x58494F4C;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 40;
+	public static final String SUFFIX = ".idx";
+	
+	private static final Logger log = Logger.getLogger(LevelIndex.class);
+	
+	private final File levelFile;
+	private final File indexFile;
+	private final int numberOfLevels;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates an index over the given level file from its up to date sidecar index.
+	 * @param levelFile level file that is indexed
+	 * @param numberOfLevels number of levels in the index
+	 */
+	private LevelIndex(File levelFile, int numberOfLevels) {
+		this.levelFile = levelFile;
+		this.indexFile = getIndexFile(levelFile);
+		this.numberOfLevels = numberOfLevels;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Loads the index for the given level file, building or rebuilding the sidecar index first if it's missing or 
+	 * stale.
+	 * @param levelFile level file to index
+	 * @return the index
+	 * @throws IOException if the level file or index can't be read or written
+	 */
+	public static LevelIndex forFile(File levelFile) throws IOException {
+		if (log.isTraceEnabled()) {
+			log.trace("forFile(" + levelFile + ")");
+		}
+		File indexFile = getIndexFile(levelFile);
+		int numberOfLevels = indexFile.exists() ? checkIndex(levelFile, indexFile) : -1;
+		if (numberOfLevels < 0) {
+			numberOfLevels = build(levelFile);
+		}
+		return new LevelIndex(levelFile, numberOfLevels);
+	}
+	
+	/**
+	 * Scans the level file and writes its sidecar index, replacing any existing index.
+	 * @param levelFile level file to index
+	 * @return number of levels in the file
+	 * @throws IOException if the level file can't be read or the index can't be written
+	 */
+	public static int build(File levelFile) throws IOException {
+		log.info("Building level index for " + levelFile + "...");
+		long modified = levelFile.lastModified();
+		long[] offsets = new long[1024];
+		int count = 0;
+		CRC32 checksum = new CRC32();
+		long size = 0;
+		
+		InputStream in = new BufferedInputStream(new FileInputStream(levelFile), 1 << 16);
+		try {
+			byte[] chunk = new byte[1 << 16];
+			long lineStart = 0;
+			boolean lineHasLevel = false;
+			int read;
+			while ((read = in.read(chunk)) > 0) {
+				checksum.update(chunk, 0, read);
+				for (int i = 0; i < read; i++) {
+					byte b = chunk[i];
+					if (b == '\n') {
+						if (lineHasLevel) {
+							if (count == offsets.length) {
+								offsets = Arrays.copyOf(offsets, count * 2);
+							}
+							offsets[count++] = lineStart;
+						}
+						lineStart = size + i + 1;
+						lineHasLevel = false;
+					} else if (b != ' ' && b != '\r' && b != '\t') {
+						lineHasLevel = true;
+					}
+				}
+				size += read;
+			}
+			if (lineHasLevel) {
+				if (count == offsets.length) {
+					offsets = Arrays.copyOf(offsets, count + 1);
+				}
+				offsets[count++] = lineStart;
+			}
+		} finally {
+			in.close();
+		}
+		offsets = Arrays.copyOf(offsets, count);
+		
+		writeIndex(getIndexFile(levelFile), offsets, size, modified, checksum.getValue());
+		log.info("Done building level index, " + count + " levels.");
+		return count;
+	}
+	
+	/**
+	 * Returns the number of levels in the level file.
+	 * @return number of levels
+	 */
+	public int size() {
+		return numberOfLevels;
+	}
+	
+	/**
+	 * Reads the level at the given index by reading its offset from the index and then seeking straight to its line
+	 * in the level file.
+	 * @param index index of the level
+	 * @return the level
+	 * @throws IOException if the level file or index can't be read
+	 */
+	public Level getLevel(int index) throws IOException {
+		if (index < 0 || index >= numberOfLevels) {
+			throw new IndexOutOfBoundsException("Level " + index + " is outside the file of " + numberOfLevels 
+					+ " levels.");
+		}
+		
+		long offset;
+		RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+		try {
+			ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			FileChannel channel = file.getChannel();
+			while (buffer.hasRemaining() && channel.read(buffer, HEADER_SIZE + 8L * index + buffer.position()) > 0) {
+				// keep reading until the whole offset is read
+			}
+			offset = buffer.getLong(0);
+		} finally {
+			file.close();
+		}
+		
+		file = new RandomAccessFile(levelFile, "r");
+		try {
+			return readLevelAt(file.getChannel(), offset);
+		} finally {
+			file.close();
+		}
+	}
+	
+	/**
+	 * Returns the sidecar index file for the given level file.
+	 * @param levelFile level file
+	 * @return its index file
+	 */
+	public static File getIndexFile(File levelFile) {
+		return new File(levelFile.getPath() + SUFFIX);
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Reads the level whose line starts at the given offset.
+	 * @param channel channel of the level file
+	 * @param offset byte offset of the line
+	 * @return the level
+	 * @throws IOException if the level file can't be read
+	 */
+	private static Level readLevelAt(FileChannel channel, long offset) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		long position = offset;
+		int lineEnd = -1;
+		while (lineEnd < 0) {
+			if (!buffer.hasRemaining()) {
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+			int start = buffer.position();
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				lineEnd = buffer.position();
+				break;
+			}
+			position += read;
+			for (int i = start; i < buffer.position(); i++) {
+				if (buffer.get(i) == '\n') {
+					lineEnd = i;
+					break;
+				}
+			}
+		}
+		
+		buffer.position(0);
+		buffer.limit(lineEnd);
+		LevelParser parser = new LevelParser(buffer);
+		if (!parser.next()) {
+			throw new IOException("There is no level at offset " + offset + ".");
+		}
+		return parser.createLevel();
+	}
+	
+	/**
+	 * Checks that the index file is up to date with the level file and returns the number of levels in it, or -1 if 
+	 * the index is stale or unreadable. The index is only opened for reading, unless the level file's modification 
+	 * time has changed but its contents haven't, in which case the index header is updated if it can be written.
+	 * @param levelFile level file the index is for
+	 * @param indexFile index file to check
+	 * @return number of levels in the index, or -1 if the index must be rebuilt
+	 * @throws IOException if the index file can't be read
+	 */
+	private static int checkIndex(File levelFile, File indexFile) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(indexFile, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (channel.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				log.warn("Level index " + indexFile + " is unreadable, rebuilding it.");
+				return -1;
+			}
+			int count = header.getInt(8);
+			long size = header.getLong(16);
+			long modified = header.getLong(24);
+			long checksum = header.getLong(32);
+			if (size != levelFile.length() || channel.size() != HEADER_SIZE + 8L * count) {
+				log.info("Level index " + indexFile + " is stale, rebuilding it.");
+				return -1;
+			}
+			if (modified != levelFile.lastModified()) {
+				if (checksum(levelFile) != checksum) {
+					log.info("Level index " + indexFile + " is stale, rebuilding it.");
+					return -1;
+				}
+				updateModified(indexFile, levelFile.lastModified());
+			}
+			return count;
+		} finally {
+			file.close();
+		}
+	}
+	
+	/**
+	 * Updates the level file modification time in the header of an index that is otherwise up to date. The index 
+	 * is still valid if this fails, so the failure is only logged and the header is checked again next time.
+	 * @param indexFile index file to update
+	 * @param modified modification time of the level file
+	 */
+	private static void updateModified(File indexFile, long modified) {
+		try {
+			RandomAccessFile file = new RandomAccessFile(indexFile, "rw");
+			try {
+				ByteBuffer field = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+				field.putLong(0, modified);
+				file.getChannel().write(field, 24);
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			log.warn("Couldn't update the header of level index " + indexFile + " : " + e);
+		}
+	}
+	
+	/**
+	 * Writes the index to a temporary file and moves it over the index file, so a reader never sees half an index.
+	 * @param indexFile index file to write
+	 * @param offsets byte offset of each level
+	 * @param size size of the level file
+	 * @param modified modification time of the level file
+	 * @param checksum CRC32 of the level file
+	 * @throws IOException if the index can't be written
+	 */
+	private static void writeIndex(File indexFile, long[] offsets, long size, long modified, long checksum) 
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 8 * offsets.length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(offsets.length).putInt(0);
+		buffer.putLong(size).putLong(modified).putLong(checksum);
+		buffer.asLongBuffer().put(offsets);
+		
+		File tempFile = new File(indexFile.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(tempFile);
+		try {
+			out.write(buffer.array());
+		} finally {
+			out.close();
+		}
+		Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	/**
+	 * Computes the CRC32 checksum of the file.
+	 * @param file file to checksum
+	 * @return the checksum
+	 * @throws IOException if the file can't be read
+	 */
+	private static long checksum(File file) throws IOException {
+		CRC32 checksum = new CRC32();
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] chunk = new byte[1 << 16];
+			int read;
+			while ((read = in.read(chunk)) > 0) {
+				checksum.update(chunk, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		return checksum.getValue();
+	}
+}
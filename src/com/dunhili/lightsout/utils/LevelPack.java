@@ -0,0 +1,354 @@
+package com.dunhili.lightsout.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.metrics.Metrics;
+
+/**
+ * A compact binary level pack that is memory-mapped for random access. Opening a pack only reads its header, and 
+ * level N is found through an offset index in O(1) without touching any other level.
+ * <p>The format, all integers little-endian:
+ * <p>header : magic 'LOPK' (int), version (int), number of levels (int), offset of the index (int)
+ * <p>records : width, height, ideal number of moves and number of moves as zig-zag varints, followed by the layout 
+ * packed one bit per tile (bit (y * width + x), set for WHITE) in ceil(width * height / 8) bytes
+ * <p>index : the offset of each record (int)
+ * <p>Offsets are ints, so a pack can be at most 2 GB.
+ * @author dunhili
+ */
+public class LevelPack implements Closeable {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	/** The bytes 'LOPK' read as a little-endian int. */
+	public static final int MAGIC = 0x4B504F4C;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	
+	private static final Logger log = Logger.getLogger(LevelPack.class);
+	
+	private final RandomAccessFile file;
+	private final MappedByteBuffer buffer;
+	private final int numberOfLevels;
+	private final int indexOffset;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Opens the given pack file and maps it into memory.
+	 * @param packFile pack file to open
+	 * @throws IOException if the file can't be read or isn't a level pack
+	 */
+	public LevelPack(File packFile) throws IOException {
+		if (log.isTraceEnabled()) {
+			log.trace("LevelPack(" + packFile + ")");
+		}
+		file = new RandomAccessFile(packFile, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if (channel.size() > Integer.MAX_VALUE || channel.size() < HEADER_SIZE) {
+				throw new IOException(packFile + " is not a valid level pack.");
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			
+			if (buffer.getInt(0) != MAGIC) {
+				throw new IOException(packFile + " is not a level pack.");
+			} else if (buffer.getInt(4) != VERSION) {
+				throw new IOException(packFile + " has unsupported level pack version " + buffer.getInt(4) + ".");
+			}
+			numberOfLevels = buffer.getInt(8);
+			indexOffset = buffer.getInt(12);
+			if (indexOffset < HEADER_SIZE || (long) indexOffset + 4L * numberOfLevels > buffer.limit()) {
+				throw new IOException(packFile + " has a corrupt level index.");
+			}
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the number of levels in the pack.
+	 * @return number of levels
+	 */
+	public int size() {
+		return numberOfLevels;
+	}
+	
+	/**
+	 * Returns the level at the given index, decoding only that level's record.
+	 * @param index index of the level
+	 * @return the level
+	 */
+	public Level getLevel(int index) {
+		ByteBuffer record = getRecord(index);
+		Metrics.LEVELS_LOADED.increment();
+		Metrics.BYTES_READ.add(record.remaining());
+		int width = readVarint(record);
+		int height = readVarint(record);
+		int idealNumberOfMoves = readVarint(record);
+		int numberOfMoves = readVarint(record);
+		
+		String[] layout = new String[height];
+		char[] row = new char[width];
+		int base = record.position();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int cell = y * width + x;
+				row[x] = ((record.get(base + (cell >>> 3)) & (1 << (cell & 7))) != 0) ? 'W' : 'B';
+			}
+			layout[y] = new String(row);
+		}
+		return new Level(layout, idealNumberOfMoves, numberOfMoves);
+	}
+	
+	/**
+	 * Returns the ideal number of moves of the level at the given index without decoding its layout.
+	 * @param index index of the level
+	 * @return ideal number of moves to clear the level
+	 */
+	public int getIdealNumberOfMoves(int index) {
+		ByteBuffer record = getRecord(index);
+		readVarint(record);
+		readVarint(record);
+		return readVarint(record);
+	}
+	
+	/**
+	 * Returns the user's number of moves for the level at the given index without decoding its layout.
+	 * @param index index of the level
+	 * @return user's number of moves to clear the level
+	 */
+	public int getNumberOfMoves(int index) {
+		ByteBuffer record = getRecord(index);
+		readVarint(record);
+		readVarint(record);
+		readVarint(record);
+		return readVarint(record);
+	}
+	
+	/**
+	 * Closes the pack file. The mapping itself is released when it's garbage collected, and levels can't be read 
+	 * from the pack after it's closed.
+	 * @throws IOException if the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+	
+	/**
+	 * Writes the levels to a pack file, overwriting it if it exists. The levels are streamed to the file, so only 
+	 * their offsets are kept in memory.
+	 * @param levels levels to write
+	 * @param packFile file to write the pack to
+	 * @return number of levels written
+	 * @throws IOException if the file can't be written
+	 */
+	public static int write(Iterator<Level> levels, File packFile) throws IOException {
+		if (log.isTraceEnabled()) {
+			log.trace("write(" + packFile + ")");
+		}
+		int[] offsets = new int[1024];
+		int count = 0;
+		long position = HEADER_SIZE;
+		
+		FileOutputStream fileOut = new FileOutputStream(packFile);
+		try {
+			OutputStream out = new BufferedOutputStream(fileOut, 1 << 16);
+			out.write(new byte[HEADER_SIZE]);	// filled in once the index offset is known
+			
+			ByteBuffer record = ByteBuffer.allocate(64);
+			while (levels.hasNext()) {
+				if (position > Integer.MAX_VALUE) {
+					throw new IOException("Level pack " + packFile + " is larger than 2 GB.");
+				}
+				if (count == offsets.length) {
+					offsets = Arrays.copyOf(offsets, count * 2);
+				}
+				offsets[count++] = (int) position;
+				
+				record = encode(levels.next(), record);
+				out.write(record.array(), 0, record.position());
+				position += record.position();
+			}
+			if (position + 4L * count > Integer.MAX_VALUE) {
+				throw new IOException("Level pack " + packFile + " is larger than 2 GB.");
+			}
+			
+			ByteBuffer index = ByteBuffer.allocate(4 * count).order(ByteOrder.LITTLE_ENDIAN);
+			index.asIntBuffer().put(offsets, 0, count);
+			out.write(index.array());
+			out.flush();
+			
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt((int) position);
+			header.flip();
+			fileOut.getChannel().write(header, 0);
+		} finally {
+			fileOut.close();
+		}
+		
+		if (log.isDebugEnabled()) {
+			log.debug("Wrote " + count + " levels to " + packFile + ".");
+		}
+		return count;
+	}
+	
+	/**
+	 * Converts a level file in the text format (see {@link LevelUtil#readLevels(java.io.InputStream)}) to a pack.
+	 * @param textFile level file to convert
+	 * @param packFile file to write the pack to
+	 * @return number of levels converted
+	 * @throws IOException if either file can't be read or written
+	 */
+	public static int convertFromText(File textFile, File packFile) throws IOException {
+		LevelReader reader = LevelUtil.openLevels(textFile);
+		try {
+			return write(reader, packFile);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Converts a pack to a level file in the text format.
+	 * @param packFile pack to convert
+	 * @param textFile file to write the levels to
+	 * @return number of levels converted
+	 * @throws IOException if either file can't be read or written
+	 */
+	public static int convertToText(File packFile, File textFile) throws IOException {
+		LevelPack pack = new LevelPack(packFile);
+		try {
+			Writer out = Files.newBufferedWriter(textFile.toPath(), StandardCharsets.US_ASCII);
+			try {
+				for (int i = 0; i < pack.size(); i++) {
+					Level level = pack.getLevel(i);
+					if (i > 0) {
+						out.write('\n');
+					}
+					out.write(level.getIdealNumberOfMoves() + " " + level.getNumberOfMoves() + " " 
+							+ level.getCompressedLayout());
+				}
+			} finally {
+				out.close();
+			}
+			return pack.size();
+		} finally {
+			pack.close();
+		}
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns a view of the mapped pack positioned at the start of the given level's record.
+	 * @param index index of the level
+	 * @return buffer positioned at the record
+	 */
+	private ByteBuffer getRecord(int index) {
+		if (index < 0 || index >= numberOfLevels) {
+			throw new IndexOutOfBoundsException("Level " + index + " is outside the pack of " + numberOfLevels 
+					+ " levels.");
+		}
+		ByteBuffer record = buffer.duplicate();
+		record.position(buffer.getInt(indexOffset + 4 * index));
+		return record;
+	}
+	
+	/**
+	 * Encodes a level into its record, growing the buffer if it's too small.
+	 * @param level level to encode
+	 * @param record buffer to encode the level into
+	 * @return the buffer holding the record, positioned after its last byte
+	 */
+	private static ByteBuffer encode(Level level, ByteBuffer record) {
+		String[] layout = level.getLayout();
+		int width = layout[0].length();
+		int height = layout.length;
+		int layoutBytes = (width * height + 7) / 8;
+		if (record.capacity() < 20 + layoutBytes) {
+			record = ByteBuffer.allocate(20 + layoutBytes);
+		}
+		record.clear();
+		
+		writeVarint(record, width);
+		writeVarint(record, height);
+		writeVarint(record, level.getIdealNumberOfMoves());
+		writeVarint(record, level.getNumberOfMoves());
+		
+		int base = record.position();
+		Arrays.fill(record.array(), base, base + layoutBytes, (byte) 0);
+		for (int y = 0; y < height; y++) {
+			String row = layout[y];
+			for (int x = 0; x < width; x++) {
+				char tile = row.charAt(x);
+				if (tile == 'W' || tile == 'w') {
+					int cell = y * width + x;
+					record.array()[base + (cell >>> 3)] |= (byte) (1 << (cell & 7));
+				}
+			}
+		}
+		record.position(base + layoutBytes);
+		return record;
+	}
+	
+	/**
+	 * Writes a zig-zag encoded varint, so small negative numbers stay small.
+	 * @param buffer buffer to write to
+	 * @param value value to write
+	 */
+	private static void writeVarint(ByteBuffer buffer, int value) {
+		int bits = (value << 1) ^ (value >> 31);
+		while ((bits & ~0x7F) != 0) {
+			buffer.put((byte) ((bits & 0x7F) | 0x80));
+			bits >>>= 7;
+		}
+		buffer.put((byte) bits);
+	}
+	
+	/**
+	 * Reads a zig-zag encoded varint.
+	 * @param buffer buffer to read from
+	 * @return the value
+	 */
+	private static int readVarint(ByteBuffer buffer) {
+		int bits = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			bits |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (bits >>> 1) ^ -(bits & 1);
+	}
+}
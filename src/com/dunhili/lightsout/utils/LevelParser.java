@@ -0,0 +1,454 @@
+package com.dunhili.lightsout.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.GameBoard;
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.metrics.Metrics;
+
+/**
+ * Parses levels in the level file format straight from the bytes of a {@link ByteBuffer}, usually a memory-mapped
+ * level file. Each call to {@link #next()} scans one line in a single pass, decoding the two move counts and packing
+ * the 'W' and 'B' rows into words as it goes, so no Strings are created unless a {@link Level} is asked for. The 
+ * parsed tiles can be turned into a {@link GameBoard} without going through Strings at all. The parser reuses its 
+ * buffers from line to line and isn't thread safe.
+ * @author dunhili
+ */
+public class LevelParser {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(LevelParser.class);
+	
+	/** Size of the windows {@link #parseFile(File)} maps a level file in, 256 MB. */
+	public static final int WINDOW_BYTES = 256 * 1024 * 1024;
+	
+	private static final byte BLACK = 0;
+	private static final byte WHITE = 1;
+	private static final byte SEPARATOR = 2;
+	private static final byte INVALID = 3;
+	
+	/**
+	 * Class of each byte in a row of tiles. Looking the byte up lets WHITE and BLACK tiles be packed without a branch 
+	 * on the tile, which random layouts would mispredict half the time.
+	 */
+	private static final byte[] TILE_CLASSES = new byte[256];
+	static {
+		Arrays.fill(TILE_CLASSES, INVALID);
+		TILE_CLASSES['B'] = BLACK;
+		TILE_CLASSES['b'] = BLACK;
+		TILE_CLASSES['W'] = WHITE;
+		TILE_CLASSES['w'] = WHITE;
+		TILE_CLASSES[' '] = SEPARATOR;
+		TILE_CLASSES['\t'] = SEPARATOR;
+		TILE_CLASSES['\r'] = SEPARATOR;
+		TILE_CLASSES['\n'] = SEPARATOR;
+	}
+	
+	private final ByteBuffer buffer;
+	private int position;
+	private final int limit;
+	
+	private int idealNumberOfMoves;
+	private int numberOfMoves;
+	private int width;
+	private int height;
+	private int wordsPerRow;
+	
+	/** Tiles of the current level, packed the same way as {@link GameBoard#getRowBits(int)}. */
+	private long[] rowBits = new long[16];
+	private int levelsParsed = 0;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a parser for the levels between the buffer's position and its limit. The buffer's position isn't 
+	 * changed.
+	 * @param buffer buffer to parse the levels from
+	 */
+	public LevelParser(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.position = buffer.position();
+		this.limit = buffer.limit();
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Memory-maps the level file and returns a parser for it. The mapping stays valid after the file is closed. A 
+	 * single mapping can't be larger than 2 GB, so larger files must be read with {@link #parseFile(File)}.
+	 * @param file level file to parse
+	 * @return a parser for the file
+	 * @throws IOException if the file can't be mapped or is larger than 2 GB
+	 */
+	public static LevelParser map(File file) throws IOException {
+		if (log.isTraceEnabled()) {
+			log.trace("map(" + file + ")");
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				log.error(file + " is too large to map in one piece.");
+				throw new IOException(file + " is too large to map in one piece.");
+			}
+			return new LevelParser(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+	
+	/**
+	 * Parses every level of the level file, memory-mapping it {@link #WINDOW_BYTES} at a time so files of any size 
+	 * can be read.
+	 * @param file level file to parse
+	 * @return list of levels
+	 * @throws IOException if the file can't be mapped
+	 */
+	public static List<Level> parseFile(File file) throws IOException {
+		return parseFile(file, WINDOW_BYTES);
+	}
+	
+	/**
+	 * Parses every level of the level file, memory-mapping it in windows of about the given size. Each window ends 
+	 * on a line break, so no level is split between two windows, and a window is made larger if a single level 
+	 * doesn't fit in it.
+	 * @param file level file to parse
+	 * @param windowBytes size of the windows to map
+	 * @return list of levels
+	 * @throws IOException if the file can't be mapped, or a single level is larger than 2 GB
+	 */
+	public static List<Level> parseFile(File file, int windowBytes) throws IOException {
+		if (log.isTraceEnabled()) {
+			log.trace("parseFile(" + file + ", " + windowBytes + ")");
+		}
+		if (windowBytes <= 0) {
+			log.error("Window size must be positive.");
+			throw new IllegalArgumentException("Window size must be positive.");
+		}
+		List<Level> levels = new ArrayList<Level>();
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			long offset = 0;
+			int windowSize = windowBytes;
+			while (offset < size) {
+				long length = Math.min(windowSize, size - offset);
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+				int end = (offset + length == size) ? (int) length : lineEnd(window);
+				if (end == 0) {
+					// a single level is longer than the window
+					if (windowSize == Integer.MAX_VALUE) {
+						log.error("A level in " + file + " is larger than 2 GB.");
+						throw new IOException("A level in " + file + " is larger than 2 GB.");
+					}
+					windowSize = (int) Math.min(2L * windowSize, Integer.MAX_VALUE);
+					continue;
+				}
+				
+				window.limit(end);
+				levels.addAll(new LevelParser(window).parseAll());
+				offset += end;
+				windowSize = windowBytes;
+			}
+		} finally {
+			raf.close();
+		}
+		return levels;
+	}
+	
+	/**
+	 * Parses the next level, skipping blank lines.
+	 * @return true if a level was parsed, false if there are no more levels
+	 * @throws IllegalArgumentException if the level's rows aren't the same length or contain a character other than
+	 * 'W', 'w', 'B' or 'b'
+	 * @throws NumberFormatException if the move counts aren't numbers
+	 */
+	public boolean next() {
+		int start = position;
+		while (position < limit && isWhitespace(buffer.get(position))) {
+			position++;
+		}
+		if (position == limit) {
+			return false;
+		}
+		
+		idealNumberOfMoves = parseNumber();
+		skipSpaces();
+		numberOfMoves = parseNumber();
+		skipSpaces();
+		parseRows();
+		
+		levelsParsed++;
+		Metrics.LEVELS_LOADED.increment();
+		Metrics.BYTES_READ.add(position - start);
+		return true;
+	}
+	
+	/**
+	 * Returns the ideal number of moves of the last level parsed.
+	 * @return ideal number of moves
+	 */
+	public int getIdealNumberOfMoves() {
+		return idealNumberOfMoves;
+	}
+	
+	/**
+	 * Returns the user's number of moves of the last level parsed.
+	 * @return number of moves
+	 */
+	public int getNumberOfMoves() {
+		return numberOfMoves;
+	}
+	
+	/**
+	 * Returns the width of the last level parsed.
+	 * @return width of the level
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * Returns the height of the last level parsed.
+	 * @return height of the level
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Returns the number of levels parsed so far.
+	 * @return number of levels parsed
+	 */
+	public int getLevelsParsed() {
+		return levelsParsed;
+	}
+	
+	/**
+	 * Creates a board set to the layout of the last level parsed, copying the packed tiles directly.
+	 * @return the board
+	 */
+	public GameBoard createBoard() {
+		return new GameBoard(width, height, rowBits);
+	}
+	
+	/**
+	 * Creates a {@link Level} from the last level parsed. This decodes the layout into Strings, since that's what a 
+	 * level holds.
+	 * @return the level
+	 */
+	public Level createLevel() {
+		String[] layout = new String[height];
+		char[] row = new char[width];
+		for (int y = 0; y < height; y++) {
+			int rowStart = y * wordsPerRow;
+			for (int x = 0; x < width; x++) {
+				row[x] = ((rowBits[rowStart + (x >>> 6)] & (1L << x)) != 0L) ? 'W' : 'B';
+			}
+			layout[y] = new String(row);
+		}
+		return new Level(layout, idealNumberOfMoves, numberOfMoves);
+	}
+	
+	/**
+	 * Parses every remaining level into a list.
+	 * @return list of levels
+	 */
+	public List<Level> parseAll() {
+		List<Level> levels = new ArrayList<Level>();
+		while (next()) {
+			levels.add(createLevel());
+		}
+		return levels;
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Parses a decimal number, with an optional leading '-', at the current position.
+	 * @return the number
+	 */
+	private int parseNumber() {
+		ByteBuffer buf = buffer;
+		int start = position;
+		int pos = start;
+		int end = limit;
+		boolean negative = false;
+		if (pos < end && buf.get(pos) == '-') {
+			negative = true;
+			pos++;
+		}
+		long value = 0;
+		int digitsStart = pos;
+		while (pos < end) {
+			int digit = buf.get(pos) - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			value = value * 10 + digit;
+			if (value > Integer.MAX_VALUE + 1L) {
+				throw numberFormatException(start);
+			}
+			pos++;
+		}
+		if (pos == digitsStart || (pos < end && !isWhitespace(buf.get(pos))) 
+				|| (!negative && value > Integer.MAX_VALUE)) {
+			throw numberFormatException(start);
+		}
+		position = pos;
+		return (int) (negative ? -value : value);
+	}
+	
+	/**
+	 * Parses the rows of the layout up to the end of the line, packing each tile into a word as it's read and 
+	 * storing the word once it's full or the row ends. The width is set by the first row and every later row must 
+	 * match it.
+	 */
+	private void parseRows() {
+		ByteBuffer buf = buffer;
+		int pos = position;
+		int end = limit;
+		width = -1;
+		height = 0;
+		wordsPerRow = 0;
+		while (pos < end) {
+			byte b = buf.get(pos);
+			if (b == '\n') {
+				pos++;
+				break;
+			} else if (b == ' ' || b == '\t' || b == '\r') {
+				pos++;
+				continue;
+			}
+			
+			int rowStart = height * wordsPerRow;
+			int x = 0;
+			long word = 0L;
+			while (pos < end) {
+				b = buf.get(pos);
+				int tile = TILE_CLASSES[b & 0xFF];
+				if (tile > WHITE) {
+					if (tile == SEPARATOR) {
+						break;
+					}
+					position = pos;
+					char cell = (char) (b & 0xFF);
+					log.error(cell + " is an invaild character for creating the board.");
+					throw new IllegalArgumentException(cell + " is an invaild character for creating the board. Must be"
+							+ "either 'W' or 'B'.");
+				}
+				word |= (long) tile << x;
+				pos++;
+				if ((++x & 63) == 0) {
+					storeWord(rowStart + (x >>> 6) - 1, word);
+					word = 0L;
+				}
+			}
+			if ((x & 63) != 0) {
+				storeWord(rowStart + (x >>> 6), word);
+			}
+			
+			if (width < 0) {
+				width = x;
+				wordsPerRow = BitUtil.wordsFor(width);
+			} else if (x != width) {
+				position = pos;
+				log.error("Each row in the board must be the same length.");
+				throw new IllegalArgumentException("Each row in the board must be the same length.");
+			}
+			height++;
+		}
+		position = pos;
+		
+		if (height == 0) {
+			log.error("Board cannot be empty.");
+			throw new IllegalArgumentException("Board cannot be empty.");
+		}
+	}
+	
+	/**
+	 * Returns the position just after the last line break in the buffer, or 0 if it has no line break.
+	 * @param buffer buffer to search
+	 * @return end of the last whole line
+	 */
+	private static int lineEnd(ByteBuffer buffer) {
+		for (int pos = buffer.limit() - 1; pos >= 0; pos--) {
+			if (buffer.get(pos) == '\n') {
+				return pos + 1;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Skips spaces and tabs, but not the end of the line.
+	 */
+	private void skipSpaces() {
+		while (position < limit) {
+			byte b = buffer.get(position);
+			if (b != ' ' && b != '\t') {
+				break;
+			}
+			position++;
+		}
+	}
+	
+	/**
+	 * Stores a word of packed tiles, growing the row bits if needed. Every word of every row is stored, so words left
+	 * over from an earlier level never need clearing.
+	 * @param index index of the word
+	 * @param word packed tiles
+	 */
+	private void storeWord(int index, long word) {
+		if (index >= rowBits.length) {
+			rowBits = Arrays.copyOf(rowBits, Math.max(index + 1, rowBits.length * 2));
+		}
+		rowBits[index] = word;
+	}
+	
+	/**
+	 * Returns true if the byte is a space, tab or line break.
+	 * @param b byte to check
+	 * @return true if it's whitespace
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+	}
+	
+	/**
+	 * Creates the same exception {@link Integer#parseInt(String)} throws for the token at the given position.
+	 * @param start position of the token
+	 * @return the exception
+	 */
+	private NumberFormatException numberFormatException(int start) {
+		int end = start;
+		while (end < limit && !isWhitespace(buffer.get(end))) {
+			end++;
+		}
+		byte[] token = new byte[end - start];
+		for (int i = 0; i < token.length; i++) {
+			token[i] = buffer.get(start + i);
+		}
+		return new NumberFormatException("For input string: \"" + new String(token, StandardCharsets.US_ASCII) + "\"");
+	}
+}
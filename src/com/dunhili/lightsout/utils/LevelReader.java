@@ -0,0 +1,114 @@
+package com.dunhili.lightsout.utils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.metrics.Metrics;
+
+/**
+ * Reads levels one at a time from a level file, parsing each line only when it's asked for. Only the current line is
+ * held in memory, so packs of any size can be processed in constant heap. Blank lines are skipped. Since an 
+ * {@link Iterator} can't throw checked exceptions, read errors are thrown as {@link UncheckedIOException}s.
+ * @author dunhili
+ */
+public class LevelReader implements Iterator<Level>, Iterable<Level>, Closeable {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(LevelReader.class);
+	
+	private final BufferedReader reader;
+	
+	/** The next line to parse, or null if it hasn't been read yet. */
+	private String nextLine;
+	private boolean finished = false;
+	private int levelsRead = 0;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a reader for the levels in the given stream. Closing the reader closes the stream.
+	 * @param in stream to read the levels from
+	 */
+	public LevelReader(InputStream in) {
+		this(new InputStreamReader(in));
+	}
+	
+	/**
+	 * Creates a reader for the levels in the given reader. Closing this reader closes it.
+	 * @param in reader to read the levels from
+	 */
+	public LevelReader(Reader in) {
+		this.reader = (in instanceof BufferedReader) ? (BufferedReader) in : new BufferedReader(in);
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	@Override
+	public boolean hasNext() {
+		if (nextLine == null && !finished) {
+			try {
+				do {
+					nextLine = reader.readLine();
+				} while (nextLine != null && nextLine.trim().isEmpty());
+			} catch (IOException e) {
+				log.error("Error while reading levels : ", e);
+				throw new UncheckedIOException(e);
+			}
+			finished = (nextLine == null);
+		}
+		return nextLine != null;
+	}
+	
+	@Override
+	public Level next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException("No more levels to read.");
+		}
+		String line = nextLine;
+		nextLine = null;
+		levelsRead++;
+		Metrics.LEVELS_LOADED.increment();
+		Metrics.BYTES_READ.add(line.length() + 1);
+		return LevelUtil.createLevelFromString(line);
+	}
+	
+	/**
+	 * Returns this reader, so it can be used in a for-each loop. The levels can only be iterated over once.
+	 * @return this reader
+	 */
+	@Override
+	public Iterator<Level> iterator() {
+		return this;
+	}
+	
+	/**
+	 * Returns the number of levels returned so far.
+	 * @return number of levels read
+	 */
+	public int getLevelsRead() {
+		return levelsRead;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		finished = true;
+		nextLine = null;
+		reader.close();
+	}
+}
@@ -1,17 +1,25 @@
 package com.dunhili.lightsout.utils;
 
-import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.log4j.Logger;
 
+import com.dunhili.lightsout.board.GameBoard;
 import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.metrics.Metrics;
+import com.dunhili.lightsout.solver.LinearSolver;
+import com.dunhili.lightsout.solver.Solution;
+import com.dunhili.lightsout.solver.ToggleSystem;
 
 /**
  * A utility class that handles extra behaviors for levels, such as reading and saving levels to files.
@@ -47,22 +55,18 @@ public class LevelUtil {
 		}
 		List<Level> levels = new ArrayList<Level>();
 		
-		BufferedReader fileReader = null;
+		InputStream in = null;
         try {
         	log.info("Reading in levels...");
-        	InputStream in = LevelUtil.class.getResourceAsStream("resources" + File.separator + fileName); 
-        	fileReader = new BufferedReader(new InputStreamReader(in));
-            String line;
-            while ((line = fileReader.readLine()) != null) {
-            	levels.add(createLevelFromString(line));
-            }
+        	in = LevelUtil.class.getResourceAsStream("resources" + File.separator + fileName); 
+        	levels = readLevels(in);
             log.info("Done reading levels.");
 		} catch (IOException e) {
 			log.error("Error while opening or reading file : ", e);
 		} finally {
-			if (fileReader != null) {
+			if (in != null) {
 		        try {
-		        	fileReader.close();
+		        	in.close();
 		        	log.info("Reader closed successfully.");
 				} catch (IOException e) {
 					log.error("Error while closing reader : ", e);
@@ -73,6 +77,94 @@ public class LevelUtil {
         return levels;
 	}
 	
+	/**
+	 * Reads every level from the given stream, one level per line in the same format as the level files. The
+	 * stream is read to the end but isn't closed.
+	 * @param in stream to read the levels from
+	 * @return list of levels read from the stream
+	 * @throws IOException if the stream can't be read
+	 */
+	public static List<Level> readLevels(InputStream in) throws IOException {
+		long start = System.nanoTime();
+		List<Level> levels = new ArrayList<Level>();
+		LevelReader reader = new LevelReader(in);
+		try {
+			for (Level level : reader) {
+				levels.add(level);
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		Metrics.LOAD_LATENCY.recordSince(start);
+		return levels;
+	}
+	
+	/**
+	 * Opens the levels in the file with the given name for reading one at a time, instead of reading them all into
+	 * a list. The file is looked up the same way as {@link #readLevelsFromFile(String)}. The caller must close the 
+	 * reader.
+	 * @param fileName name of the file with the list of levels to read
+	 * @return a reader over the levels in the file
+	 * @throws FileNotFoundException if there is no file with the given name
+	 */
+	public static LevelReader openLevels(String fileName) throws FileNotFoundException {
+		if (log.isTraceEnabled()) {
+			log.trace("openLevels(" + fileName + ")");
+		}
+		InputStream in = LevelUtil.class.getResourceAsStream("resources" + File.separator + fileName);
+		if (in == null) {
+			throw new FileNotFoundException("Couldn't find level file " + fileName + ".");
+		}
+		return new LevelReader(in);
+	}
+	
+	/**
+	 * Opens the levels in the given file for reading one at a time, instead of reading them all into a list. The 
+	 * caller must close the reader.
+	 * @param file file with the list of levels to read
+	 * @return a reader over the levels in the file
+	 * @throws IOException if the file can't be opened
+	 */
+	public static LevelReader openLevels(File file) throws IOException {
+		if (log.isTraceEnabled()) {
+			log.trace("openLevels(" + file + ")");
+		}
+		return new LevelReader(Files.newBufferedReader(file.toPath(), StandardCharsets.US_ASCII));
+	}
+	
+	/**
+	 * Reads every level from the given file by memory-mapping it window by window and parsing the bytes directly 
+	 * with a {@link LevelParser}, which is much faster than going through a reader for large packs.
+	 * @param file file with the list of levels to read
+	 * @return list of levels read from the file
+	 * @throws IOException if the file can't be mapped
+	 */
+	public static List<Level> readLevels(File file) throws IOException {
+		if (log.isTraceEnabled()) {
+			log.trace("readLevels(" + file + ")");
+		}
+		long start = System.nanoTime();
+		List<Level> levels = LevelParser.parseFile(file);
+		Metrics.LOAD_LATENCY.recordSince(start);
+		return levels;
+	}
+	
+	/**
+	 * Reads the level at the given index from the given level file without parsing the levels before it. The file's
+	 * sidecar index (see {@link LevelIndex}) is used to seek straight to the level, and is built or rebuilt first if
+	 * it's missing or stale. Callers reading many levels should hold on to a {@link LevelIndex} instead.
+	 * @param file level file to read from
+	 * @param index index of the level
+	 * @return the level
+	 * @throws IOException if the level file or its index can't be read
+	 */
+	public static Level readLevel(File file, int index) throws IOException {
+		if (log.isTraceEnabled()) {
+			log.trace("readLevel(" + file + ", " + index + ")");
+		}
+		return LevelIndex.forFile(file).getLevel(index);
+	}
+	
 	/**
 	 * Saves the list of levels to the file 'levels.txt.'
 	 * @param levels list of levels to save to the file
@@ -93,19 +185,9 @@ public class LevelUtil {
 		FileOutputStream out = null;
         try {
     		// write the new String with the replaced line OVER the same file
-            out = new FileOutputStream("resources" + File.separator + fileName);
+            out = new FileOutputStream(getSaveFile(fileName));
             log.info("Output file opened.");
-            StringBuilder builder = new StringBuilder();
-            for (Level level : levels) {
-            	builder.append(level.getIdealNumberOfMoves() + " " + 
-            				   level.getNumberOfMoves() + " " + 
-            				   level.getCompressedLayout() + "\n");
-            }
-            builder.delete(builder.length() - 1, builder.length());  // delete last '\n'
-            if (log.isDebugEnabled()) {
-            	log.debug(builder.toString());
-            }
-			out.write(builder.toString().getBytes());
+            writeLevels(levels, out);
 		} catch (IOException e) {
 			log.error("Error while opening or writing to output file : ", e);
 		} finally {
@@ -120,6 +202,96 @@ public class LevelUtil {
 		}
 	}
 	
+	/**
+	 * Returns the file that {@link #saveLevels(List, String)} writes the levels with the given file name to.
+	 * @param fileName name of the level file
+	 * @return the file the levels are saved to
+	 */
+	public static File getSaveFile(String fileName) {
+		return new File("resources" + File.separator + fileName);
+	}
+	
+	/**
+	 * Writes the list of levels to the given stream, one level per line in the same format as the level files. The
+	 * stream isn't closed.
+	 * @param levels list of levels to write
+	 * @param out stream to write the levels to
+	 * @throws IOException if the stream can't be written to
+	 */
+	public static void writeLevels(List<Level> levels, OutputStream out) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		for (Level level : levels) {
+			builder.append(level.getIdealNumberOfMoves() + " " + 
+						   level.getNumberOfMoves() + " " + 
+						   level.getCompressedLayout() + "\n");
+		}
+		if (builder.length() > 0) {
+			builder.delete(builder.length() - 1, builder.length());  // delete last '\n'
+		}
+		if (log.isTraceEnabled()) {
+			log.trace(builder.toString());
+		}
+		byte[] bytes = builder.toString().getBytes();
+		if (log.isDebugEnabled()) {
+			log.debug("Writing " + levels.size() + " levels (" + bytes.length + " bytes).");
+		}
+		out.write(bytes);
+		Metrics.LEVELS_SAVED.add(levels.size());
+		Metrics.BYTES_WRITTEN.add(bytes.length);
+	}
+	
+	/**
+	 * Computes the ideal, or minimum, number of moves needed to clear the given level with the solver. Returns -1
+	 * if the level's layout can't be cleared at all. For boards whose kernel is too large to search exhaustively (see 
+	 * {@link LinearSolver#minimumPresses(GameBoard)}) the result is only an upper bound, which is logged, so it 
+	 * shouldn't replace a stored ideal number of moves that is lower.
+	 * @param level level to compute the ideal number of moves for
+	 * @return minimum number of moves to clear the level, or an upper bound on it, or -1 if it can't be cleared
+	 */
+	public static int computeIdealNumberOfMoves(Level level) {
+		log.trace("computeIdealNumberOfMoves()");
+		Solution solution = LinearSolver.solve(new GameBoard(level.getLayout()));
+		if (solution == null) {
+			return -1;
+		}
+		if (!solution.isMinimal()) {
+			log.warn("Level (" + level.getCompressedLayout() + ") needs at most " + solution.getNumberOfPresses() 
+					+ " moves, but that isn't proven to be the minimum.");
+		}
+		return solution.getNumberOfPresses();
+	}
+	
+	/**
+	 * Checks the ideal number of moves stored with each level against the minimum computed by the solver and 
+	 * returns the indices of the levels that don't match. Levels of the same dimensions share one cached toggle 
+	 * system, so the cost of reducing it is only paid once per board size. When the solver can't prove its count is
+	 * the minimum, a level only counts as a mismatch if a solution shorter than its stored ideal number of moves was
+	 * found, otherwise it's logged as unproven.
+	 * @param levels list of levels to verify
+	 * @return indices of the levels whose ideal number of moves is wrong
+	 */
+	public static List<Integer> verifyIdealNumberOfMoves(List<Level> levels) {
+		log.trace("verifyIdealNumberOfMoves()");
+		List<Integer> mismatches = new ArrayList<Integer>();
+		for (int i = 0; i < levels.size(); i++) {
+			Level level = levels.get(i);
+			GameBoard board = new GameBoard(level.getLayout());
+			ToggleSystem system = LinearSolver.getSystem(board.getWidth(), board.getHeight());
+			Solution solution = LinearSolver.solve(system, board.toBitVector());
+			int idealNumberOfMoves = (solution == null) ? -1 : solution.getNumberOfPresses();
+			if (solution != null && !solution.isMinimal() && level.getIdealNumberOfMoves() >= 0 
+					&& level.getIdealNumberOfMoves() <= idealNumberOfMoves) {
+				log.info("Level " + i + " (" + level.getCompressedLayout() + ") has ideal number of moves " 
+						+ level.getIdealNumberOfMoves() + ", which couldn't be proven minimal.");
+			} else if (idealNumberOfMoves != level.getIdealNumberOfMoves()) {
+				log.warn("Level " + i + " (" + level.getCompressedLayout() + ") has ideal number of moves " 
+						+ level.getIdealNumberOfMoves() + " but the minimum is " + idealNumberOfMoves + ".");
+				mismatches.add(i);
+			}
+		}
+		return mismatches;
+	}
+	
 	public static void deleteSaveFile() {
 		deleteSaveFile(LEVEL_FILE_NAME);
 	}
@@ -141,7 +313,7 @@ public class LevelUtil {
 	 * @param str String to parse the level from
 	 * @return level created from the given String
 	 */
-	private static Level createLevelFromString(String str) {
+	static Level createLevelFromString(String str) {
 		if (log.isTraceEnabled()) {
 			log.trace("Level : " + str);
 		}
@@ -0,0 +1,414 @@
+package com.dunhili.lightsout.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.metrics.Metrics;
+
+/**
+ * An append-only journal of the user's progress that sits beside a level file. Changes are recorded through 
+ * {@link #record(int, int)} as they happen, and saving only appends a small record for each level that changed, 
+ * instead of rewriting the whole level file. Loading replays the journal on top of the levels in the level file. 
+ * Once the journal grows past a threshold it's compacted in the background: the merged levels are written to a temporary file that is moved over the level file, and the records
+ * that are now part of it are dropped from the journal.
+ * <p>Each record is 12 bytes: the level's index (int), its number of moves (int) and the CRC32 of those 8 bytes 
+ * (int), little-endian. A record that was only partly written when the process died fails its checksum and is 
+ * ignored, and the level file is only ever replaced whole, so a crash never corrupts either one.
+ * @author dunhili
+ */
+public class ProgressJournal implements Closeable {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	public static final String SUFFIX = ".journal";
+	public static final int RECORD_SIZE = 12;
+	
+	/** Default journal size that triggers a compaction, 1 MB. */
+	public static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+	
+	private static final Logger log = Logger.getLogger(ProgressJournal.class);
+	
+	private final File levelFile;
+	private final File journalFile;
+	private final long compactionThreshold;
+	
+	private final ExecutorService compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "progress-journal-compactor");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
+	private RandomAccessFile journal;
+	private List<Level> levels;
+	
+	/** Number of moves of each level as of the last record written, used to skip changes that were undone. */
+	private int[] journaledMoves;
+	
+	/** Indices of the levels recorded since the last save, the first dirtyCount are in use. */
+	private int[] dirtyIndices;
+	private int dirtyCount = 0;
+	private boolean[] isDirty;
+	
+	private boolean compactionPending = false;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a journal for the given level file with the default compaction threshold.
+	 * @param levelFile level file the journal records progress for
+	 */
+	public ProgressJournal(File levelFile) {
+		this(levelFile, DEFAULT_COMPACTION_THRESHOLD);
+	}
+	
+	/**
+	 * Creates a journal for the given level file.
+	 * @param levelFile level file the journal records progress for
+	 * @param compactionThreshold journal size in bytes that triggers a compaction
+	 */
+	public ProgressJournal(File levelFile, long compactionThreshold) {
+		this.levelFile = levelFile;
+		this.journalFile = getJournalFile(levelFile);
+		this.compactionThreshold = compactionThreshold;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Returns the journal file for the given level file.
+	 * @param levelFile level file
+	 * @return its journal file
+	 */
+	public static File getJournalFile(File levelFile) {
+		return new File(levelFile.getPath() + SUFFIX);
+	}
+	
+	/**
+	 * Reads the levels from the level file and replays the journal on top of them. Any partly written record at the
+	 * end of the journal is cut off. The journal keeps the returned list to compact it later, and changes to the 
+	 * levels should be made through {@link #record(int, int)} so the journal knows which ones to save.
+	 * @return list of levels with the user's latest progress
+	 * @throws IOException if the level file or journal can't be read
+	 */
+	public synchronized List<Level> load() throws IOException {
+		log.info("Loading levels and progress journal...");
+		InputStream in = new FileInputStream(levelFile);
+		try {
+			levels = LevelUtil.readLevels(in);
+		} finally {
+			in.close();
+		}
+		
+		journal = new RandomAccessFile(journalFile, "rw");
+		long validLength = replay(levels);
+		if (validLength < journal.length()) {
+			log.warn("Discarding " + (journal.length() - validLength) + " bytes of incomplete journal records.");
+			journal.setLength(validLength);
+		}
+		journal.seek(validLength);
+		
+		journaledMoves = new int[levels.size()];
+		for (int i = 0; i < levels.size(); i++) {
+			journaledMoves[i] = levels.get(i).getNumberOfMoves();
+		}
+		dirtyIndices = new int[16];
+		dirtyCount = 0;
+		isDirty = new boolean[levels.size()];
+		log.info("Done loading levels.");
+		return levels;
+	}
+	
+	/**
+	 * Sets the number of moves of the level at the given index and marks it to be written by the next 
+	 * {@link #save()}. Costs O(1).
+	 * @param index index of the level
+	 * @param moves user's number of moves for the level
+	 */
+	public synchronized void record(int index, int moves) {
+		if (log.isTraceEnabled()) {
+			log.trace("record(" + index + ", " + moves + ")");
+		}
+		checkLoaded();
+		if (index < 0 || index >= levels.size()) {
+			log.error("Level index " + index + " is outside the " + levels.size() + " levels.");
+			throw new IllegalArgumentException("Level index " + index + " is outside the " + levels.size() + " levels.");
+		}
+		levels.get(index).setNumberOfMoves(moves);
+		if (!isDirty[index]) {
+			isDirty[index] = true;
+			if (dirtyCount == dirtyIndices.length) {
+				dirtyIndices = Arrays.copyOf(dirtyIndices, dirtyCount * 2);
+			}
+			dirtyIndices[dirtyCount++] = index;
+		}
+	}
+	
+	/**
+	 * Appends a record for every level recorded since the last save whose number of moves actually changed, and 
+	 * forces the records to disk. Only the recorded levels are looked at, so the cost depends only on the number of 
+	 * changed levels. Schedules a compaction if the journal has grown past the threshold.
+	 * @return number of records written
+	 * @throws IOException if the journal can't be written
+	 */
+	public synchronized int save() throws IOException {
+		log.trace("save()");
+		checkLoaded();
+		ByteBuffer records = null;
+		int count = 0;
+		for (int k = 0; k < dirtyCount; k++) {
+			int i = dirtyIndices[k];
+			isDirty[i] = false;
+			int moves = levels.get(i).getNumberOfMoves();
+			if (moves != journaledMoves[i]) {
+				if (records == null) {
+					records = ByteBuffer.allocate(RECORD_SIZE * (dirtyCount - k)).order(ByteOrder.LITTLE_ENDIAN);
+				}
+				putRecord(records, i, moves);
+				journaledMoves[i] = moves;
+				count++;
+			}
+		}
+		dirtyCount = 0;
+		
+		if (records != null) {
+			records.flip();
+			FileChannel channel = journal.getChannel();
+			while (records.hasRemaining()) {
+				channel.write(records);
+			}
+			channel.force(false);
+			Metrics.BYTES_WRITTEN.add(RECORD_SIZE * count);
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Journaled " + count + " changed levels.");
+		}
+		
+		if (journal.length() >= compactionThreshold && !compactionPending) {
+			compactionPending = true;
+			compactor.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						compact();
+					} catch (IOException e) {
+						log.error("Error while compacting progress journal : ", e);
+					}
+				}
+			});
+		}
+		return count;
+	}
+	
+	/**
+	 * Merges the journal into the level file and drops the merged records from the journal. Records saved while the
+	 * level file is being written are kept. Normally run in the background by {@link #save()}. If the compaction 
+	 * fails, its temporary files are deleted, the journal is left as it was and a later save can schedule another 
+	 * compaction.
+	 * @throws IOException if the level file or journal can't be written
+	 */
+	public void compact() throws IOException {
+		log.info("Compacting progress journal...");
+		File tempFile = new File(levelFile.getPath() + ".tmp");
+		File tempJournal = new File(journalFile.getPath() + ".tmp");
+		boolean compacted = false;
+		try {
+			List<Level> snapshot = new ArrayList<Level>();
+			long mergedLength;
+			synchronized (this) {
+				checkLoaded();
+				for (int i = 0; i < levels.size(); i++) {
+					Level level = levels.get(i);
+					snapshot.add(new Level(level.getLayout(), level.getIdealNumberOfMoves(), journaledMoves[i]));
+				}
+				mergedLength = journal.length();
+			}
+			
+			FileOutputStream out = new FileOutputStream(tempFile);
+			try {
+				LevelUtil.writeLevels(snapshot, out);
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			Files.move(tempFile.toPath(), levelFile.toPath(), StandardCopyOption.REPLACE_EXISTING, 
+					StandardCopyOption.ATOMIC_MOVE);
+			
+			synchronized (this) {
+				// keep whatever was saved after the snapshot was taken
+				long remaining = journal.length() - mergedLength;
+				byte[] tail = new byte[(int) remaining];
+				journal.seek(mergedLength);
+				journal.readFully(tail);
+				
+				OutputStream journalOut = new FileOutputStream(tempJournal);
+				try {
+					journalOut.write(tail);
+				} finally {
+					journalOut.close();
+				}
+				journal.close();
+				try {
+					Files.move(tempJournal.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, 
+							StandardCopyOption.ATOMIC_MOVE);
+				} finally {
+					// the old journal is still whole if the move failed, and replaying merged records is harmless
+					journal = new RandomAccessFile(journalFile, "rw");
+					journal.seek(journal.length());
+				}
+			}
+			compacted = true;
+		} finally {
+			if (!compacted) {
+				deleteIfExists(tempFile);
+				deleteIfExists(tempJournal);
+			}
+			synchronized (this) {
+				compactionPending = false;
+			}
+		}
+		log.info("Done compacting progress journal.");
+	}
+	
+	/**
+	 * Returns true if a background compaction has been scheduled and hasn't finished yet.
+	 * @return true if a compaction is pending, otherwise false
+	 */
+	public synchronized boolean isCompactionPending() {
+		return compactionPending;
+	}
+	
+	/**
+	 * Returns the current size of the journal.
+	 * @return journal size in bytes
+	 * @throws IOException if the journal can't be read
+	 */
+	public synchronized long getJournalSize() throws IOException {
+		return (journal == null) ? 0 : journal.length();
+	}
+	
+	/**
+	 * Waits for any running compaction and closes the journal.
+	 * @throws IOException if the journal can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		compactor.shutdown();
+		try {
+			compactor.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			if (journal != null) {
+				journal.close();
+				journal = null;
+			}
+		}
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Applies every complete, valid record in the journal to the levels.
+	 * @param levels levels to apply the records to
+	 * @return length of the valid part of the journal
+	 * @throws IOException if the journal can't be read
+	 */
+	private long replay(List<Level> levels) throws IOException {
+		byte[] bytes = new byte[(int) journal.length()];
+		journal.seek(0);
+		journal.readFully(bytes);
+		ByteBuffer records = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		
+		CRC32 crc = new CRC32();
+		int applied = 0;
+		while (records.remaining() >= RECORD_SIZE) {
+			int start = records.position();
+			int index = records.getInt();
+			int moves = records.getInt();
+			int checksum = records.getInt();
+			crc.reset();
+			crc.update(bytes, start, 8);
+			if ((int) crc.getValue() != checksum) {
+				records.position(start);
+				break;
+			}
+			if (index >= 0 && index < levels.size()) {
+				levels.get(index).setNumberOfMoves(moves);
+				applied++;
+			}
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Replayed " + applied + " journal records.");
+		}
+		return records.position();
+	}
+	
+	/**
+	 * Puts a record into the buffer.
+	 * @param buffer buffer to put the record into
+	 * @param index index of the level
+	 * @param moves number of moves for the level
+	 */
+	private static void putRecord(ByteBuffer buffer, int index, int moves) {
+		int start = buffer.position();
+		buffer.putInt(index).putInt(moves);
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), start, 8);
+		buffer.putInt((int) crc.getValue());
+	}
+	
+	/**
+	 * Deletes the given temporary file if it's there, logging instead of throwing if it can't be deleted.
+	 * @param file file to delete
+	 */
+	private static void deleteIfExists(File file) {
+		try {
+			Files.deleteIfExists(file.toPath());
+		} catch (IOException e) {
+			log.warn("Couldn't delete temporary file " + file + " : " + e);
+		}
+	}
+	
+	/**
+	 * Throws an exception if the levels haven't been loaded yet.
+	 */
+	private void checkLoaded() {
+		if (levels == null || journal == null) {
+			log.error("The levels must be loaded before the journal can be used.");
+			throw new IllegalStateException("The levels must be loaded before the journal can be used.");
+		}
+	}
+}
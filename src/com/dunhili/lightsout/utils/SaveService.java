@@ -0,0 +1,207 @@
+package com.dunhili.lightsout.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+
+import com.dunhili.lightsout.board.Level;
+import com.dunhili.lightsout.metrics.Metrics;
+
+/**
+ * Saves levels on a background thread so the caller (usually the Swing event thread) never waits on the disk. 
+ * Requests that arrive while a save is already queued are coalesced, so only the latest levels are written. Each 
+ * save writes a temporary file next to the target, forces it to disk and then atomically moves it over the target, 
+ * so the target always holds either the old or the new levels in full.
+ * @author dunhili
+ */
+public class SaveService {
+	////////////////////////////////////////
+	// FIELDS
+	////////////////////////////////////////
+	
+	private static final Logger log = Logger.getLogger(SaveService.class);
+	
+	private final File target;
+	
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "level-save-service");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
+	/** The latest levels waiting to be written, or null if there is nothing to write. */
+	private final AtomicReference<List<Level>> pending = new AtomicReference<List<Level>>();
+	
+	private volatile int savesWritten = 0;
+	
+	////////////////////////////////////////
+	// CONSTRUCTORS
+	////////////////////////////////////////
+	
+	/**
+	 * Creates a save service that writes levels to the given file.
+	 * @param target file to save the levels to
+	 */
+	public SaveService(File target) {
+		this.target = target;
+	}
+	
+	////////////////////////////////////////
+	// PUBLIC METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Queues the levels to be saved and returns immediately. The user's progress is copied before returning, so the
+	 * levels can keep changing while the save is written. If a save is already queued, it's replaced with this one.
+	 * @param levels levels to save
+	 * @throws IllegalStateException if the service has been shut down
+	 */
+	public void requestSave(List<Level> levels) {
+		log.trace("requestSave()");
+		if (writer.isShutdown()) {
+			log.error("Can't save the levels, the save service has been shut down.");
+			throw new IllegalStateException("Can't save the levels, the save service has been shut down.");
+		}
+		List<Level> snapshot = new ArrayList<Level>(levels.size());
+		for (Level level : levels) {
+			snapshot.add(new Level(level.getLayout(), level.getIdealNumberOfMoves(), level.getNumberOfMoves()));
+		}
+		
+		if (pending.getAndSet(snapshot) == null) {
+			try {
+				writer.execute(new Runnable() {
+					@Override
+					public void run() {
+						flush();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// shut down since the check above, so nothing will ever write this save
+				pending.compareAndSet(snapshot, null);
+				log.error("Can't save the levels, the save service has been shut down.");
+				throw new IllegalStateException("Can't save the levels, the save service has been shut down.", e);
+			}
+		} else {
+			log.debug("Coalesced save request with the one already queued.");
+		}
+	}
+	
+	/**
+	 * Stops accepting saves and waits up to the given time for the queued save to be written.
+	 * @param timeout longest time to wait
+	 * @param unit unit of the timeout
+	 * @return true if every save was written, false if the timeout ran out first
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+		log.info("Waiting for pending saves...");
+		writer.shutdown();
+		boolean finished = writer.awaitTermination(timeout, unit);
+		if (!finished) {
+			log.warn("Timed out waiting for the levels to be saved.");
+		}
+		return finished;
+	}
+	
+	/**
+	 * Returns the number of saves written so far. Coalesced requests only count once.
+	 * @return number of saves written
+	 */
+	public int getSavesWritten() {
+		return savesWritten;
+	}
+	
+	/**
+	 * Writes the levels to the target file through a temporary file that is forced to disk and then atomically moved
+	 * over the target.
+	 * @param levels levels to save
+	 * @param target file to save the levels to
+	 * @throws IOException if the levels can't be written
+	 */
+	public static void writeAtomically(List<Level> levels, File target) throws IOException {
+		long start = System.nanoTime();
+		File directory = target.getAbsoluteFile().getParentFile();
+		File tempFile = File.createTempFile(target.getName(), ".tmp", directory);
+		try {
+			FileOutputStream out = new FileOutputStream(tempFile);
+			try {
+				LevelUtil.writeLevels(levels, out);
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			
+			try {
+				Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, 
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				log.warn("Atomic move isn't supported, replacing " + target + " non-atomically.");
+				Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			tempFile.delete();
+		}
+		syncDirectory(directory);
+		Metrics.SAVE_LATENCY.recordSince(start);
+	}
+	
+	////////////////////////////////////////
+	// PRIVATE METHODS
+	////////////////////////////////////////
+	
+	/**
+	 * Writes the latest queued levels, if there are any.
+	 */
+	private void flush() {
+		List<Level> levels = pending.getAndSet(null);
+		if (levels == null) {
+			return;
+		}
+		
+		try {
+			writeAtomically(levels, target);
+			savesWritten++;
+			if (log.isDebugEnabled()) {
+				log.debug("Saved " + levels.size() + " levels to " + target + ".");
+			}
+		} catch (IOException e) {
+			log.error("Error while saving levels : ", e);
+		}
+	}
+	
+	/**
+	 * Forces the directory entry of a moved file to disk. Not every platform can open a directory, so failures are 
+	 * only logged.
+	 * @param directory directory to force
+	 */
+	private static void syncDirectory(File directory) {
+		try {
+			FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			log.debug("Couldn't force directory " + directory + " to disk : " + e.getMessage());
+		}
+	}
+}